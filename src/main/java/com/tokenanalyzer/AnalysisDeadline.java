@@ -0,0 +1,149 @@
+package com.tokenanalyzer;
+
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget for analyzing one file: an overall limit plus limits for the extraction
+ * and encoding stages, where zero means unlimited. Long-running work calls
+ * {@link #check()} at safe points and stops with an {@link AnalysisTimeoutException}
+ * once a limit has passed. {@link #cancel()} also interrupts the thread bound to the
+ * deadline, which aborts blocking reads in extractors that never reach a check.
+ */
+public class AnalysisDeadline {
+    public static final String STAGE_EXTRACTION = "extraction";
+    public static final String STAGE_ENCODING = "encoding";
+    public static final String STAGE_ANALYSIS = "analysis";
+    
+    private final String fileName;
+    private final long fileLimitNanos;
+    private final long extractionLimitNanos;
+    private final long encodingLimitNanos;
+    private final long startNanos = System.nanoTime();
+    // Written by the thread doing the work and read by watchdogs, so swapped as a whole
+    private volatile Stage stage;
+    private volatile boolean cancelled = false;
+    private Thread boundThread;
+    
+    public AnalysisDeadline(String fileName, Duration fileLimit, Duration extractionLimit, Duration encodingLimit) {
+        if (fileLimit.isNegative() || extractionLimit.isNegative() || encodingLimit.isNegative()) {
+            throw new IllegalArgumentException("Time limits must not be negative");
+        }
+        this.fileName = fileName;
+        this.fileLimitNanos = fileLimit.toNanos();
+        this.extractionLimitNanos = extractionLimit.toNanos();
+        this.encodingLimitNanos = encodingLimit.toNanos();
+        this.stage = new Stage(STAGE_EXTRACTION, startNanos, extractionLimitNanos);
+    }
+    
+    public static AnalysisDeadline unlimited(String fileName) {
+        return new AnalysisDeadline(fileName, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+    }
+    
+    /**
+     * Checks the current stage's limit, then starts timing {@code stage}.
+     */
+    public void enterStage(String stage) {
+        check();
+        this.stage = new Stage(stage, System.nanoTime(), switch (stage) {
+            case STAGE_EXTRACTION -> extractionLimitNanos;
+            case STAGE_ENCODING -> encodingLimitNanos;
+            default -> 0;
+        });
+    }
+    
+    /**
+     * Throws {@link AnalysisTimeoutException} if the file or stage limit has passed or
+     * the deadline was cancelled. Cheap enough to call per page or per chunk.
+     */
+    public void check() {
+        long now = System.nanoTime();
+        Stage current = stage;
+        if (cancelled
+                || (fileLimitNanos > 0 && now - startNanos > fileLimitNanos)
+                || (current.limitNanos() > 0 && now - current.startNanos() > current.limitNanos())) {
+            throw timeout();
+        }
+    }
+    
+    /**
+     * The exception reporting that the file ran out of time in its current stage,
+     * against the stage limit if that is the one that passed.
+     */
+    public AnalysisTimeoutException timeout() {
+        long now = System.nanoTime();
+        Stage current = stage;
+        if (current.limitNanos() > 0 && now - current.startNanos() >= current.limitNanos()) {
+            return new AnalysisTimeoutException(fileName, current.name(), toMillis(now - current.startNanos()),
+                toMillis(current.limitNanos()));
+        }
+        return new AnalysisTimeoutException(fileName, current.name(), toMillis(now - startNanos),
+            toMillis(fileLimitNanos));
+    }
+    
+    public boolean isLimited() {
+        return fileLimitNanos > 0 || extractionLimitNanos > 0 || encodingLimitNanos > 0;
+    }
+    
+    /**
+     * Time left under the file and current stage limits, or {@link Long#MAX_VALUE} without either.
+     */
+    public long remainingNanos() {
+        long now = System.nanoTime();
+        Stage current = stage;
+        long remaining = Long.MAX_VALUE;
+        if (fileLimitNanos > 0) {
+            remaining = Math.max(0, startNanos + fileLimitNanos - now);
+        }
+        if (current.limitNanos() > 0) {
+            remaining = Math.min(remaining, Math.max(0, current.startNanos() + current.limitNanos() - now));
+        }
+        return remaining;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Stops the work at its next check and interrupts the bound thread, if any.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (boundThread != null) {
+            boundThread.interrupt();
+        }
+    }
+    
+    /**
+     * Makes the current thread the one {@link #cancel()} interrupts, until {@link #unbind()}.
+     */
+    public synchronized void bind() {
+        boundThread = Thread.currentThread();
+        if (cancelled) {
+            boundThread.interrupt();
+        }
+    }
+    
+    public synchronized void unbind() {
+        if (boundThread == Thread.currentThread()) {
+            boundThread = null;
+            if (cancelled) {
+                Thread.interrupted(); // Pool threads must not carry the interrupt into their next task
+            }
+        }
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+    
+    private record Stage(String name, long startNanos, long limitNanos) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.tokenanalyzer;
+
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.DocumentSketches;
+import com.tokenanalyzer.models.FrequentItem;
+import com.tokenanalyzer.utils.HeavyHitters;
+import com.tokenanalyzer.utils.HyperLogLog;
+import com.tokenanalyzer.utils.LogLinearHistogram;
+import com.tokenanalyzer.utils.NgramCounter;
+
+/**
+ * Running batch statistics fed with typed results as they complete. Any thread can record,
+ * and a snapshot can be taken at any time without walking the result table. Counters and
+ * extremes are lock-free adders; the distinct-count and frequent-item sketches are merged
+ * under their own monitors, so concurrent records can briefly wait on each other there.
+ * A snapshot computes percentiles and top-K lists, so callers should not take one per frame.
+ */
+public class BatchAggregator {
+    private static final int CORPUS_COUNTERS = 1024;
+    private static final int CORPUS_NGRAM_COUNTERS = 4096;
+    private static final int TOP_ITEMS = 20;
+    
+    private final LongAdder successfulFiles = new LongAdder();
+    private final LongAdder failedFiles = new LongAdder();
+    private final LongAdder duplicateFiles = new LongAdder();
+    private final LongAdder skippedFiles = new LongAdder();
+    private final LongAdder totalTokens = new LongAdder();
+    private final LongAccumulator minTokens = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxTokens = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final LogLinearHistogram tokenHistogram = new LogLinearHistogram();
+    private final DoubleAdder totalReadability = new DoubleAdder();
+    private final DoubleAccumulator minReadability = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+    private final DoubleAccumulator maxReadability = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+    private final LongAdder totalProcessingTime = new LongAdder();
+    // Corpus-wide distinct counts, guarded by their own monitors
+    private final HyperLogLog distinctTokens = new HyperLogLog();
+    private final HyperLogLog distinctWords = new HyperLogLog();
+    // Bounded corpus-wide frequent tokens and words, for spotting boilerplate
+    private final HeavyHitters<Integer> frequentTokens = new HeavyHitters<>(CORPUS_COUNTERS);
+    private final HeavyHitters<String> frequentWords = new HeavyHitters<>(CORPUS_COUNTERS);
+    // Bounded corpus-wide token bigrams and trigrams, for spotting repeated sequences
+    private final NgramCounter ngrams = new NgramCounter(CORPUS_NGRAM_COUNTERS);
+    private volatile IntFunction<String> tokenDecoder = tokenId -> "#" + tokenId;
+    
+    /**
+     * Turns token IDs into display text for the frequent-token list.
+     */
+    public void setTokenDecoder(IntFunction<String> tokenDecoder) {
+        this.tokenDecoder = tokenDecoder;
+    }
+    
+    /**
+     * Records the result and merges its token histogram and sketches into the corpus totals.
+     * Skipped near-duplicates are only counted, so they do not skew the statistics.
+     */
+    public void record(DocumentAnalysis analysis) {
+        if (analysis.isDuplicate()) {
+            duplicateFiles.increment();
+        }
+        if (analysis.isSkipped()) {
+            skippedFiles.increment();
+            return;
+        }
+        if (analysis.tokenMetrics() != null) {
+            frequentTokens.addAll(analysis.tokenMetrics().tokenFrequency());
+        }
+        DocumentSketches sketches = analysis.sketches();
+        if (sketches != null) {
+            synchronized (distinctTokens) {
+                distinctTokens.merge(sketches.tokens());
+            }
+            synchronized (distinctWords) {
+                distinctWords.merge(sketches.words());
+            }
+            frequentWords.merge(sketches.frequentWords());
+            if (sketches.ngrams() != null) {
+                ngrams.merge(sketches.ngrams());
+            }
+        }
+        record(analysis.result());
+    }
+    
+    public void record(AnalysisResult result) {
+        totalTokens.add(result.totalTokens());
+        minTokens.accumulate(result.totalTokens());
+        maxTokens.accumulate(result.totalTokens());
+        tokenHistogram.record(result.totalTokens());
+        
+        totalReadability.add(result.fleschScore());
+        minReadability.accumulate(result.fleschScore());
+        maxReadability.accumulate(result.fleschScore());
+        
+        totalProcessingTime.add(result.processingTime());
+        
+        // Counted last so a concurrent snapshot never averages over a missing value
+        successfulFiles.increment();
+    }
+    
+    public void recordFailure() {
+        failedFiles.increment();
+    }
+    
+    public BatchSummary snapshot() {
+        int successful = successfulFiles.intValue();
+        int failed = failedFiles.intValue();
+        int duplicates = duplicateFiles.intValue();
+        int skipped = skippedFiles.intValue();
+        long tokens = totalTokens.sum();
+        
+        if (successful == 0) {
+            return new BatchSummary(0, failed, duplicates, skipped, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                List.of(), List.of(), List.of(), List.of());
+        }
+        
+        return new BatchSummary(
+            successful,
+            failed,
+            duplicates,
+            skipped,
+            tokens,
+            (double) tokens / successful,
+            minTokens.get(),
+            maxTokens.get(),
+            tokenHistogram.getPercentile(50),
+            tokenHistogram.getPercentile(90),
+            tokenHistogram.getPercentile(99),
+            totalReadability.sum() / successful,
+            minReadability.get(),
+            maxReadability.get(),
+            (double) totalProcessingTime.sum() / successful,
+            estimate(distinctTokens),
+            estimate(distinctWords),
+            topTokens(),
+            frequentWords.top(TOP_ITEMS).stream()
+                .map(entry -> new FrequentItem(entry.key(), entry.count(), entry.maxCount()))
+                .toList(),
+            topNgrams(2),
+            topNgrams(3)
+        );
+    }
+    
+    public void reset() {
+        successfulFiles.reset();
+        failedFiles.reset();
+        duplicateFiles.reset();
+        skippedFiles.reset();
+        totalTokens.reset();
+        minTokens.reset();
+        maxTokens.reset();
+        tokenHistogram.reset();
+        totalReadability.reset();
+        minReadability.reset();
+        maxReadability.reset();
+        totalProcessingTime.reset();
+        synchronized (distinctTokens) {
+            distinctTokens.reset();
+        }
+        synchronized (distinctWords) {
+            distinctWords.reset();
+        }
+        frequentTokens.reset();
+        frequentWords.reset();
+        ngrams.reset();
+    }
+    
+    private List<FrequentItem> topTokens() {
+        IntFunction<String> decoder = tokenDecoder;
+        return frequentTokens.top(TOP_ITEMS).stream()
+            .map(entry -> new FrequentItem(decoder.apply(entry.key()), entry.count(), entry.maxCount()))
+            .toList();
+    }
+    
+    private List<FrequentItem> topNgrams(int n) {
+        IntFunction<String> decoder = tokenDecoder;
+        return ngrams.top(n, TOP_ITEMS).stream()
+            .map(entry -> {
+                StringBuilder text = new StringBuilder();
+                for (int tokenId : entry.tokens()) {
+                    text.append(decoder.apply(tokenId));
+                }
+                return new FrequentItem(text.toString(), entry.count(), entry.maxCount());
+            })
+            .toList();
+    }
+    
+    private static long estimate(HyperLogLog sketch) {
+        synchronized (sketch) {
+            return sketch.estimate();
+        }
+    }
+}
\ No newline at end of file
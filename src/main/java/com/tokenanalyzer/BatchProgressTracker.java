@@ -0,0 +1,110 @@
+package com.tokenanalyzer;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.tokenanalyzer.models.BatchProgress;
+
+/**
+ * Progress counters for one batch, safe to update from any thread. The scheduler moves
+ * files through the extraction and analysis stages and records completions; snapshots
+ * smooth the byte rate over a few seconds, so the ETA does not jump with every file.
+ */
+public class BatchProgressTracker {
+    private static final double RATE_TIME_CONSTANT_NANOS = 5e9;
+    private static final long MIN_SAMPLE_NANOS = 250_000_000L;
+    
+    private final int totalFiles;
+    private final long totalBytes;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger completedFiles = new AtomicInteger();
+    private final AtomicLong processedBytes = new AtomicLong();
+    private final LongAdder totalTokens = new LongAdder();
+    private final AtomicInteger extracting = new AtomicInteger();
+    private final AtomicInteger awaitingAnalysis = new AtomicInteger();
+    private final AtomicInteger analyzing = new AtomicInteger();
+    // Rate smoothing state, guarded by this
+    private long sampleNanos = startNanos;
+    private long sampleBytes = 0;
+    private double smoothedBytesPerSecond = -1;
+    
+    public BatchProgressTracker(List<File> files) {
+        this(files.size(), files.stream().mapToLong(File::length).sum());
+    }
+    
+    public BatchProgressTracker(int totalFiles, long totalBytes) {
+        this.totalFiles = totalFiles;
+        this.totalBytes = totalBytes;
+    }
+    
+    void extractionStarted() {
+        extracting.incrementAndGet();
+    }
+    
+    void extractionFinished() {
+        extracting.decrementAndGet();
+    }
+    
+    void analysisQueued() {
+        awaitingAnalysis.incrementAndGet();
+    }
+    
+    void analysisStarted() {
+        awaitingAnalysis.decrementAndGet();
+        analyzing.incrementAndGet();
+    }
+    
+    void analysisFinished() {
+        analyzing.decrementAndGet();
+    }
+    
+    /**
+     * Counts a file as done, whether it succeeded or failed.
+     */
+    public void fileCompleted(long bytes) {
+        processedBytes.addAndGet(bytes);
+        completedFiles.incrementAndGet();
+    }
+    
+    public void addTokens(long tokens) {
+        totalTokens.add(tokens);
+    }
+    
+    public synchronized BatchProgress snapshot(String currentFile) {
+        long now = System.nanoTime();
+        long bytes = processedBytes.get();
+        int completed = completedFiles.get();
+        
+        // Exponential moving average weighted by the time each sample covers
+        long interval = now - sampleNanos;
+        if (interval >= MIN_SAMPLE_NANOS) {
+            double rate = (bytes - sampleBytes) * 1e9 / interval;
+            double weight = 1 - Math.exp(-interval / RATE_TIME_CONSTANT_NANOS);
+            smoothedBytesPerSecond = smoothedBytesPerSecond < 0
+                ? rate : smoothedBytesPerSecond + weight * (rate - smoothedBytesPerSecond);
+            sampleNanos = now;
+            sampleBytes = bytes;
+        }
+        
+        long elapsed = now - startNanos;
+        double seconds = elapsed / 1e9;
+        double bytesPerSecond = smoothedBytesPerSecond >= 0 ? smoothedBytesPerSecond : seconds > 0 ? bytes / seconds : 0;
+        long eta;
+        if (completed >= totalFiles) {
+            eta = 0;
+        } else if (bytesPerSecond > 0) {
+            eta = (long) (Math.max(0, totalBytes - bytes) / bytesPerSecond * 1e9);
+        } else {
+            eta = -1; // Nothing finished yet to estimate from
+        }
+        
+        long tokens = totalTokens.sum();
+        return new BatchProgress(completed, totalFiles, bytes, totalBytes, tokens,
+            Math.max(0, extracting.get()), Math.max(0, awaitingAnalysis.get()), Math.max(0, analyzing.get()),
+            elapsed, bytesPerSecond, seconds > 0 ? tokens / seconds : 0, seconds > 0 ? completed / seconds : 0,
+            eta, currentFile);
+    }
+}
\ No newline at end of file
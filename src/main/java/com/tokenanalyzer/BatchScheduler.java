@@ -0,0 +1,431 @@
+package com.tokenanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
+import com.tokenanalyzer.models.FileMetadata;
+
+/**
+ * Runs a batch as a two-stage pipeline: extraction on an I/O pool, then analysis on a
+ * separately sized CPU pool, so parsing never competes with tokenization for threads.
+ * Files are dispatched most expensive first, estimated from size, format and page
+ * count, which keeps a large document picked last from leaving a long tail. Outcomes
+ * are delivered on the calling thread in completion order, so listeners need no locking.
+ * Each file also reserves its estimated memory from a {@link MemoryBudget} before it
+ * starts, so concurrency drops while large documents are in flight instead of the heap
+ * running out.
+ */
+public class BatchScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchScheduler.class);
+    private static final String IO_THREADS_PROPERTY = "tokenanalyzer.ioThreads";
+    private static final String CPU_THREADS_PROPERTY = "tokenanalyzer.cpuThreads";
+    private static final double PAGE_COST_BYTES = 32 * 1024; // A PDF page costs about as much as this much plain text
+    
+    private final FileProcessor fileProcessor;
+    private final int ioThreads;
+    private final int cpuThreads;
+    private final ExecutorService ioPool;
+    private final ExecutorService cpuPool;
+    private final ScheduledExecutorService watchdog;
+    private final MemoryBudget memoryBudget;
+    
+    /**
+     * A file with its estimated cost, in plain-text-equivalent bytes.
+     */
+    public record ScheduledFile(File file, FileMetadata metadata, double cost) {
+    }
+    
+    /**
+     * Reads a file's content, usually its text, on the I/O pool, checking {@code deadline}
+     * where it can.
+     */
+    @FunctionalInterface
+    public interface Extractor<T> {
+        T extract(File file, AnalysisDeadline deadline) throws IOException;
+    }
+    
+    /**
+     * Analyzes extracted text on the CPU pool.
+     */
+    @FunctionalInterface
+    public interface Analyzer<T, R> {
+        R analyze(File file, T content, AnalysisDeadline deadline) throws Exception;
+    }
+    
+    /**
+     * Receives each file's outcome on the thread running the batch. Throwing aborts the
+     * batch: files not yet started are dropped and running ones are cancelled.
+     */
+    public interface Listener<R> {
+        void onResult(File file, R result) throws IOException;
+        
+        void onFailure(File file, Exception error) throws IOException;
+    }
+    
+    public BatchScheduler(FileProcessor fileProcessor) {
+        this(fileProcessor,
+            Integer.getInteger(IO_THREADS_PROPERTY, Math.max(2, Runtime.getRuntime().availableProcessors() / 2)),
+            Integer.getInteger(CPU_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+    
+    public BatchScheduler(FileProcessor fileProcessor, int ioThreads, int cpuThreads) {
+        this(fileProcessor, ioThreads, cpuThreads, MemoryBudget.shared());
+    }
+    
+    public BatchScheduler(FileProcessor fileProcessor, int ioThreads, int cpuThreads, MemoryBudget memoryBudget) {
+        if (ioThreads <= 0 || cpuThreads <= 0) {
+            throw new IllegalArgumentException("Thread counts must be positive: " + ioThreads + ", " + cpuThreads);
+        }
+        this.fileProcessor = fileProcessor;
+        this.ioThreads = ioThreads;
+        this.cpuThreads = cpuThreads;
+        this.ioPool = Executors.newFixedThreadPool(ioThreads, daemonThreads("batch-io"));
+        this.cpuPool = Executors.newFixedThreadPool(cpuThreads, daemonThreads("batch-cpu"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("batch-deadline"));
+        this.memoryBudget = memoryBudget;
+    }
+    
+    /**
+     * Orders {@code files} most expensive first. PDF page counts are probed in parallel
+     * on the I/O pool with a bounded read that does not parse the document; a file whose
+     * page count cannot be found is costed by size alone.
+     */
+    public List<ScheduledFile> plan(List<File> files) {
+        List<CompletableFuture<ScheduledFile>> probes = new ArrayList<>(files.size());
+        for (File file : files) {
+            if ("pdf".equals(extensionOf(file))) {
+                probes.add(CompletableFuture.supplyAsync(() -> schedule(file, probeMetadata(file)), ioPool));
+            } else {
+                probes.add(CompletableFuture.completedFuture(schedule(file, basicMetadata(file))));
+            }
+        }
+        
+        List<ScheduledFile> plan = new ArrayList<>(files.size());
+        for (CompletableFuture<ScheduledFile> probe : probes) {
+            plan.add(probe.join());
+        }
+        // Stable sort, so equally costed files keep their selection order
+        plan.sort(Comparator.comparingDouble(ScheduledFile::cost).reversed());
+        return plan;
+    }
+    
+    /**
+     * Extracts and analyzes every file, most expensive first, giving each the deadline
+     * {@code deadlines} returns for its name. Extraction that overruns its deadline is
+     * cancelled and reported as an {@link AnalysisTimeoutException} even if the
+     * extractor never reaches a check, so the batch always moves on.
+     */
+    public <T, R> void run(List<File> files, Function<String, AnalysisDeadline> deadlines, Extractor<T> extractor,
+                           Analyzer<T, R> analyzer, Listener<R> listener) throws IOException {
+        run(files, deadlines, extractor, analyzer, listener, new BatchProgressTracker(files));
+    }
+    
+    /**
+     * Like {@link #run(List, Function, Extractor, Analyzer, Listener)}, moving files
+     * through {@code progress} and counting each one complete just before its listener
+     * call, so a snapshot taken there includes it.
+     */
+    public <T, R> void run(List<File> files, Function<String, AnalysisDeadline> deadlines, Extractor<T> extractor,
+                           Analyzer<T, R> analyzer, Listener<R> listener, BatchProgressTracker progress) throws IOException {
+        List<ScheduledFile> plan = plan(files);
+        BlockingQueue<Completion<R>> completions = new LinkedBlockingQueue<>();
+        List<Task<R>> running = new ArrayList<>();
+        // Bounds extracted text held in memory while waiting for a CPU thread
+        int maxInFlight = ioThreads + cpuThreads;
+        int next = 0;
+        int pending = 0;
+        
+        try {
+            while (next < plan.size() || pending > 0) {
+                while (next < plan.size() && pending < maxInFlight) {
+                    FileMetadata metadata = plan.get(next).metadata();
+                    long estimate = MemoryBudget.estimate(metadata.extension(), metadata.size());
+                    // With nothing running there is nothing to release, so wait for other users of the budget
+                    MemoryBudget.Reservation reservation = pending == 0
+                        ? memoryBudget.reserve(estimate) : memoryBudget.tryReserve(estimate);
+                    if (reservation == null) {
+                        break; // Admitted once running files release their memory
+                    }
+                    Task<R> task = new Task<>(plan.get(next++).file(), reservation, completions);
+                    running.add(task);
+                    ioPool.execute(new Queued(task, () -> extract(task, deadlines, extractor, analyzer, progress)));
+                    pending++;
+                }
+                
+                Completion<R> completion = completions.take();
+                pending--;
+                running.remove(completion.task());
+                progress.fileCompleted(completion.task().bytes);
+                if (completion.error() == null) {
+                    listener.onResult(completion.task().file, completion.result());
+                } else {
+                    listener.onFailure(completion.task().file, completion.error());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        } finally {
+            for (Task<R> task : running) {
+                task.abort();
+            }
+        }
+    }
+    
+    public int getIoThreads() {
+        return ioThreads;
+    }
+    
+    public int getCpuThreads() {
+        return cpuThreads;
+    }
+    
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+    
+    @Override
+    public void close() {
+        // Work dropped from the queues never runs, so release the memory it was admitted with
+        for (Runnable dropped : ioPool.shutdownNow()) {
+            if (dropped instanceof Queued queued && queued.task().start()) {
+                queued.task().reservation.close();
+            }
+        }
+        for (Runnable dropped : cpuPool.shutdownNow()) {
+            if (dropped instanceof Queued queued) {
+                queued.task().reservation.close();
+            }
+        }
+        watchdog.shutdownNow();
+    }
+    
+    /**
+     * Estimated cost of analyzing a file, in bytes of plain text that take as long.
+     */
+    public static double estimateCost(FileMetadata metadata) {
+        return metadata.size() * formatMultiplier(metadata.extension()) + metadata.pageCount() * PAGE_COST_BYTES;
+    }
+    
+    /**
+     * Relative cost per byte of a format: parsing plus how far its text expands.
+     */
+    static double formatMultiplier(String extension) {
+        return switch (extension) {
+            case "docx" -> 8.0; // Deflated XML, several times larger once parsed
+            case "zip" -> 5.0;
+            case "pdf" -> 3.0;
+            case "html", "htm" -> 1.5;
+            default -> 1.0;
+        };
+    }
+    
+    private <T, R> void extract(Task<R> task, Function<String, AnalysisDeadline> deadlines, Extractor<T> extractor,
+                                Analyzer<T, R> analyzer, BatchProgressTracker progress) {
+        if (!task.start()) {
+            return; // Aborted before it started, which released its memory
+        }
+        if (task.outcome.isDone()) {
+            task.reservation.close();
+            return;
+        }
+        AnalysisDeadline deadline = deadlines.apply(task.file.getName());
+        task.deadline = deadline;
+        AtomicBoolean extracting = new AtomicBoolean(true);
+        ScheduledFuture<?> timer = deadline.remainingNanos() == Long.MAX_VALUE ? null
+            : watchdog.schedule(() -> {
+                if (extracting.get()) {
+                    deadline.cancel();
+                    task.outcome.completeExceptionally(deadline.timeout());
+                }
+            }, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        
+        T content = null;
+        Throwable error = null;
+        progress.extractionStarted();
+        deadline.bind();
+        try {
+            content = extractor.extract(task.file, deadline);
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            extracting.set(false);
+            deadline.unbind();
+            progress.extractionFinished();
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+        if (error == null && !task.outcome.isDone()) {
+            try {
+                // Time spent waiting for a CPU thread counts against the file limit only
+                deadline.enterStage(AnalysisDeadline.STAGE_ANALYSIS);
+            } catch (AnalysisTimeoutException e) {
+                error = e;
+            }
+        }
+        
+        if (error == null && !task.outcome.isDone()) {
+            progress.analysisQueued();
+            T extracted = content;
+            try {
+                cpuPool.execute(new Queued(task, () -> analyze(task, extracted, deadline, analyzer, progress)));
+                return; // The content and its memory now belong to the CPU pool
+            } catch (RejectedExecutionException e) {
+                // The scheduler was closed; leave the counts as if the analysis ran
+                progress.analysisStarted();
+                progress.analysisFinished();
+                error = e;
+            }
+        }
+        
+        // This thread no longer holds the document, even if the watchdog reported it long ago
+        task.reservation.close();
+        if (error != null) {
+            // Interrupted reads surface as I/O errors
+            task.outcome.completeExceptionally(deadline.isCancelled() ? deadline.timeout() : error);
+        }
+    }
+    
+    private <T, R> void analyze(Task<R> task, T content, AnalysisDeadline deadline, Analyzer<T, R> analyzer,
+                                BatchProgressTracker progress) {
+        R result = null;
+        Throwable error = null;
+        progress.analysisStarted();
+        try {
+            if (!task.outcome.isDone()) {
+                result = analyzer.analyze(task.file, content, deadline);
+            }
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            progress.analysisFinished(); // Before completing, so the delivered snapshot no longer counts it
+            task.reservation.close();
+        }
+        
+        if (error != null) {
+            task.outcome.completeExceptionally(error);
+        } else {
+            task.outcome.complete(result);
+        }
+    }
+    
+    private ScheduledFile schedule(File file, FileMetadata metadata) {
+        return new ScheduledFile(file, metadata, estimateCost(metadata));
+    }
+    
+    private static FileMetadata probeMetadata(File file) {
+        try {
+            return basicMetadata(file, FileProcessor.probePdfPageCount(file));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not probe {} for scheduling: {}", file.getName(), e.getMessage());
+            return basicMetadata(file);
+        }
+    }
+    
+    private static FileMetadata basicMetadata(File file) {
+        return basicMetadata(file, 0);
+    }
+    
+    private static FileMetadata basicMetadata(File file, int pageCount) {
+        return new FileMetadata(file.getName(), extensionOf(file), file.length(), null, file.lastModified(),
+            null, null, pageCount);
+    }
+    
+    private static String extensionOf(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private record Completion<R>(Task<R> task, R result, Exception error) {
+    }
+    
+    /**
+     * Pipeline work for a task, recognizable among what a closing pool drops.
+     */
+    private record Queued(Task<?> task, Runnable work) implements Runnable {
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+    
+    /**
+     * One file in flight. Its outcome completes exactly once, whether by the pipeline,
+     * the extraction watchdog or an abort, which queues it for delivery. Its memory is
+     * released by the worker thread that last holds the document, which after a timeout
+     * may be well after the outcome, or by an abort that comes before any worker.
+     */
+    private static class Task<R> {
+        final File file;
+        final long bytes;
+        final MemoryBudget.Reservation reservation;
+        final CompletableFuture<R> outcome = new CompletableFuture<>();
+        final AtomicBoolean started = new AtomicBoolean(false);
+        volatile AnalysisDeadline deadline;
+        
+        Task(File file, MemoryBudget.Reservation reservation, BlockingQueue<Completion<R>> completions) {
+            this.file = file;
+            this.bytes = file.length();
+            this.reservation = reservation;
+            outcome.whenComplete((result, error) -> completions.add(new Completion<>(this, result, unwrap(error))));
+        }
+        
+        /**
+         * Claims the task for an extraction worker, unless an abort got to it first.
+         */
+        boolean start() {
+            return started.compareAndSet(false, true);
+        }
+        
+        void abort() {
+            AnalysisDeadline current = deadline;
+            if (current != null) {
+                current.cancel();
+            }
+            outcome.cancel(false);
+            if (start()) {
+                reservation.close(); // No worker will ever run it
+            }
+        }
+        
+        private static Exception unwrap(Throwable error) {
+            if (error == null) {
+                return null;
+            }
+            return error instanceof Exception exception ? exception : new RuntimeException(error);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,520 @@
+package com.tokenanalyzer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.ColumnSummary;
+
+/**
+ * Analysis results stored column by column in primitive arrays. Model, extension and
+ * directory are dictionary-encoded and file names are packed as UTF-8, so a row costs
+ * about 110 bytes plus its name instead of an {@link AnalysisResult} and its strings.
+ * Sums and ranges are plain loops over one array, which the JIT vectorizes. Percentiles
+ * take a pass to histogram the column's range into fixed-width bins and a second to
+ * collect only the values in the bins holding the wanted ranks, then select exactly.
+ */
+public class ColumnarResultSet {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double[] SUMMARY_PERCENTILES = { 50, 90, 99 };
+    private static final int HISTOGRAM_BINS = 4096;
+    private static final int MIN_GROUP_BINS = 64;
+    private static final int MAX_GROUP_HISTOGRAM_CELLS = 1 << 22; // Bounds histogram memory for many groups
+    
+    public enum Column {
+        FILE_SIZE(Kind.LONG, 0),
+        PROCESSING_TIME(Kind.LONG, 1),
+        TOTAL_TOKENS(Kind.INT, 0),
+        UNIQUE_TOKENS(Kind.INT, 1),
+        TOKEN_WORD_RATIO(Kind.DOUBLE, 0),
+        AVG_TOKEN_LENGTH(Kind.DOUBLE, 1),
+        CONTENT_DENSITY(Kind.DOUBLE, 2),
+        LEXICAL_DIVERSITY(Kind.DOUBLE, 3),
+        WHITESPACE_RATIO(Kind.DOUBLE, 4),
+        FLESCH_SCORE(Kind.DOUBLE, 5),
+        COMPLEXITY_SCORE(Kind.DOUBLE, 6),
+        AVG_SENTENCE_LENGTH(Kind.DOUBLE, 7);
+        
+        private final Kind kind;
+        private final int slot;
+        
+        Column(Kind kind, int slot) {
+            this.kind = kind;
+            this.slot = slot;
+        }
+        
+        public boolean isIntegral() {
+            return kind != Kind.DOUBLE;
+        }
+    }
+    
+    public enum Grouping {
+        EXTENSION,
+        DIRECTORY,
+        MODEL
+    }
+    
+    private enum Kind {
+        LONG,
+        INT,
+        DOUBLE
+    }
+    
+    private int size = 0;
+    private long[][] longColumns = new long[2][INITIAL_CAPACITY];
+    private int[][] intColumns = new int[2][INITIAL_CAPACITY];
+    private double[][] doubleColumns = new double[8][INITIAL_CAPACITY];
+    private int[] modelIds = new int[INITIAL_CAPACITY];
+    private int[] extensionIds = new int[INITIAL_CAPACITY];
+    private int[] directoryIds = new int[INITIAL_CAPACITY];
+    private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+    private byte[] nameBytes = new byte[INITIAL_CAPACITY * 32];
+    private final Dictionary models = new Dictionary();
+    private final Dictionary extensions = new Dictionary();
+    private final Dictionary directories = new Dictionary();
+    
+    /**
+     * Appends a result, taking the directory from its file name if that is a path.
+     */
+    public synchronized void add(AnalysisResult result) {
+        String name = result.fileName() != null ? result.fileName() : "";
+        int separator = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        add(result, separator >= 0 ? name.substring(0, separator) : "", name.substring(separator + 1));
+    }
+    
+    public synchronized void add(Path path, AnalysisResult result) {
+        Path parent = path.getParent();
+        Path fileName = path.getFileName();
+        add(result, parent != null ? parent.toString() : "", fileName != null ? fileName.toString() : "");
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    public synchronized void clear() {
+        size = 0;
+        models.clear();
+        extensions.clear();
+        directories.clear();
+    }
+    
+    public synchronized String getFileName(int row) {
+        checkRow(row);
+        return new String(nameBytes, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row], StandardCharsets.UTF_8);
+    }
+    
+    public synchronized String getExtension(int row) {
+        checkRow(row);
+        return extensions.get(extensionIds[row]);
+    }
+    
+    public synchronized String getDirectory(int row) {
+        checkRow(row);
+        return directories.get(directoryIds[row]);
+    }
+    
+    public synchronized double get(Column column, int row) {
+        checkRow(row);
+        return switch (column.kind) {
+            case LONG -> longColumns[column.slot][row];
+            case INT -> intColumns[column.slot][row];
+            case DOUBLE -> doubleColumns[column.slot][row];
+        };
+    }
+    
+    /**
+     * Rebuilds the row as a record, with the file name only.
+     */
+    public synchronized AnalysisResult getResult(int row) {
+        checkRow(row);
+        double[][] d = doubleColumns;
+        return new AnalysisResult(getFileName(row), longColumns[0][row], models.get(modelIds[row]),
+            intColumns[0][row], intColumns[1][row], d[0][row], d[1][row], d[2][row], d[3][row], d[4][row],
+            d[5][row], d[6][row], d[7][row], longColumns[1][row]);
+    }
+    
+    public synchronized double sum(Column column) {
+        return switch (column.kind) {
+            case LONG -> sum(longColumns[column.slot], size);
+            case INT -> sum(intColumns[column.slot], size);
+            case DOUBLE -> sum(doubleColumns[column.slot], size);
+        };
+    }
+    
+    public synchronized double mean(Column column) {
+        return size > 0 ? sum(column) / size : 0.0;
+    }
+    
+    /**
+     * The {@code percentile}-th percentile (0-100) of {@code column}.
+     */
+    public synchronized double percentile(Column column, double percentile) {
+        if (size == 0) {
+            return 0.0;
+        }
+        double[] values = values(column);
+        return histogram(column, values).percentiles(values, null, size, new long[] { size },
+            new double[] { percentile })[0][0];
+    }
+    
+    /**
+     * Count, sum, mean, range and p50/p90/p99 of {@code column}, in two passes.
+     */
+    public synchronized ColumnSummary summarize(Column column) {
+        if (size == 0) {
+            return ColumnSummary.EMPTY;
+        }
+        double[] values = values(column);
+        double sum = sum(values, size);
+        Histogram histogram = histogram(column, values);
+        double[] percentiles = histogram.percentiles(values, null, size, new long[] { size }, SUMMARY_PERCENTILES)[0];
+        return new ColumnSummary(size, sum, sum / size, histogram.mins[0], histogram.maxs[0],
+            percentiles[0], percentiles[1], percentiles[2]);
+    }
+    
+    /**
+     * Summaries of {@code column} per extension, directory or model, largest groups first.
+     */
+    public synchronized Map<String, ColumnSummary> groupBy(Grouping grouping, Column column) {
+        Dictionary dictionary = switch (grouping) {
+            case EXTENSION -> extensions;
+            case DIRECTORY -> directories;
+            case MODEL -> models;
+        };
+        int[] ids = switch (grouping) {
+            case EXTENSION -> extensionIds;
+            case DIRECTORY -> directoryIds;
+            case MODEL -> modelIds;
+        };
+        int groups = dictionary.size();
+        if (size == 0 || groups == 0) {
+            return Map.of();
+        }
+        
+        double[] values = values(column);
+        long[] counts = new long[groups];
+        double[] sums = new double[groups];
+        double[] mins = new double[groups];
+        double[] maxs = new double[groups];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < size; i++) {
+            int group = ids[i];
+            double value = values[i];
+            counts[group]++;
+            sums[group] += value;
+            mins[group] = Math.min(mins[group], value);
+            maxs[group] = Math.max(maxs[group], value);
+        }
+        
+        int bins = Math.max(MIN_GROUP_BINS, Math.min(HISTOGRAM_BINS, MAX_GROUP_HISTOGRAM_CELLS / groups));
+        Histogram histogram = new Histogram(groups, bins, column.isIntegral());
+        for (int group = 0; group < groups; group++) {
+            if (counts[group] > 0) {
+                histogram.setRange(group, mins[group], maxs[group]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            histogram.record(ids[i], values[i]);
+        }
+        
+        Integer[] order = new Integer[groups];
+        for (int group = 0; group < groups; group++) {
+            order[group] = group;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+        double[][] percentiles = histogram.percentiles(values, ids, size, counts, SUMMARY_PERCENTILES);
+        Map<String, ColumnSummary> summaries = new LinkedHashMap<>();
+        for (int group : order) {
+            long count = counts[group];
+            if (count == 0) {
+                break;
+            }
+            summaries.put(dictionary.get(group), new ColumnSummary(count, sums[group], sums[group] / count,
+                mins[group], maxs[group], percentiles[group][0], percentiles[group][1], percentiles[group][2]));
+        }
+        return summaries;
+    }
+    
+    /**
+     * Approximate heap held by the columns, names and dictionaries.
+     */
+    public synchronized long getMemoryBytes() {
+        long capacity = modelIds.length;
+        long bytes = capacity * (2 * Long.BYTES + 2 * Integer.BYTES + 8 * Double.BYTES + 4 * Integer.BYTES);
+        return bytes + nameBytes.length + models.memoryBytes() + extensions.memoryBytes() + directories.memoryBytes();
+    }
+    
+    private void add(AnalysisResult result, String directory, String fileName) {
+        ensureCapacity(size + 1);
+        longColumns[0][size] = result.fileSize();
+        longColumns[1][size] = result.processingTime();
+        intColumns[0][size] = result.totalTokens();
+        intColumns[1][size] = result.uniqueTokens();
+        doubleColumns[0][size] = result.tokenWordRatio();
+        doubleColumns[1][size] = result.avgTokenLength();
+        doubleColumns[2][size] = result.contentDensity();
+        doubleColumns[3][size] = result.lexicalDiversity();
+        doubleColumns[4][size] = result.whitespaceRatio();
+        doubleColumns[5][size] = result.fleschScore();
+        doubleColumns[6][size] = result.complexityScore();
+        doubleColumns[7][size] = result.avgSentenceLength();
+        modelIds[size] = models.idFor(result.model() != null ? result.model() : "");
+        extensionIds[size] = extensions.idFor(extensionOf(fileName));
+        directoryIds[size] = directories.idFor(directory);
+        
+        byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        int start = nameOffsets[size];
+        if (start + name.length > nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(start + name.length, nameBytes.length + (nameBytes.length >> 1)));
+        }
+        System.arraycopy(name, 0, nameBytes, start, name.length);
+        nameOffsets[size + 1] = start + name.length;
+        size++;
+    }
+    
+    private void ensureCapacity(int required) {
+        int capacity = modelIds.length;
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity + (capacity >> 1));
+        for (int i = 0; i < longColumns.length; i++) {
+            longColumns[i] = Arrays.copyOf(longColumns[i], newCapacity);
+        }
+        for (int i = 0; i < intColumns.length; i++) {
+            intColumns[i] = Arrays.copyOf(intColumns[i], newCapacity);
+        }
+        for (int i = 0; i < doubleColumns.length; i++) {
+            doubleColumns[i] = Arrays.copyOf(doubleColumns[i], newCapacity);
+        }
+        modelIds = Arrays.copyOf(modelIds, newCapacity);
+        extensionIds = Arrays.copyOf(extensionIds, newCapacity);
+        directoryIds = Arrays.copyOf(directoryIds, newCapacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity + 1);
+    }
+    
+    private Histogram histogram(Column column, double[] values) {
+        double min = values[0];
+        double max = values[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        Histogram histogram = new Histogram(1, HISTOGRAM_BINS, column.isIntegral());
+        histogram.setRange(0, min, max);
+        for (int i = 0; i < size; i++) {
+            histogram.record(0, values[i]);
+        }
+        return histogram;
+    }
+    
+    /**
+     * The column as doubles: the array itself for double columns, a widened copy otherwise.
+     */
+    private double[] values(Column column) {
+        return switch (column.kind) {
+            case DOUBLE -> doubleColumns[column.slot];
+            case LONG -> {
+                long[] source = longColumns[column.slot];
+                double[] values = new double[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = source[i];
+                }
+                yield values;
+            }
+            case INT -> {
+                int[] source = intColumns[column.slot];
+                double[] values = new double[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = source[i];
+                }
+                yield values;
+            }
+        };
+    }
+    
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + size);
+        }
+    }
+    
+    private static double sum(long[] values, int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+    
+    private static double sum(int[] values, int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+    
+    private static double sum(double[] values, int size) {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+    
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+    
+    /**
+     * Fixed-width histograms, one per group, each spanning its group's range. Integer
+     * columns whose range fits the bins get one bin per value, which makes them exact.
+     */
+    private static class Histogram {
+        private final int bins;
+        private final boolean integral;
+        private final int[] counts;
+        private final double[] mins;
+        private final double[] maxs;
+        private final double[] widths;
+        
+        Histogram(int groups, int bins, boolean integral) {
+            this.bins = bins;
+            this.integral = integral;
+            this.counts = new int[groups * bins];
+            this.mins = new double[groups];
+            this.maxs = new double[groups];
+            this.widths = new double[groups];
+        }
+        
+        void setRange(int group, double min, double max) {
+            mins[group] = min;
+            maxs[group] = max;
+            double range = max - min;
+            if (integral && range < bins) {
+                widths[group] = 1;
+            } else {
+                widths[group] = range > 0 ? range / bins : 1;
+            }
+        }
+        
+        void record(int group, double value) {
+            counts[group * bins + binOf(group, value)]++;
+        }
+        
+        int binOf(int group, double value) {
+            int bin = (int) ((value - mins[group]) / widths[group]);
+            return Math.min(bins - 1, Math.max(0, bin));
+        }
+        
+        /**
+         * Exact nearest-rank percentiles per group. The histogram locates the bin holding
+         * each rank; one more pass over {@code values} collects just those bins' values,
+         * and the rank is selected among them. Integer bins of width one need no pass.
+         */
+        double[][] percentiles(double[] values, int[] ids, int size, long[] groupCounts, double[] percentiles) {
+            int groups = mins.length;
+            int k = percentiles.length;
+            double[][] results = new double[groups][k];
+            int[] targetBins = new int[groups * k];
+            int[] ranksInBin = new int[groups * k];
+            double[][] candidates = new double[groups * k][];
+            int[] filled = new int[groups * k];
+            boolean collect = false;
+            
+            for (int group = 0; group < groups; group++) {
+                for (int j = 0; j < k; j++) {
+                    int target = group * k + j;
+                    targetBins[target] = -1;
+                    long count = groupCounts[group];
+                    if (count == 0) {
+                        continue;
+                    }
+                    long rank = Math.max(1, (long) Math.ceil(percentiles[j] / 100 * count));
+                    int offset = group * bins;
+                    long seen = 0;
+                    int bin = 0;
+                    while (bin < bins - 1 && seen + counts[offset + bin] < rank) {
+                        seen += counts[offset + bin++];
+                    }
+                    if (integral && widths[group] == 1) {
+                        results[group][j] = mins[group] + bin;
+                    } else {
+                        targetBins[target] = bin;
+                        ranksInBin[target] = (int) (rank - seen);
+                        candidates[target] = new double[counts[offset + bin]];
+                        collect = true;
+                    }
+                }
+            }
+            if (!collect) {
+                return results;
+            }
+            
+            for (int i = 0; i < size; i++) {
+                int group = ids != null ? ids[i] : 0;
+                int bin = binOf(group, values[i]);
+                for (int j = 0; j < k; j++) {
+                    int target = group * k + j;
+                    if (targetBins[target] == bin) {
+                        candidates[target][filled[target]++] = values[i];
+                    }
+                }
+            }
+            for (int target = 0; target < targetBins.length; target++) {
+                if (targetBins[target] >= 0) {
+                    Arrays.sort(candidates[target]);
+                    results[target / k][target % k] = candidates[target][ranksInBin[target] - 1];
+                }
+            }
+            return results;
+        }
+    }
+    
+    private static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        
+        int idFor(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+        
+        String get(int id) {
+            return values.get(id);
+        }
+        
+        int size() {
+            return values.size();
+        }
+        
+        void clear() {
+            ids.clear();
+            values.clear();
+        }
+        
+        long memoryBytes() {
+            long bytes = 0;
+            for (String value : values) {
+                bytes += 96 + value.length(); // String, map entry and list slot
+            }
+            return bytes;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,418 @@
+package com.tokenanalyzer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.CorpusSummary;
+
+/**
+ * Keeps a directory under continuous analysis. File system events are debounced
+ * per path, so a burst of writes to the same file results in a single re-analysis,
+ * and corpus totals are adjusted by the difference instead of being recomputed.
+ */
+public class DirectoryWatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+    private static final long DEFAULT_DEBOUNCE_MS = 500;
+    
+    private final FileProcessor fileProcessor;
+    private final TokenEngine tokenEngine;
+    private final EncodingType encodingType;
+    private final Path rootDirectory;
+    private final boolean recursive;
+    private final long debounceNanos;
+    private final CorpusListener listener;
+    
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, Long> pendingChanges = new ConcurrentHashMap<>();
+    private final Map<Path, TrackedFile> trackedFiles = new ConcurrentHashMap<>();
+    private final Set<Path> failedFiles = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    // Changes wait here for memory, so they must not block the common pool
+    private final ExecutorService analysisPool;
+    private final Thread eventThread;
+    
+    // Running corpus aggregates, guarded by this
+    private long totalTokens;
+    private double totalReadability;
+    
+    public DirectoryWatcher(FileProcessor fileProcessor, TokenEngine tokenEngine, EncodingType encodingType,
+                            File directory, boolean recursive, CorpusListener listener) throws IOException {
+        this(fileProcessor, tokenEngine, encodingType, directory, recursive, DEFAULT_DEBOUNCE_MS, listener);
+    }
+    
+    public DirectoryWatcher(FileProcessor fileProcessor, TokenEngine tokenEngine, EncodingType encodingType,
+                            File directory, boolean recursive, long debounceMillis,
+                            CorpusListener listener) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IOException("Not a directory: " + directory.getAbsolutePath());
+        }
+        
+        this.fileProcessor = fileProcessor;
+        this.tokenEngine = tokenEngine;
+        this.encodingType = encodingType;
+        this.rootDirectory = directory.toPath().toAbsolutePath().normalize();
+        this.recursive = recursive;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.listener = listener;
+        
+        this.watchService = rootDirectory.getFileSystem().newWatchService();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "directory-watcher-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger analysisThreads = new AtomicInteger();
+        this.analysisPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "directory-watcher-analysis-" + analysisThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.eventThread = new Thread(this::pollEvents, "directory-watcher-events");
+        this.eventThread.setDaemon(true);
+    }
+    
+    public void start() throws IOException {
+        registerDirectory(rootDirectory);
+        
+        // Initial scan goes through the same debounce queue as later changes, already due.
+        // nanoTime may be negative, so due means a full debounce window before now, not zero
+        long due = System.nanoTime() - debounceNanos;
+        for (File file : fileProcessor.findFiles(rootDirectory.toFile(), recursive)) {
+            pendingChanges.put(file.toPath().toAbsolutePath().normalize(), due);
+        }
+        
+        eventThread.start();
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(debounceNanos) / 2);
+        scheduler.scheduleWithFixedDelay(this::flushPendingChanges, 0, period, TimeUnit.MILLISECONDS);
+        
+        logger.info("Watching {} ({}), {} files queued for initial analysis",
+            rootDirectory, recursive ? "recursive" : "top level only", pendingChanges.size());
+    }
+    
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+    
+    public Map<Path, AnalysisResult> getResults() {
+        Map<Path, AnalysisResult> results = new ConcurrentHashMap<>();
+        trackedFiles.forEach((path, tracked) -> results.put(path, tracked.result()));
+        return results;
+    }
+    
+    public synchronized CorpusSummary getSummary() {
+        int fileCount = trackedFiles.size();
+        return new CorpusSummary(
+            fileCount,
+            failedFiles.size(),
+            totalTokens,
+            fileCount > 0 ? (double) totalTokens / fileCount : 0,
+            fileCount > 0 ? totalReadability / fileCount : 0
+        );
+    }
+    
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing watch service for {}: {}", rootDirectory, e.getMessage());
+        }
+        scheduler.shutdownNow();
+        analysisPool.shutdownNow();
+        logger.info("Stopped watching {}", rootDirectory);
+    }
+    
+    private void registerDirectory(Path directory) throws IOException {
+        if (!recursive) {
+            watchedDirectories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+            return;
+        }
+        
+        try (Stream<Path> tree = Files.walk(directory)) {
+            for (Path dir : tree.filter(Files::isDirectory).toList()) {
+                watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+            }
+        }
+    }
+    
+    private void pollEvents() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        logger.warn("Watch events overflowed for {}, rescanning", rootDirectory);
+                        scheduleRescan();
+                        continue;
+                    }
+                    if (directory == null) {
+                        continue;
+                    }
+                    
+                    Path changed = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+                    if (event.kind() == ENTRY_CREATE && recursive && Files.isDirectory(changed)) {
+                        handleNewDirectory(changed);
+                    } else {
+                        pendingChanges.put(changed, System.nanoTime());
+                    }
+                }
+                
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service closed for {}", rootDirectory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void handleNewDirectory(Path directory) {
+        try {
+            registerDirectory(directory);
+            // Files may have been written before the directory was registered
+            for (File file : fileProcessor.findFiles(directory.toFile(), true)) {
+                pendingChanges.put(file.toPath().toAbsolutePath().normalize(), System.nanoTime());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to watch new directory {}: {}", directory, e.getMessage());
+        }
+    }
+    
+    private void scheduleRescan() {
+        long now = System.nanoTime();
+        Set<Path> present = new HashSet<>();
+        for (File file : fileProcessor.findFiles(rootDirectory.toFile(), recursive)) {
+            present.add(file.toPath().toAbsolutePath().normalize());
+        }
+        present.forEach(path -> pendingChanges.put(path, now));
+        
+        // Anything we track that is gone now gets removed on the next flush
+        trackedFiles.keySet().stream()
+            .filter(path -> !present.contains(path))
+            .forEach(path -> pendingChanges.put(path, now));
+        failedFiles.stream()
+            .filter(path -> !present.contains(path))
+            .forEach(path -> pendingChanges.put(path, now));
+    }
+    
+    private void flushPendingChanges() {
+        try {
+            long now = System.nanoTime();
+            List<Path> ready = new ArrayList<>();
+            
+            // Only take paths that have been quiet for the whole debounce window
+            pendingChanges.forEach((path, lastEvent) -> {
+                if (now - lastEvent >= debounceNanos && pendingChanges.remove(path, lastEvent)) {
+                    ready.add(path);
+                }
+            });
+            
+            if (ready.isEmpty()) {
+                return;
+            }
+            
+            logger.debug("Applying {} coalesced changes under {}", ready.size(), rootDirectory);
+            analysisPool.invokeAll(ready.stream()
+                .map(path -> Executors.callable(() -> applyChange(path)))
+                .toList());
+                
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Closing
+        } catch (Exception e) {
+            logger.error("Error applying changes under {}", rootDirectory, e);
+        }
+    }
+    
+    private void applyChange(Path path) {
+        File file = path.toFile();
+        
+        if (!file.isFile()) {
+            if (Files.isDirectory(path)) {
+                return;
+            }
+            // The path itself or a whole directory was deleted
+            removeUnder(path);
+            return;
+        }
+        
+        if (!fileProcessor.isSupported(path)) {
+            return;
+        }
+        
+        TrackedFile previous = trackedFiles.get(path);
+        if (previous != null && previous.lastModified() == file.lastModified() && previous.size() == file.length()) {
+            return; // Touched but unchanged
+        }
+        
+        String name = rootDirectory.relativize(path).toString();
+        MemoryBudget.Reservation reservation = null;
+        try {
+            reservation = MemoryBudget.shared().reserve(MemoryBudget.estimate(file));
+            // Started once admitted, so time spent waiting for memory does not count against the file
+            AnalysisDeadline deadline = tokenEngine.newDeadline(name);
+            String content = extractWithin(file, deadline);
+            AnalysisResult result = tokenEngine.analyzeDocument(name, file.length(), content, encodingType, null,
+                deadline).result();
+            reservation.close(); // The document is done with, however long the listener takes
+            
+            CorpusSummary summary;
+            synchronized (this) {
+                TrackedFile replaced = trackedFiles.put(path, new TrackedFile(result, file.lastModified(), file.length()));
+                failedFiles.remove(path);
+                if (replaced != null) {
+                    subtract(replaced.result());
+                }
+                add(result);
+                summary = getSummary();
+            }
+            
+            notifyListener(new CorpusUpdate(path, UpdateType.ANALYZED, result, null, summary));
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Closed while waiting for memory
+        } catch (Exception e) {
+            logger.error("Error analyzing watched file {}: {}", path, e.getMessage());
+            
+            CorpusSummary summary;
+            synchronized (this) {
+                TrackedFile replaced = trackedFiles.remove(path);
+                if (replaced != null) {
+                    subtract(replaced.result());
+                }
+                failedFiles.add(path);
+                summary = getSummary();
+            }
+            
+            notifyListener(new CorpusUpdate(path, UpdateType.FAILED, null, e.getMessage(), summary));
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
+        }
+    }
+    
+    /**
+     * Extracts under {@code deadline}, cancelling it when it passes so an extractor that
+     * never reaches a check is interrupted and later changes are not held up.
+     */
+    private String extractWithin(File file, AnalysisDeadline deadline) throws IOException {
+        CompletableFuture<Void> timer = deadline.remainingNanos() == Long.MAX_VALUE ? null
+            : CompletableFuture.runAsync(deadline::cancel,
+                CompletableFuture.delayedExecutor(deadline.remainingNanos(), TimeUnit.NANOSECONDS));
+        deadline.bind();
+        try {
+            return fileProcessor.extractText(file, deadline);
+        } catch (IOException e) {
+            if (deadline.isCancelled()) {
+                throw deadline.timeout(); // Interrupted reads surface as I/O errors
+            }
+            throw e;
+        } finally {
+            deadline.unbind();
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+    
+    private void removeUnder(Path path) {
+        List<Path> removed = new ArrayList<>();
+        CorpusSummary summary;
+        
+        synchronized (this) {
+            for (Path tracked : List.copyOf(trackedFiles.keySet())) {
+                if (tracked.startsWith(path)) {
+                    subtract(trackedFiles.remove(tracked).result());
+                    removed.add(tracked);
+                }
+            }
+            for (Path failed : List.copyOf(failedFiles)) {
+                if (failed.startsWith(path)) {
+                    failedFiles.remove(failed);
+                    removed.add(failed);
+                }
+            }
+            summary = getSummary();
+        }
+        
+        for (Path file : removed) {
+            notifyListener(new CorpusUpdate(file, UpdateType.REMOVED, null, null, summary));
+        }
+    }
+    
+    private void add(AnalysisResult result) {
+        totalTokens += result.totalTokens();
+        totalReadability += result.fleschScore();
+    }
+    
+    private void subtract(AnalysisResult result) {
+        totalTokens -= result.totalTokens();
+        totalReadability -= result.fleschScore();
+    }
+    
+    private void notifyListener(CorpusUpdate update) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onCorpusChanged(update);
+        } catch (Exception e) {
+            logger.error("Corpus listener failed for {}", update.file(), e);
+        }
+    }
+    
+    private record TrackedFile(AnalysisResult result, long lastModified, long size) {}
+    
+    public enum UpdateType {
+        ANALYZED,
+        REMOVED,
+        FAILED
+    }
+    
+    public record CorpusUpdate(
+        Path file,
+        UpdateType type,
+        AnalysisResult result,
+        String error,
+        CorpusSummary summary
+    ) {}
+    
+    @FunctionalInterface
+    public interface CorpusListener {
+        void onCorpusChanged(CorpusUpdate update);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.tokenanalyzer;
+
+import com.tokenanalyzer.models.DuplicateCluster;
+import com.tokenanalyzer.utils.HyperLogLog;
+import com.tokenanalyzer.utils.LongLongHashMap;
+import com.tokenanalyzer.utils.MinHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups near-duplicate documents of one batch by MinHash signature. Signatures are
+ * split into LSH bands, so each new document is only compared, once each, with the
+ * representatives sharing at least one band rather than with every earlier document.
+ * A document joins the most similar representative at or above the Jaccard threshold,
+ * and otherwise starts a new cluster. Buckets and signatures live in primitive arrays.
+ */
+public class DuplicateDetector {
+    private static final double MIN_RECALL = 0.99;
+    
+    private final double threshold;
+    private final boolean skipDuplicates;
+    private final int rows;
+    private final int bands;
+    private final List<String> names = new ArrayList<>();
+    // Representatives in order: document id, flat signatures and the document last scored against each
+    private int representatives = 0;
+    private int[] representativeIds = new int[16];
+    private int[] signatures = new int[16 * MinHash.SIGNATURE_SIZE];
+    private int[] scoredFor = new int[16];
+    // LSH buckets as linked lists: band key -> first entry + 1, entry -> next entry + 1 and representative
+    private final LongLongHashMap bucketHeads = new LongLongHashMap();
+    private int[] entryNext = new int[64];
+    private int[] entryRepresentative = new int[64];
+    private int entries = 0;
+    
+    public DuplicateDetector(double threshold, boolean skipDuplicates) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Similarity threshold must be in (0, 1]: " + threshold);
+        }
+        this.threshold = threshold;
+        this.skipDuplicates = skipDuplicates;
+        
+        // Widest bands that still find a pair right at the threshold with 99% probability,
+        // 1 - (1 - t^r)^b; wider bands mean fewer false candidates to verify
+        int chosen = 1;
+        for (int r = 2; r <= MinHash.SIGNATURE_SIZE; r *= 2) {
+            double found = 1 - Math.pow(1 - Math.pow(threshold, r), MinHash.SIGNATURE_SIZE / r);
+            if (found >= MIN_RECALL) {
+                chosen = r;
+            }
+        }
+        this.rows = chosen;
+        this.bands = MinHash.SIGNATURE_SIZE / chosen;
+    }
+    
+    /**
+     * Assigns {@code name} to a cluster. A {@code null} signature (an empty document)
+     * is never treated as a duplicate.
+     */
+    public synchronized DuplicateCluster assign(String name, int[] signature) {
+        int id = names.size();
+        names.add(name);
+        if (signature == null) {
+            return new DuplicateCluster(id, name, 1.0, false, false);
+        }
+        
+        long[] keys = new long[bands];
+        int best = -1;
+        double bestSimilarity = 0;
+        for (int band = 0; band < bands; band++) {
+            keys[band] = bandKey(signature, band);
+            for (int entry = (int) bucketHeads.get(keys[band]) - 1; entry >= 0; entry = entryNext[entry] - 1) {
+                // A representative sharing several bands is scored once
+                int candidate = entryRepresentative[entry];
+                if (scoredFor[candidate] == id + 1) {
+                    continue;
+                }
+                scoredFor[candidate] = id + 1;
+                double similarity = similarity(signature, candidate);
+                if (similarity >= threshold && similarity > bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        
+        if (best >= 0) {
+            // Only representatives are indexed, so clusters never drift from their first document
+            int bestId = representativeIds[best];
+            return new DuplicateCluster(bestId, names.get(bestId), bestSimilarity, true, skipDuplicates);
+        }
+        int representative = addRepresentative(id, signature);
+        for (int band = 0; band < bands; band++) {
+            addEntry(keys[band], representative);
+        }
+        return new DuplicateCluster(id, name, 1.0, false, false);
+    }
+    
+    public double getThreshold() {
+        return threshold;
+    }
+    
+    public boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+    
+    private int addRepresentative(int id, int[] signature) {
+        if (representatives == representativeIds.length) {
+            int capacity = representatives * 2;
+            representativeIds = Arrays.copyOf(representativeIds, capacity);
+            scoredFor = Arrays.copyOf(scoredFor, capacity);
+            signatures = Arrays.copyOf(signatures, capacity * MinHash.SIGNATURE_SIZE);
+        }
+        representativeIds[representatives] = id;
+        System.arraycopy(signature, 0, signatures, representatives * MinHash.SIGNATURE_SIZE, MinHash.SIGNATURE_SIZE);
+        return representatives++;
+    }
+    
+    private void addEntry(long key, int representative) {
+        if (entries == entryNext.length) {
+            entryNext = Arrays.copyOf(entryNext, entries * 2);
+            entryRepresentative = Arrays.copyOf(entryRepresentative, entries * 2);
+        }
+        entryRepresentative[entries] = representative;
+        entryNext[entries] = (int) bucketHeads.put(key, entries + 1);
+        entries++;
+    }
+    
+    private double similarity(int[] signature, int representative) {
+        // MinHash.similarity over the representative's slice of the flat store
+        int offset = representative * MinHash.SIGNATURE_SIZE;
+        int equal = 0;
+        for (int k = 0; k < MinHash.SIGNATURE_SIZE; k++) {
+            if (signature[k] == signatures[offset + k]) {
+                equal++;
+            }
+        }
+        return (double) equal / MinHash.SIGNATURE_SIZE;
+    }
+    
+    private long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            hash = HyperLogLog.mix(hash * 31 + signature[i]);
+        }
+        return hash;
+    }
+}
\ No newline at end of file
@@ -4,67 +4,146 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
+import com.tokenanalyzer.metrics.ExtractionEvent;
+import com.tokenanalyzer.metrics.PerformanceMetrics;
 import com.tokenanalyzer.models.FileMetadata;
 import com.tokenanalyzer.models.FormatMetadata;
 import com.tokenanalyzer.models.ProcessedFile;
+import com.tokenanalyzer.models.SectionedText;
+import com.tokenanalyzer.models.TextSection;
 
+/**
+ * Extracts text and metadata from supported files. Stateless, so one instance can
+ * serve any number of threads; each call opens and closes its own documents.
+ */
 public class FileProcessor {
     private static final Logger logger = LoggerFactory.getLogger(FileProcessor.class);
     private static final int MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB limit
+    private static final int PDF_PROBE_BYTES = 64 * 1024; // Read from each end of a PDF to find its page count
+    private static final Pattern PDF_OBJECT = Pattern.compile("\\d+\\s+\\d+\\s+obj\\b(.*?)\\bendobj", Pattern.DOTALL);
+    private static final Pattern PDF_LINEARIZED_PAGES = Pattern.compile("/Linearized\\b.*?/N\\s+(\\d+)", Pattern.DOTALL);
+    private static final Pattern PDF_PAGE_TREE = Pattern.compile("/Type\\s*/Pages\\b");
+    private static final Pattern PDF_PAGE_COUNT = Pattern.compile("/Count\\s+(\\d+)");
+    
+    private final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
     
     public CompletableFuture<String> processFile(Path filePath) {
+        return processFile(filePath, AnalysisDeadline.unlimited(filePath.getFileName().toString()));
+    }
+    
+    /**
+     * Extracts text under {@code deadline}. The extracting thread is bound to the
+     * deadline, so cancelling it interrupts reads that are stuck between checks; the
+     * future then fails with an {@link AnalysisTimeoutException}.
+     */
+    public CompletableFuture<String> processFile(Path filePath, AnalysisDeadline deadline) {
         return CompletableFuture.supplyAsync(() -> {
+            deadline.bind();
             try {
                 File file = filePath.toFile();
                 validateFile(file);
                 
-                String content = extractText(file);
+                String content = extractText(file, deadline);
                 logger.info("Successfully processed file: {} ({} characters)", 
                     filePath.getFileName(), content.length());
                 return content;
                 
             } catch (IOException | UnsupportedOperationException e) {
+                if (deadline.isCancelled()) {
+                    // Interrupted reads surface as I/O errors
+                    throw deadline.timeout();
+                }
                 logger.error("Error processing file: {}", filePath, e);
                 throw new RuntimeException("File processing failed: " + filePath, e);
+            } finally {
+                deadline.unbind();
             }
         });
     }
     
     public String extractText(File file) throws IOException {
+        return extractText(file, AnalysisDeadline.unlimited(file.getName()));
+    }
+    
+    /**
+     * Extracts text, checking {@code deadline} between pages, paragraphs and archive entries.
+     */
+    public String extractText(File file, AnalysisDeadline deadline) throws IOException {
+        return extractSections(file, deadline).text();
+    }
+    
+    public SectionedText extractSections(File file) throws IOException {
+        return extractSections(file, AnalysisDeadline.unlimited(file.getName()));
+    }
+    
+    /**
+     * Extracts text together with the boundaries of its PDF pages, or of its DOCX heading
+     * sections and tables, recorded in the same pass. Other formats are one body section.
+     */
+    public SectionedText extractSections(File file, AnalysisDeadline deadline) throws IOException {
         validateFile(file);
         
         String fileName = file.getName().toLowerCase();
         String extension = getFileExtension(fileName);
+        ExtractionEvent event = new ExtractionEvent();
+        event.begin();
+        long startTime = System.nanoTime();
         
-        return switch (extension) {
-            case "txt", "md" -> extractPlainText(file);
-            case "html", "htm" -> extractHtmlText(file);
-            case "pdf" -> extractPdfText(file);
-            case "docx" -> extractDocxText(file);
-            case "zip" -> extractZipText(file);
-            case "java", "py", "js", "css", "xml", "json" -> extractPlainText(file); // Code files
+        SectionedText sectioned = switch (extension) {
+            case "txt", "md" -> SectionedText.whole(extractPlainText(file));
+            case "html", "htm" -> SectionedText.whole(extractHtmlText(file));
+            case "pdf" -> extractPdfText(file, deadline);
+            case "docx" -> extractDocxText(file, deadline);
+            case "zip" -> SectionedText.whole(extractZipText(file, deadline));
+            case "java", "py", "js", "css", "xml", "json" -> SectionedText.whole(extractPlainText(file)); // Code files
             default -> throw new UnsupportedOperationException(
                 "Unsupported file type: " + extension);
         };
+        deadline.check();
+        String text = sectioned.text();
+        
+        metrics.recordExtraction(extension, file.length(), System.nanoTime() - startTime);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.format = extension;
+            event.bytes = file.length();
+            event.characters = text.length();
+            event.commit();
+        }
+        return sectioned;
     }
     
     public FileMetadata getMetadata(File file) throws IOException {
@@ -92,6 +171,63 @@ public class FileProcessor {
         );
     }
     
+    /**
+     * Page count of a PDF without parsing it, from the linearization dictionary at the
+     * start or the largest page tree {@code /Count} within {@value #PDF_PROBE_BYTES}
+     * bytes of either end. Reads at most twice that, whatever the file size. 0 when
+     * neither is found, as when the page tree sits in a compressed object stream.
+     */
+    public static int probePdfPageCount(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            String head = readLatin1(channel, 0, (int) Math.min(size, PDF_PROBE_BYTES));
+            
+            Matcher first = PDF_OBJECT.matcher(head);
+            if (first.find()) {
+                Matcher linearized = PDF_LINEARIZED_PAGES.matcher(first.group(1));
+                if (linearized.find()) {
+                    return parsePageCount(linearized.group(1));
+                }
+            }
+            
+            int pages = maxPageTreeCount(head);
+            if (size > PDF_PROBE_BYTES) {
+                long tailStart = Math.max(PDF_PROBE_BYTES, size - PDF_PROBE_BYTES);
+                pages = Math.max(pages, maxPageTreeCount(readLatin1(channel, tailStart, (int) (size - tailStart))));
+            }
+            return pages;
+        }
+    }
+    
+    private static int maxPageTreeCount(String text) {
+        int pages = 0;
+        Matcher object = PDF_OBJECT.matcher(text);
+        while (object.find()) {
+            String body = object.group(1);
+            if (PDF_PAGE_TREE.matcher(body).find()) {
+                Matcher count = PDF_PAGE_COUNT.matcher(body);
+                if (count.find()) {
+                    pages = Math.max(pages, parsePageCount(count.group(1)));
+                }
+            }
+        }
+        return pages;
+    }
+    
+    private static int parsePageCount(String digits) {
+        return digits.length() > 9 ? 0 : Integer.parseInt(digits); // Longer is not a real page count
+    }
+    
+    private static String readLatin1(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1);
+    }
+    
     private void validateFile(File file) throws IOException {
         if (!file.exists()) {
             throw new FileNotFoundException("File not found: " + file.getAbsolutePath());
@@ -107,7 +243,7 @@ public class FileProcessor {
         }
     }
     
-    private String getFileExtension(String fileName) {
+    static String getFileExtension(String fileName) {
         int lastDot = fileName.lastIndexOf('.');
         if (lastDot == -1) return "";
         return fileName.substring(lastDot + 1).toLowerCase();
@@ -115,7 +251,10 @@ public class FileProcessor {
     
     private String extractPlainText(File file) throws IOException {
         logger.debug("Processing plain text file: {}", file.getName());
-        return Files.readString(file.toPath());
+        long startTime = System.nanoTime();
+        String text = Files.readString(file.toPath());
+        metrics.recordStage(PerformanceMetrics.STAGE_READ, System.nanoTime() - startTime);
+        return text;
     }
     
     private String extractHtmlText(File file) throws IOException {
@@ -145,38 +284,57 @@ public class FileProcessor {
         return result.toString();
     }
     
-    private String extractPdfText(File file) throws IOException {
+    private SectionedText extractPdfText(File file, AnalysisDeadline deadline) throws IOException {
         logger.debug("Processing PDF file: {}", file.getName());
         
         try (PDDocument document = Loader.loadPDF(file)) {
-            PDFTextStripper stripper = new PDFTextStripper();
+            deadline.check();
+            StringWriter output = new StringWriter();
+            DeadlineTextStripper stripper = new DeadlineTextStripper(deadline, output.getBuffer());
             stripper.setSortByPosition(true);
             stripper.setStartPage(1);
             stripper.setEndPage(document.getNumberOfPages());
             
-            return stripper.getText(document);
+            stripper.writeText(document, output);
+            return new SectionedText(output.toString(), stripper.getPages());
         }
     }
     
-    private String extractDocxText(File file) throws IOException {
+    private SectionedText extractDocxText(File file, AnalysisDeadline deadline) throws IOException {
         logger.debug("Processing DOCX file: {}", file.getName());
         
         StringBuilder text = new StringBuilder();
+        List<TextSection> sections = new ArrayList<>();
         
         try (FileInputStream fis = new FileInputStream(file);
              XWPFDocument document = new XWPFDocument(fis)) {
             
-            // Extract paragraphs
+            // Extract paragraphs, starting a section at each heading
+            deadline.check();
+            String sectionKind = TextSection.BODY;
+            String sectionLabel = "Body";
+            int sectionStart = 0;
             for (XWPFParagraph paragraph : document.getParagraphs()) {
+                deadline.check();
                 String paragraphText = paragraph.getText();
                 if (paragraphText != null && !paragraphText.trim().isEmpty()) {
+                    if (isHeading(paragraph)) {
+                        addSection(sections, sectionKind, sectionLabel, sectionStart, text.length());
+                        sectionKind = TextSection.HEADING;
+                        sectionLabel = paragraphText.trim();
+                        sectionStart = text.length();
+                    }
                     text.append(paragraphText).append("\n\n");
                 }
             }
+            addSection(sections, sectionKind, sectionLabel, sectionStart, text.length());
             
-            // Extract tables if needed
-            document.getTables().forEach(table -> {
-                table.getRows().forEach(row -> {
+            // Extract tables, one section each
+            List<XWPFTable> tables = document.getTables();
+            for (int i = 0; i < tables.size(); i++) {
+                int tableStart = text.length();
+                tables.get(i).getRows().forEach(row -> {
+                    deadline.check();
                     row.getTableCells().forEach(cell -> {
                         String cellText = cell.getText();
                         if (cellText != null && !cellText.trim().isEmpty()) {
@@ -186,13 +344,25 @@ public class FileProcessor {
                     text.append("\n");
                 });
                 text.append("\n");
-            });
+                addSection(sections, TextSection.TABLE, "Table " + (i + 1), tableStart, text.length());
+            }
         }
         
-        return text.toString();
+        return new SectionedText(text.toString(), sections);
+    }
+    
+    private static boolean isHeading(XWPFParagraph paragraph) {
+        String style = paragraph.getStyle();
+        return style != null && (style.regionMatches(true, 0, "Heading", 0, 7) || style.equalsIgnoreCase("Title"));
+    }
+    
+    private static void addSection(List<TextSection> sections, String kind, String label, int start, int end) {
+        if (end > start) {
+            sections.add(new TextSection(kind, label, start, end));
+        }
     }
     
-    private String extractZipText(File file) throws IOException {
+    private String extractZipText(File file, AnalysisDeadline deadline) throws IOException {
         logger.debug("Processing ZIP file: {}", file.getName());
         
         StringBuilder allText = new StringBuilder();
@@ -202,6 +372,7 @@ public class FileProcessor {
             ZipEntry entry;
             
             while ((entry = zis.getNextEntry()) != null) {
+                deadline.check();
                 if (!entry.isDirectory()) {
                     String entryName = entry.getName();
                     String extension = getFileExtension(entryName);
@@ -214,7 +385,7 @@ public class FileProcessor {
                             Files.copy(zis, tempFile, StandardCopyOption.REPLACE_EXISTING);
                             
                             allText.append("\n=== File: ").append(entryName).append(" ===\n");
-                            allText.append(extractText(tempFile.toFile()));
+                            allText.append(extractText(tempFile.toFile(), deadline));
                             allText.append("\n\n");
                             
                             processedFiles.add(entryName);
@@ -244,6 +415,16 @@ public class FileProcessor {
         return isSupported(getFileExtension(fileName));
     }
     
+    /**
+     * Formats read as-is, so their file size is the UTF-8 size of the extracted text.
+     */
+    static boolean isPlainText(String extension) {
+        return switch (extension) {
+            case "txt", "md", "java", "py", "js", "css", "xml", "json" -> true;
+            default -> false;
+        };
+    }
+    
     private boolean isSupported(String extension) {
         return switch (extension) {
             case "txt", "md", "html", "htm", "pdf", "docx", "zip",
@@ -286,13 +467,24 @@ public class FileProcessor {
     }
     
     public List<ProcessedFile> batchProcess(List<File> files) {
+        return batchProcess(files, AnalysisDeadline::unlimited);
+    }
+    
+    /**
+     * Extracts each file under its own deadline from {@code deadlines}, keyed by file
+     * name. A file that runs out of time is reported and the batch moves on.
+     */
+    public List<ProcessedFile> batchProcess(List<File> files, Function<String, AnalysisDeadline> deadlines) {
         List<ProcessedFile> results = new ArrayList<>();
         
         for (File file : files) {
             try {
-                String text = extractText(file);
+                String text = extractText(file, deadlines.apply(file.getName()));
                 FileMetadata metadata = getMetadata(file);
                 results.add(new ProcessedFile(file, text, metadata, null));
+            } catch (AnalysisTimeoutException e) {
+                logger.warn("Gave up on {}: {}", file.getName(), e.getMessage());
+                results.add(new ProcessedFile(file, null, null, e.getMessage()));
             } catch (IOException | UnsupportedOperationException e) {
                 logger.error("Error processing file {}: {}", file.getName(), e.getMessage());
                 results.add(new ProcessedFile(file, null, null, e.getMessage()));
@@ -320,4 +512,56 @@ public class FileProcessor {
             }
         }
     }
+    
+    /**
+     * Checks the deadline at every page, text run and few thousand glyphs, so a single
+     * pathological page cannot hold extraction past its limit. Also records where each
+     * page's text starts and ends in {@code output}.
+     */
+    private static class DeadlineTextStripper extends PDFTextStripper {
+        private static final int GLYPHS_PER_CHECK = 4096;
+        
+        private final AnalysisDeadline deadline;
+        private final StringBuffer output;
+        private final List<TextSection> pages = new ArrayList<>();
+        private int glyphs = 0;
+        private int pageStart = 0;
+        
+        DeadlineTextStripper(AnalysisDeadline deadline, StringBuffer output) {
+            this.deadline = deadline;
+            this.output = output;
+        }
+        
+        List<TextSection> getPages() {
+            return pages;
+        }
+        
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            deadline.check();
+            super.startPage(page);
+            pageStart = output.length();
+        }
+        
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            // The writer is unbuffered, so its length is the page's end offset
+            pages.add(new TextSection(TextSection.PAGE, "Page " + getCurrentPageNo(), pageStart, output.length()));
+        }
+        
+        @Override
+        protected void processTextPosition(TextPosition text) {
+            if (++glyphs % GLYPHS_PER_CHECK == 0) {
+                deadline.check();
+            }
+            super.processTextPosition(text);
+        }
+        
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+            deadline.check();
+            super.writeString(text, textPositions);
+        }
+    }
 }
\ No newline at end of file
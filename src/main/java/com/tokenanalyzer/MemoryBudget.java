@@ -0,0 +1,134 @@
+package com.tokenanalyzer;
+
+import com.tokenanalyzer.utils.NgramCounter;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for work that holds a whole document in memory. Each file reserves
+ * its estimated peak heap use against a shared budget, by default 60% of the maximum
+ * heap, and waits in arrival order while the budget is exhausted. A file estimated
+ * above the whole budget is clamped to it, so it still runs, just alone.
+ */
+public class MemoryBudget {
+    private static final String BUDGET_PROPERTY = "tokenanalyzer.memoryBudget"; // Fraction of the maximum heap
+    private static final double DEFAULT_BUDGET_FRACTION = 0.6;
+    private static final int UNIT_BYTES = 64 * 1024; // Permit granularity, so budgets beyond 2 GB fit an int
+    private static final long BASE_FILE_BYTES = 1024 * 1024; // Parser and analysis overhead regardless of size
+    private static final long NGRAM_BYTES = NgramCounter.peakBytes(TokenEngine.DOCUMENT_NGRAM_COUNTERS);
+    
+    private static final MemoryBudget SHARED = new MemoryBudget((long) (Runtime.getRuntime().maxMemory()
+        * Double.parseDouble(System.getProperty(BUDGET_PROPERTY, String.valueOf(DEFAULT_BUDGET_FRACTION)))));
+    
+    private final Semaphore permits;
+    private final int totalUnits;
+    
+    public MemoryBudget(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + budgetBytes);
+        }
+        this.totalUnits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budgetBytes / UNIT_BYTES));
+        this.permits = new Semaphore(totalUnits, true);
+    }
+    
+    /**
+     * The budget shared by batches and the directory watcher.
+     */
+    public static MemoryBudget shared() {
+        return SHARED;
+    }
+    
+    /**
+     * Estimated peak heap use of extracting and analyzing {@code file}.
+     */
+    public static long estimate(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String extension = dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return estimate(extension, file.length());
+    }
+    
+    public static long estimate(String extension, long size) {
+        return BASE_FILE_BYTES + NGRAM_BYTES + (long) (size * memoryMultiplier(extension));
+    }
+    
+    /**
+     * Heap bytes per file byte while a document is in flight: the parsed form, the
+     * extracted text and its token IDs. N-gram tables stop growing at their capacity,
+     * which files of a few tens of kilobytes reach, so they are a fixed term instead.
+     */
+    static double memoryMultiplier(String extension) {
+        return switch (extension) {
+            case "docx" -> 24.0; // Deflated XML parsed into a full DOM
+            case "zip" -> 12.0;
+            case "html", "htm" -> 10.0;
+            case "pdf" -> 8.0;
+            default -> 4.0; // File bytes, the string and its tokens
+        };
+    }
+    
+    /**
+     * Blocks until {@code bytes} can be reserved, behind any earlier waiters.
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        int units = unitsFor(bytes);
+        permits.acquire(units);
+        return new Reservation(units);
+    }
+    
+    /**
+     * Reserves {@code bytes} if that is possible without waiting, or returns {@code null}.
+     * Honors waiters queued by {@link #reserve(long)}.
+     */
+    public Reservation tryReserve(long bytes) {
+        int units = unitsFor(bytes);
+        try {
+            return permits.tryAcquire(units, 0, TimeUnit.NANOSECONDS) ? new Reservation(units) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    public long getBudgetBytes() {
+        return (long) totalUnits * UNIT_BYTES;
+    }
+    
+    public long getAvailableBytes() {
+        return (long) permits.availablePermits() * UNIT_BYTES;
+    }
+    
+    private int unitsFor(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Reservation must not be negative: " + bytes);
+        }
+        return (int) Math.max(1, Math.min(totalUnits, (bytes + UNIT_BYTES - 1) / UNIT_BYTES));
+    }
+    
+    /**
+     * Memory held against the budget until closed. Closing more than once is harmless.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final int units;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        
+        private Reservation(int units) {
+            this.units = units;
+        }
+        
+        public long getBytes() {
+            return (long) units * UNIT_BYTES;
+        }
+        
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release(units);
+            }
+        }
+    }
+}
\ No newline at end of file
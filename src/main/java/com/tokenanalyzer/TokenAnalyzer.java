@@ -5,22 +5,34 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import jdk.jfr.Recording;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.tokenanalyzer.controllers.MainController;
+import com.tokenanalyzer.metrics.FlightRecorderProfile;
+
+import java.nio.file.Path;
+
 public class TokenAnalyzer extends Application {
     private static final Logger logger = LoggerFactory.getLogger(TokenAnalyzer.class);
     private static final String TITLE = "Token Analyzer";
     private static final int DEFAULT_WIDTH = 1200;
     private static final int DEFAULT_HEIGHT = 800;
+    private static final String JFR_PROPERTY = "tokenanalyzer.jfr";
+    
+    private Recording recording;
+    private MainController controller;
 
     @Override
     public void start(Stage primaryStage) {
         try {
             logger.info("Starting Token Analyzer application");
+            startFlightRecording();
             
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/main.fxml"));
             BorderPane root = loader.load();
+            controller = loader.getController();
             
             Scene scene = new Scene(root, DEFAULT_WIDTH, DEFAULT_HEIGHT);
             scene.getStylesheets().add(getClass().getResource("/styles/application.css").toExternalForm());
@@ -42,6 +54,26 @@ public class TokenAnalyzer extends Application {
     @Override
     public void stop() {
         logger.info("Token Analyzer application stopping");
+        if (controller != null) {
+            controller.shutdown();
+        }
+        if (recording != null) {
+            recording.stop(); // Writes the recording to its destination
+            recording.close();
+        }
+    }
+    
+    private void startFlightRecording() {
+        String destination = System.getProperty(JFR_PROPERTY);
+        if (destination == null || destination.isBlank()) {
+            return;
+        }
+        
+        try {
+            recording = FlightRecorderProfile.startRecording(Path.of(destination));
+        } catch (Exception e) {
+            logger.warn("Could not start flight recording to {}: {}", destination, e.getMessage());
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,271 @@
+package com.tokenanalyzer;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.models.TextChunk;
+import com.tokenanalyzer.utils.TokenBoundaries;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits extracted text into chunks of at most {@code maxTokens} tokens for embedding.
+ * Chunks end at paragraph, line or sentence ends where possible and fall back to word
+ * boundaries. Each sentence is encoded once and chunk counts are summed across safe
+ * token boundaries, so chunking costs about one encoding pass over the document.
+ */
+public class TokenChunker {
+    private static final double PARAGRAPH_FILL = 0.5; // Prefer a paragraph end once a chunk is half full
+    private static final int MIN_UNIT_CHARS = 4096;
+    
+    private final Encoding encoding;
+    private final EncodingType encodingType;
+    private final int maxTokens;
+    private final int overlapTokens;
+    private final int maxUnitChars;
+    
+    public TokenChunker(Encoding encoding, EncodingType encodingType, int maxTokens, int overlapTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + maxTokens);
+        }
+        if (overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Overlap must be at least 0 and below the chunk size: " + overlapTokens);
+        }
+        this.encoding = encoding;
+        this.encodingType = encodingType;
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+        // Bounds how much text is encoded at once when a document has no sentence ends
+        this.maxUnitChars = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_UNIT_CHARS, maxTokens * 8L));
+    }
+    
+    public Iterator<TextChunk> iterator(String text) {
+        return new ChunkIterator(text);
+    }
+    
+    /**
+     * Lazily chunks {@code text}; nothing past the current chunk is encoded until it is consumed.
+     */
+    public Stream<TextChunk> stream(String text) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(text),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    /**
+     * A run of text with its token count. Counts of adjacent units only add up when
+     * the position between them is a safe boundary.
+     */
+    private record Unit(int start, int end, int tokens, boolean safeEnd, boolean paragraphEnd) {
+    }
+    
+    private final class ChunkIterator implements Iterator<TextChunk> {
+        private final String text;
+        private final ArrayDeque<Unit> pendingUnits = new ArrayDeque<>();
+        private final List<Unit> current = new ArrayList<>();
+        private int position = 0;
+        private int currentTokens = 0;
+        private int carriedUnits = 0;
+        private int carriedTokens = 0;
+        private int chunkIndex = 0;
+        private TextChunk next;
+        
+        ChunkIterator(String text) {
+            this.text = text;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+        
+        @Override
+        public TextChunk next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TextChunk chunk = next;
+            next = null;
+            return chunk;
+        }
+        
+        private TextChunk computeNext() {
+            while (true) {
+                Unit unit = nextUnit();
+                if (unit == null) {
+                    return current.size() > carriedUnits ? emit(current.size()) : null;
+                }
+                
+                // Give up overlap from the previous chunk rather than emit a chunk without new content
+                while (carriedUnits > 0 && current.size() == carriedUnits
+                        && currentTokens + unit.tokens() > maxTokens) {
+                    Unit dropped = current.remove(0);
+                    currentTokens -= dropped.tokens();
+                    carriedTokens -= dropped.tokens();
+                    carriedUnits--;
+                }
+                
+                boolean fits = currentTokens + unit.tokens() <= maxTokens || current.isEmpty();
+                boolean additive = current.isEmpty() || current.get(current.size() - 1).safeEnd();
+                if (fits && additive) {
+                    current.add(unit);
+                    currentTokens += unit.tokens();
+                    continue;
+                }
+                
+                pendingUnits.addFirst(unit);
+                return emit(chooseCut());
+            }
+        }
+        
+        private int chooseCut() {
+            int threshold = (int) (maxTokens * PARAGRAPH_FILL);
+            int cut = current.size();
+            int tokens = 0;
+            for (int i = 0; i < current.size() - 1; i++) {
+                tokens += current.get(i).tokens();
+                if (i >= carriedUnits && tokens >= threshold && current.get(i).paragraphEnd()) {
+                    cut = i + 1;
+                }
+            }
+            return cut;
+        }
+        
+        private TextChunk emit(int unitCount) {
+            List<Unit> emitted = new ArrayList<>(current.subList(0, unitCount));
+            for (int i = current.size() - 1; i >= unitCount; i--) {
+                pendingUnits.addFirst(current.get(i));
+            }
+            
+            int start = emitted.get(0).start();
+            int end = emitted.get(emitted.size() - 1).end();
+            int tokens = 0;
+            for (Unit unit : emitted) {
+                tokens += unit.tokens();
+            }
+            TextChunk chunk = new TextChunk(chunkIndex++, start, end, tokens, carriedTokens, text.substring(start, end));
+            
+            // Carry whole trailing units into the next chunk as overlap, never the entire chunk
+            current.clear();
+            currentTokens = 0;
+            carriedTokens = 0;
+            int carryFrom = emitted.size();
+            while (carryFrom > 1) {
+                Unit unit = emitted.get(carryFrom - 1);
+                if (!unit.safeEnd() || currentTokens + unit.tokens() > overlapTokens) {
+                    break;
+                }
+                currentTokens += unit.tokens();
+                carryFrom--;
+            }
+            current.addAll(emitted.subList(carryFrom, emitted.size()));
+            carriedUnits = current.size();
+            carriedTokens = currentTokens;
+            
+            return chunk;
+        }
+        
+        private Unit nextUnit() {
+            if (!pendingUnits.isEmpty()) {
+                return pendingUnits.pollFirst();
+            }
+            if (position >= text.length()) {
+                return null;
+            }
+            
+            int start = position;
+            int end = findUnitEnd(start);
+            position = end;
+            
+            int tokens = encoding.countTokens(text.substring(start, end));
+            if (tokens <= maxTokens) {
+                return createUnit(start, end, tokens);
+            }
+            splitWords(start, end);
+            return pendingUnits.pollFirst();
+        }
+        
+        private int findUnitEnd(int start) {
+            int limit = (int) Math.min(text.length(), (long) start + maxUnitChars);
+            for (int i = start + 1; i < limit; i++) {
+                char previous = text.charAt(i - 1);
+                boolean sentenceEnd = text.charAt(i) == ' '
+                    && (previous == '.' || previous == '!' || previous == '?');
+                if ((sentenceEnd || previous == '\n') && TokenBoundaries.isSafe(text, i, encodingType)) {
+                    return i;
+                }
+            }
+            if (limit == text.length()) {
+                return limit;
+            }
+            
+            // No sentence end within reach, settle for the last word boundary
+            int boundary = TokenBoundaries.atOrBefore(text, limit, encodingType);
+            if (boundary > start) {
+                return boundary;
+            }
+            return Character.isHighSurrogate(text.charAt(limit - 1)) ? limit - 1 : limit;
+        }
+        
+        private void splitWords(int start, int end) {
+            int piece = start;
+            while (piece < end) {
+                int pieceEnd = Math.min(TokenBoundaries.atOrAfter(text, piece + 1, encodingType), end);
+                int tokens = encoding.countTokens(text.substring(piece, pieceEnd));
+                if (tokens <= maxTokens) {
+                    pendingUnits.addLast(createUnit(piece, pieceEnd, tokens));
+                } else {
+                    splitWithinWord(piece, pieceEnd);
+                }
+                piece = pieceEnd;
+            }
+        }
+        
+        private void splitWithinWord(int start, int end) {
+            // Last resort for runs without any safe boundary, e.g. unspaced scripts
+            int piece = start;
+            while (piece < end) {
+                String remaining = text.substring(piece, end);
+                EncodingResult encoded = encoding.encode(remaining, maxTokens);
+                int length = encoded.isTruncated() ? encoded.getLastProcessedCharacterIndex() + 1 : remaining.length();
+                length = Math.max(1, length);
+                if (length < remaining.length() && Character.isHighSurrogate(remaining.charAt(length - 1))) {
+                    length = Math.max(1, length - 1);
+                }
+                
+                int tokens = encoding.countTokens(remaining.substring(0, length));
+                while (tokens > maxTokens && length > 1) {
+                    length -= Math.max(1, length / 8);
+                    tokens = encoding.countTokens(remaining.substring(0, length));
+                }
+                pendingUnits.addLast(createUnit(piece, piece + length, tokens));
+                piece += length;
+            }
+        }
+        
+        private Unit createUnit(int start, int end, int tokens) {
+            boolean safeEnd = TokenBoundaries.isSafe(text, end, encodingType);
+            return new Unit(start, end, tokens, safeEnd, isParagraphEnd(end));
+        }
+        
+        private boolean isParagraphEnd(int end) {
+            int newlines = 0;
+            for (int i = end - 1; i >= 0 && Character.isWhitespace(text.charAt(i)); i--) {
+                if (text.charAt(i) == '\n' && ++newlines == 2) {
+                    return true;
+                }
+            }
+            return end == text.length();
+        }
+    }
+}
\ No newline at end of file
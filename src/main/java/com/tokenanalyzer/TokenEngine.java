@@ -3,9 +3,25 @@ package com.tokenanalyzer;
 import com.knuddels.jtokkit.Encodings;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
 import com.knuddels.jtokkit.api.ModelType;
 import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
+import com.tokenanalyzer.export.ResultExporter;
+import com.tokenanalyzer.metrics.AnalysisStageEvent;
+import com.tokenanalyzer.metrics.PerformanceMetrics;
+import com.tokenanalyzer.metrics.TokenizationEvent;
 import com.tokenanalyzer.models.*;
+import com.tokenanalyzer.store.ResultStore;
+import com.tokenanalyzer.store.TokenArchive;
+import com.tokenanalyzer.utils.HeavyHitters;
+import com.tokenanalyzer.utils.HyperLogLog;
+import com.tokenanalyzer.utils.LongHashSet;
+import com.tokenanalyzer.utils.LongLongHashMap;
+import com.tokenanalyzer.utils.MinHash;
+import com.tokenanalyzer.utils.NgramCounter;
+import com.tokenanalyzer.utils.SyllableCounter;
+import com.tokenanalyzer.utils.TokenBoundaries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,26 +29,73 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.text.BreakIterator;
+import java.time.Duration;
 import java.util.*;
 import com.knuddels.jtokkit.api.IntArrayList;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Encodes and analyzes text. An engine is thread-safe: per-document work keeps its
+ * state on the calling thread, and shared state is immutable, concurrent or locked.
+ * {@link #shared()} is the process-wide engine; every engine encodes with one warmed
+ * registry, so extra engines only add their own settings and caches.
+ */
 public class TokenEngine {
     private static final Logger logger = LoggerFactory.getLogger(TokenEngine.class);
+    private static final String SAMPLED_READABILITY_PROPERTY = "tokenanalyzer.sampledReadability";
+    private static final int SAMPLED_READABILITY_MIN_CHARS = 1_000_000;
+    private static final int DOCUMENT_WORD_COUNTERS = 256;
+    private static final String DUPLICATE_THRESHOLD_PROPERTY = "tokenanalyzer.duplicateThreshold";
+    private static final String SKIP_DUPLICATES_PROPERTY = "tokenanalyzer.skipDuplicates";
+    private static final double DEFAULT_DUPLICATE_THRESHOLD = 0.9;
+    private static final String ARCHIVE_TOKENS_PROPERTY = "tokenanalyzer.archiveTokens";
+    private static final String NGRAM_STATISTICS_PROPERTY = "tokenanalyzer.ngramStatistics";
+    static final int DOCUMENT_NGRAM_COUNTERS = 4096; // As many as the corpus summary keeps
+    private static final String FILE_TIMEOUT_PROPERTY = "tokenanalyzer.fileTimeout";
+    private static final String EXTRACTION_TIMEOUT_PROPERTY = "tokenanalyzer.extractionTimeout";
+    private static final String ENCODING_TIMEOUT_PROPERTY = "tokenanalyzer.encodingTimeout";
+    private static final int ENCODE_CHUNK_CHARS = 1 << 18; // Deadline checks between chunks when encoding is limited
     
     private final EncodingRegistry registry;
     private final Map<String, ModelType> modelMap;
     private final TextAnalyzer textAnalyzer;
+    private final FileProcessor fileProcessor;
+    private final TokenEstimator estimator;
+    private final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    private volatile boolean sampledReadability = Boolean.getBoolean(SAMPLED_READABILITY_PROPERTY);
+    private volatile double duplicateThreshold = Double.parseDouble(
+        System.getProperty(DUPLICATE_THRESHOLD_PROPERTY, String.valueOf(DEFAULT_DUPLICATE_THRESHOLD)));
+    private volatile boolean skipDuplicates = Boolean.getBoolean(SKIP_DUPLICATES_PROPERTY);
+    private volatile boolean archiveTokens = Boolean.getBoolean(ARCHIVE_TOKENS_PROPERTY);
+    private volatile boolean ngramStatistics = !"false".equalsIgnoreCase(System.getProperty(NGRAM_STATISTICS_PROPERTY));
+    private final Map<String, TokenArchive> tokenArchives = new HashMap<>();
+    private BatchScheduler batchScheduler;
+    private volatile Duration fileTimeout = Duration.ofSeconds(Long.getLong(FILE_TIMEOUT_PROPERTY, 120));
+    private volatile Duration extractionTimeout = Duration.ofSeconds(Long.getLong(EXTRACTION_TIMEOUT_PROPERTY, 60));
+    private volatile Duration encodingTimeout = Duration.ofSeconds(Long.getLong(ENCODING_TIMEOUT_PROPERTY, 60));
     
     public TokenEngine() {
-        this.registry = Encodings.newDefaultEncodingRegistry();
+        this.registry = SharedRegistry.INSTANCE;
         this.modelMap = initializeModelMap();
-        this.textAnalyzer = new TextAnalyzer();
+        this.textAnalyzer = new TextAnalyzer(metrics);
+        this.fileProcessor = new FileProcessor();
+        this.estimator = new TokenEstimator(registry, fileProcessor);
         logger.info("TokenEngine initialized with comprehensive analysis capabilities");
     }
     
+    /**
+     * The process-wide engine, created on first use. Its settings apply to every caller
+     * sharing it.
+     */
+    public static TokenEngine shared() {
+        return SharedEngine.INSTANCE;
+    }
+    
+    
     private Map<String, ModelType> initializeModelMap() {
         Map<String, ModelType> map = new HashMap<>();
         
@@ -57,45 +120,13 @@ public class TokenEngine {
         map.put("text-davinci-003", ModelType.TEXT_DAVINCI_003);
         map.put("text-embedding-ada-002", ModelType.TEXT_EMBEDDING_ADA_002);
         
-        return map;
+        return Map.copyOf(map);
     }
     
     public CompletableFuture<AnalysisResult> analyzeText(String text, EncodingType encodingType) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                logger.debug("Starting comprehensive text analysis with encoding: {}", encodingType);
-                long startTime = System.currentTimeMillis();
-                
-                Encoding encoding = registry.getEncoding(encodingType);
-                String modelName = getModelNameFromEncoding(encodingType);
-                
-                TokenMetrics tokenMetrics = calculateTokenMetrics(text, modelName);
-                DensityMetrics densityMetrics = textAnalyzer.calculateDensity(text);
-                ReadabilityMetrics readabilityMetrics = textAnalyzer.calculateReadability(text);
-                
-                long processingTime = System.currentTimeMillis() - startTime;
-                
-                var result = new AnalysisResult(
-                    "direct-input",
-                    text.length(),
-                    modelName,
-                    tokenMetrics.totalTokens(),
-                    tokenMetrics.uniqueTokens(),
-                    tokenMetrics.tokenWordRatio(),
-                    tokenMetrics.avgTokenLength(),
-                    densityMetrics.contentDensity(),
-                    densityMetrics.lexicalDiversity(),
-                    densityMetrics.whitespaceRatio(),
-                    readabilityMetrics.fleschScore(),
-                    readabilityMetrics.complexityScore(),
-                    readabilityMetrics.avgSentenceLength(),
-                    processingTime
-                );
-                
-                logger.debug("Analysis completed: {} tokens, {} processing time ms", 
-                    tokenMetrics.totalTokens(), processingTime);
-                return result;
-                
+                return analyzeContent("direct-input", text, encodingType);
             } catch (Exception e) {
                 logger.error("Error analyzing text", e);
                 throw new RuntimeException("Text analysis failed", e);
@@ -103,21 +134,275 @@ public class TokenEngine {
         });
     }
     
+    public AnalysisResult analyzeContent(String sourceName, String text, EncodingType encodingType) {
+        return analyzeDocument(sourceName, text, encodingType).result();
+    }
+    
+    public DocumentAnalysis analyzeDocument(String sourceName, String text, EncodingType encodingType) {
+        logger.debug("Starting comprehensive text analysis of {} with encoding: {}", sourceName, encodingType);
+        return analyzeDocument(sourceName, text.length(), text, List.of(), getModelNameFromEncoding(encodingType),
+            System.nanoTime(), null, AnalysisDeadline.unlimited(sourceName));
+    }
+    
+    /**
+     * Analyzes text extracted from a file of {@code fileSize} bytes. The exact counts
+     * also calibrate the {@link TokenEstimator} for the file's format.
+     */
+    public DocumentAnalysis analyzeDocument(String sourceName, long fileSize, String text, EncodingType encodingType) {
+        return analyzeDocument(sourceName, fileSize, text, encodingType, null);
+    }
+    
+    /**
+     * Like {@link #analyzeDocument(String, long, String, EncodingType)}, but also places the
+     * document in a near-duplicate cluster of {@code detector}'s batch. When the detector
+     * skips duplicates, a duplicate stops after encoding and only its token count is set.
+     */
+    public DocumentAnalysis analyzeDocument(String sourceName, long fileSize, String text, EncodingType encodingType,
+                                            DuplicateDetector detector) {
+        return analyzeDocument(sourceName, fileSize, text, encodingType, detector, AnalysisDeadline.unlimited(sourceName));
+    }
+    
+    /**
+     * Like {@link #analyzeDocument(String, long, String, EncodingType, DuplicateDetector)},
+     * but stops with an {@link AnalysisTimeoutException} once {@code deadline} passes.
+     * Limited encoding runs in chunks split at safe token boundaries, which gives the
+     * same tokens as a single pass.
+     */
+    public DocumentAnalysis analyzeDocument(String sourceName, long fileSize, String text, EncodingType encodingType,
+                                            DuplicateDetector detector, AnalysisDeadline deadline) {
+        return analyzeDocument(sourceName, fileSize, new SectionedText(text, List.of()), encodingType, detector,
+            deadline);
+    }
+    
+    /**
+     * Like {@link #analyzeDocument(String, long, String, EncodingType, DuplicateDetector, AnalysisDeadline)},
+     * but also counts the tokens of each extracted section. The text is encoded once, in
+     * segments cut at the section boundaries, so the counts add up to the total.
+     */
+    public DocumentAnalysis analyzeDocument(String sourceName, long fileSize, SectionedText content,
+                                            EncodingType encodingType, DuplicateDetector detector,
+                                            AnalysisDeadline deadline) {
+        String text = content.text();
+        DocumentAnalysis analysis = analyzeDocument(sourceName, fileSize, text, content.sections(),
+            getModelNameFromEncoding(encodingType), System.nanoTime(), detector, deadline);
+        if (analysis.isSkipped()) {
+            return analysis;
+        }
+        
+        estimator.calibrate(FileProcessor.getFileExtension(sourceName), encodingType, fileSize,
+            analysis.tokenMetrics().totalTokens());
+        return analysis;
+    }
+    
+    public FileProcessor getFileProcessor() {
+        return fileProcessor;
+    }
+    
+    public TokenEstimator getEstimator() {
+        return estimator;
+    }
+    
+    /**
+     * Estimates and then exactly counts {@code files}, reporting the estimate error and
+     * interval coverage. See {@link TokenEstimator#validate(List, EncodingType)}.
+     */
+    public EstimateValidation validateEstimates(List<File> files, EncodingType encodingType) {
+        return estimator.validate(files, encodingType);
+    }
+    
+    /**
+     * When enabled, readability and lexical diversity of documents over a million
+     * characters are estimated from evenly spaced samples rather than every sentence.
+     */
+    public void setSampledReadability(boolean enabled) {
+        this.sampledReadability = enabled;
+    }
+    
+    public boolean isSampledReadability() {
+        return sampledReadability;
+    }
+    
+    /**
+     * Minimum estimated Jaccard similarity of token shingles for two documents of a
+     * batch to count as near-duplicates.
+     */
+    public void setDuplicateThreshold(double threshold) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Similarity threshold must be in (0, 1]: " + threshold);
+        }
+        this.duplicateThreshold = threshold;
+    }
+    
+    public double getDuplicateThreshold() {
+        return duplicateThreshold;
+    }
+    
+    /**
+     * When enabled, batch documents that are near-duplicates of an earlier one are
+     * counted but not analyzed beyond their token count.
+     */
+    public void setSkipDuplicates(boolean enabled) {
+        this.skipDuplicates = enabled;
+    }
+    
+    public boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+    
+    /**
+     * A detector for one batch with the current threshold and skip setting.
+     */
+    public DuplicateDetector newDuplicateDetector() {
+        return new DuplicateDetector(duplicateThreshold, skipDuplicates);
+    }
+    
+    /**
+     * When enabled (the default), documents carry counts of their token bigrams and
+     * trigrams, exact up to {@value #DOCUMENT_NGRAM_COUNTERS} distinct n-grams.
+     */
+    public void setNgramStatistics(boolean enabled) {
+        this.ngramStatistics = enabled;
+    }
+    
+    public boolean isNgramStatistics() {
+        return ngramStatistics;
+    }
+    
+    /**
+     * When enabled, the token IDs of every analyzed document are appended to the
+     * {@link TokenArchive} of its encoding for later corpus queries.
+     */
+    public void setArchiveTokens(boolean enabled) {
+        this.archiveTokens = enabled;
+    }
+    
+    public boolean isArchiveTokens() {
+        return archiveTokens;
+    }
+    
+    /**
+     * The archive of {@code encodingType} under {@link TokenArchive#defaultDirectory()}, opened on first use.
+     */
+    public TokenArchive getTokenArchive(EncodingType encodingType) throws IOException {
+        return tokenArchive(registry.getEncoding(encodingType));
+    }
+    
+    /**
+     * Forces and closes the open token archives; a later analysis opens them again.
+     */
+    public void closeTokenArchives() {
+        synchronized (tokenArchives) {
+            for (TokenArchive archive : tokenArchives.values()) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close token archive of {}: {}", archive.getEncoding().getName(), e.getMessage());
+                }
+            }
+            tokenArchives.clear();
+        }
+    }
+    
+    /**
+     * Limits for each file of a batch: overall, for text extraction and for encoding.
+     * {@link Duration#ZERO} disables a limit.
+     */
+    public void setTimeouts(Duration file, Duration extraction, Duration encoding) {
+        if (file.isNegative() || extraction.isNegative() || encoding.isNegative()) {
+            throw new IllegalArgumentException("Timeouts must not be negative");
+        }
+        this.fileTimeout = file;
+        this.extractionTimeout = extraction;
+        this.encodingTimeout = encoding;
+    }
+    
+    public Duration getFileTimeout() {
+        return fileTimeout;
+    }
+    
+    public Duration getExtractionTimeout() {
+        return extractionTimeout;
+    }
+    
+    public Duration getEncodingTimeout() {
+        return encodingTimeout;
+    }
+    
+    /**
+     * A deadline for one file, starting now, with the configured limits.
+     */
+    public AnalysisDeadline newDeadline(String fileName) {
+        return new AnalysisDeadline(fileName, fileTimeout, extractionTimeout, encodingTimeout);
+    }
+    
     public AnalysisResult analyze(File file) throws IOException {
-        long startTime = System.currentTimeMillis();
+        return analyzeFile(file).result();
+    }
+    
+    private DocumentAnalysis analyzeFile(File file) throws IOException {
+        return analyzeFile(file, null);
+    }
+    
+    private DocumentAnalysis analyzeFile(File file, DuplicateDetector detector) throws IOException {
+        long startTime = System.nanoTime();
+        AnalysisDeadline deadline = newDeadline(file.getName());
         
         String content = Files.readString(file.toPath());
+        metrics.recordStage(PerformanceMetrics.STAGE_READ, System.nanoTime() - startTime);
         String modelName = "gpt-3.5-turbo"; // Default model
         
-        TokenMetrics tokenMetrics = calculateTokenMetrics(content, modelName);
-        DensityMetrics densityMetrics = textAnalyzer.calculateDensity(content);
-        ReadabilityMetrics readabilityMetrics = textAnalyzer.calculateReadability(content);
+        return analyzeDocument(file.getName(), file.length(), content, List.of(), modelName, startTime, detector,
+            deadline);
+    }
+    
+    private DocumentAnalysis analyzeDocument(String sourceName, long fileSize, String text,
+                                             List<TextSection> sections, String modelName, long startTime,
+                                             DuplicateDetector detector, AnalysisDeadline deadline) {
+        Encoding encoding = encodingFor(modelName);
+        deadline.enterStage(AnalysisDeadline.STAGE_ENCODING);
+        // Begun before encoding so the event covers it, as it does for calculateTokenMetrics(text, model)
+        TokenizationEvent event = new TokenizationEvent();
+        event.begin();
+        List<SectionTokens> sectionTokens = new ArrayList<>(sections.size());
+        IntArrayList tokens = sections.isEmpty()
+            ? encode(encoding, encodingTypeFor(modelName), text, deadline)
+            : encodeSections(encoding, encodingTypeFor(modelName), text, sections, deadline, sectionTokens);
+        deadline.enterStage(AnalysisDeadline.STAGE_ANALYSIS);
+        if (archiveTokens) {
+            archiveTokens(sourceName, text, encoding, tokens);
+        }
+        DuplicateCluster duplicate = null;
+        if (detector != null) {
+            long stageStart = System.nanoTime();
+            duplicate = detector.assign(sourceName, MinHash.signature(tokens));
+            metrics.recordStage(PerformanceMetrics.STAGE_DEDUP, System.nanoTime() - stageStart);
+            if (duplicate.skipped()) {
+                return skippedDuplicate(sourceName, fileSize, text, modelName, startTime, tokens.size(), duplicate);
+            }
+        }
         
-        long processingTime = System.currentTimeMillis() - startTime;
+        TokenMetrics tokenMetrics = calculateTokenMetrics(text, modelName, tokens, event);
+        deadline.check();
+        DensityMetrics densityMetrics;
+        ReadabilityMetrics readabilityMetrics;
+        ReadabilitySample readabilitySample = null;
+        if (sampledReadability && text.length() >= SAMPLED_READABILITY_MIN_CHARS) {
+            readabilitySample = textAnalyzer.sampleReadability(text);
+            densityMetrics = textAnalyzer.calculateDensity(text, readabilitySample);
+            readabilityMetrics = readabilitySample.toReadabilityMetrics();
+        } else {
+            densityMetrics = textAnalyzer.calculateDensity(text);
+            readabilityMetrics = textAnalyzer.calculateReadability(text);
+        }
+        deadline.check();
+        
+        long elapsedNanos = System.nanoTime() - startTime;
+        long processingTime = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        metrics.recordAnalysis(text.length(), tokenMetrics.totalTokens(), elapsedNanos);
         
-        return new AnalysisResult(
-            file.getName(),
-            file.length(),
+        var result = new AnalysisResult(
+            sourceName,
+            fileSize,
             modelName,
             tokenMetrics.totalTokens(),
             tokenMetrics.uniqueTokens(),
@@ -131,17 +416,60 @@ public class TokenEngine {
             readabilityMetrics.avgSentenceLength(),
             processingTime
         );
+        
+        logger.debug("Analysis completed: {} tokens, {} processing time ms", 
+            tokenMetrics.totalTokens(), processingTime);
+        HyperLogLog distinctWords = new HyperLogLog();
+        HeavyHitters<String> frequentWords = new HeavyHitters<>(DOCUMENT_WORD_COUNTERS);
+        textAnalyzer.sketchWords(text, distinctWords, frequentWords);
+        return new DocumentAnalysis(result, tokenMetrics, readabilitySample,
+            new DocumentSketches(sketchTokens(tokenMetrics), distinctWords, frequentWords, countNgrams(tokens)),
+            duplicate, List.copyOf(sectionTokens));
+    }
+    
+    private NgramCounter countNgrams(IntArrayList tokens) {
+        if (!ngramStatistics) {
+            return null;
+        }
+        long stageStart = System.nanoTime();
+        NgramCounter ngrams = new NgramCounter(DOCUMENT_NGRAM_COUNTERS);
+        ngrams.count(tokens);
+        metrics.recordStage(PerformanceMetrics.STAGE_NGRAMS, System.nanoTime() - stageStart);
+        return ngrams;
+    }
+    
+    private DocumentAnalysis skippedDuplicate(String sourceName, long fileSize, String text, String modelName,
+                                              long startTime, int totalTokens, DuplicateCluster duplicate) {
+        long elapsedNanos = System.nanoTime() - startTime;
+        long processingTime = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        metrics.recordAnalysis(text.length(), totalTokens, elapsedNanos);
+        logger.debug("Skipped {}: near-duplicate of {}", sourceName, duplicate.representative());
+        
+        var result = new AnalysisResult(sourceName, fileSize, modelName, totalTokens,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, processingTime);
+        return new DocumentAnalysis(result, null, null, null, duplicate);
     }
     
     public TokenMetrics calculateTokenMetrics(String text, String modelName) {
-        ModelType modelType = modelMap.getOrDefault(modelName, ModelType.GPT_3_5_TURBO);
-        Encoding encoding = registry.getEncodingForModel(modelType);
+        TokenizationEvent event = new TokenizationEvent();
+        event.begin();
+        return calculateTokenMetrics(text, modelName, null, event);
+    }
+    
+    /**
+     * Token metrics of {@code text}, encoding it unless {@code encoded} is given. The
+     * caller begins {@code event} before encoding, and it is committed here.
+     */
+    private TokenMetrics calculateTokenMetrics(String text, String modelName, IntArrayList encoded,
+                                               TokenizationEvent event) {
+        Encoding encoding = encodingFor(modelName);
         
-        // Encode text to get tokens
-        IntArrayList tokensList = encoding.encode(text);
+        // Encode text to get tokens, unless the caller already did
+        IntArrayList tokensList = encoded != null ? encoded : encode(encoding, text);
         int totalTokens = tokensList.size();
         
         // Convert to List for compatibility
+        long stageStart = System.nanoTime();
         List<Integer> tokens = tokensList.boxed();
         
         // Calculate unique tokens
@@ -153,17 +481,20 @@ public class TokenEngine {
         int wordCount = words.length;
         double tokenWordRatio = wordCount > 0 ? (double) totalTokens / wordCount : 0;
         
-        // Calculate average token length
-        double avgTokenLength = calculateAverageTokenLength(tokens, encoding);
-        
         // Token frequency distribution
         Map<Integer, Long> tokenFrequency = tokens.stream()
             .collect(Collectors.groupingBy(
                 t -> t,
                 Collectors.counting()
             ));
+        metrics.recordStage(PerformanceMetrics.STAGE_HISTOGRAM, System.nanoTime() - stageStart);
         
-        return new TokenMetrics(
+        // Calculate average token length
+        stageStart = System.nanoTime();
+        double avgTokenLength = calculateAverageTokenLength(tokens, encoding);
+        metrics.recordStage(PerformanceMetrics.STAGE_AVG_TOKEN_LENGTH, System.nanoTime() - stageStart);
+        
+        var tokenMetrics = new TokenMetrics(
             totalTokens,
             uniqueTokens,
             tokenWordRatio,
@@ -171,6 +502,133 @@ public class TokenEngine {
             tokenFrequency,
             findMostFrequentTokens(tokenFrequency, encoding, 10)
         );
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.encoding = encoding.getName();
+            event.model = modelName;
+            event.characters = text.length();
+            event.tokens = totalTokens;
+            event.commit();
+        }
+        return tokenMetrics;
+    }
+    
+    private void archiveTokens(String sourceName, String text, Encoding encoding, IntArrayList tokens) {
+        try {
+            tokenArchive(encoding).append(sourceName, ResultStore.contentHash(text), tokens);
+        } catch (IOException e) {
+            logger.warn("Could not archive tokens of {}: {}", sourceName, e.getMessage());
+        }
+    }
+    
+    private TokenArchive tokenArchive(Encoding encoding) throws IOException {
+        synchronized (tokenArchives) {
+            TokenArchive archive = tokenArchives.get(encoding.getName());
+            if (archive == null) {
+                archive = TokenArchive.open(TokenArchive.defaultDirectory(), encoding);
+                tokenArchives.put(encoding.getName(), archive);
+            }
+            return archive;
+        }
+    }
+    
+    private Encoding encodingFor(String modelName) {
+        ModelType modelType = modelMap.getOrDefault(modelName, ModelType.GPT_3_5_TURBO);
+        return registry.getEncodingForModel(modelType);
+    }
+    
+    private EncodingType encodingTypeFor(String modelName) {
+        return modelMap.getOrDefault(modelName, ModelType.GPT_3_5_TURBO).getEncodingType();
+    }
+    
+    private IntArrayList encode(Encoding encoding, EncodingType encodingType, String text, AnalysisDeadline deadline) {
+        long stageStart = System.nanoTime();
+        IntArrayList tokens = encodeChecked(encoding, encodingType, text, deadline);
+        metrics.recordStage(PerformanceMetrics.STAGE_ENCODE, System.nanoTime() - stageStart);
+        return tokens;
+    }
+    
+    /**
+     * Encodes {@code text}, checking {@code deadline} between chunks when it is limited.
+     * Records no stage time, so callers can time a whole document.
+     */
+    private IntArrayList encodeChecked(Encoding encoding, EncodingType encodingType, String text,
+                                       AnalysisDeadline deadline) {
+        if (!deadline.isLimited() || text.length() <= ENCODE_CHUNK_CHARS) {
+            IntArrayList tokens = encoding.encode(text);
+            deadline.check();
+            return tokens;
+        }
+        
+        IntArrayList tokens = new IntArrayList(text.length() / 4);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + ENCODE_CHUNK_CHARS);
+            if (end < text.length()) {
+                int boundary = TokenBoundaries.atOrBefore(text, end, encodingType);
+                if (boundary > start) {
+                    end = boundary;
+                } else {
+                    end = TokenBoundaries.atOrAfter(text, end, encodingType);
+                }
+            }
+            IntArrayList chunk = encoding.encode(text.substring(start, end));
+            for (int i = 0; i < chunk.size(); i++) {
+                tokens.add(chunk.get(i));
+            }
+            deadline.check();
+            start = end;
+        }
+        return tokens;
+    }
+    
+    /**
+     * Encodes {@code text} in segments cut at the section boundaries, each moved back to a
+     * safe token boundary, and adds each section's count to {@code sectionTokens}. The
+     * concatenated segments give the same tokens as encoding the whole text, and the
+     * document is recorded as one encode stage sample however many segments it has.
+     */
+    private IntArrayList encodeSections(Encoding encoding, EncodingType encodingType, String text,
+                                        List<TextSection> sections, AnalysisDeadline deadline,
+                                        List<SectionTokens> sectionTokens) {
+        TreeSet<Integer> boundaries = new TreeSet<>(List.of(0, text.length()));
+        for (TextSection section : sections) {
+            boundaries.add(snap(text, section.start(), encodingType));
+            boundaries.add(snap(text, section.end(), encodingType));
+        }
+        int[] cuts = boundaries.stream().mapToInt(Integer::intValue).toArray();
+        
+        // tokensBefore[i] is the token count of the text before cuts[i]
+        long stageStart = System.nanoTime();
+        IntArrayList tokens = new IntArrayList(text.length() / 4);
+        int[] tokensBefore = new int[cuts.length];
+        for (int i = 1; i < cuts.length; i++) {
+            IntArrayList segment = encodeChecked(encoding, encodingType, text.substring(cuts[i - 1], cuts[i]), deadline);
+            for (int j = 0; j < segment.size(); j++) {
+                tokens.add(segment.get(j));
+            }
+            tokensBefore[i] = tokens.size();
+        }
+        metrics.recordStage(PerformanceMetrics.STAGE_ENCODE, System.nanoTime() - stageStart);
+        
+        for (TextSection section : sections) {
+            int start = Arrays.binarySearch(cuts, snap(text, section.start(), encodingType));
+            int end = Arrays.binarySearch(cuts, snap(text, section.end(), encodingType));
+            sectionTokens.add(new SectionTokens(section, tokensBefore[end] - tokensBefore[start]));
+        }
+        return tokens;
+    }
+    
+    private static int snap(String text, int offset, EncodingType encodingType) {
+        return TokenBoundaries.atOrBefore(text, Math.max(0, Math.min(offset, text.length())), encodingType);
+    }
+    
+    private IntArrayList encode(Encoding encoding, String text) {
+        long stageStart = System.nanoTime();
+        IntArrayList tokens = encoding.encode(text);
+        metrics.recordStage(PerformanceMetrics.STAGE_ENCODE, System.nanoTime() - stageStart);
+        return tokens;
     }
     
     private double calculateAverageTokenLength(List<Integer> tokens, Encoding encoding) {
@@ -201,6 +659,20 @@ public class TokenEngine {
             .collect(Collectors.toList());
     }
     
+    public String decodeToken(EncodingType encodingType, int tokenId) {
+        IntArrayList token = new IntArrayList(1);
+        token.add(tokenId);
+        return registry.getEncoding(encodingType).decode(token);
+    }
+    
+    private static HyperLogLog sketchTokens(TokenMetrics tokenMetrics) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int tokenId : tokenMetrics.tokenFrequency().keySet()) {
+            sketch.addInt(tokenId);
+        }
+        return sketch;
+    }
+    
     public ComparisonResult compareModels(String text, String model1, String model2) {
         TokenMetrics metrics1 = calculateTokenMetrics(text, model1);
         TokenMetrics metrics2 = calculateTokenMetrics(text, model2);
@@ -231,24 +703,249 @@ public class TokenEngine {
         return union.isEmpty() ? 0 : (double) intersection.size() / union.size();
     }
     
-    public List<AnalysisResult> batchAnalyze(List<File> files, ProgressCallback callback) {
-        List<AnalysisResult> results = new ArrayList<>();
-        int total = files.size();
+    /**
+     * Longest prefix of {@code text} that fits in {@code maxTokens}, cut at a safe token
+     * boundary so no word is split. Encoding stops as soon as the budget is reached.
+     */
+    public TruncationResult truncateToBudget(String text, EncodingType encodingType, int maxTokens) {
+        validateBudget(maxTokens);
+        long startTime = System.nanoTime();
+        Encoding encoding = registry.getEncoding(encodingType);
         
-        for (int i = 0; i < total; i++) {
-            try {
-                results.add(analyze(files.get(i)));
-                if (callback != null) {
-                    callback.onProgress((i + 1) / (double) total, files.get(i).getName());
-                }
-            } catch (IOException e) {
-                logger.error("Error processing {}: {}", files.get(i).getName(), e.getMessage());
+        EncodingResult encoded = encoding.encode(text, maxTokens);
+        if (!encoded.isTruncated() && encoded.getTokens().size() <= maxTokens) {
+            metrics.recordStage(PerformanceMetrics.STAGE_TRUNCATE, System.nanoTime() - startTime);
+            return new TruncationResult(text, 0, text.length(), encoded.getTokens().size(), maxTokens, false);
+        }
+        
+        int processedEnd = encoded.getLastProcessedCharacterIndex() + 1;
+        int end = TokenBoundaries.atOrBefore(text, processedEnd, encodingType);
+        if (end == 0) {
+            end = processedEnd; // Unspaced text has no safe boundary, so trust the encoder's cut
+        }
+        int count = encoding.countTokens(text.substring(0, end));
+        // Counts are additive across safe boundaries, so stepping back only encodes the
+        // segment dropped. An unsafe encoder cut has no safe boundary before it but 0.
+        while (count > maxTokens && end > 0) {
+            int previous = TokenBoundaries.atOrBefore(text, end - 1, encodingType);
+            count = previous == 0 ? 0 : count - encoding.countTokens(text.substring(previous, end));
+            end = previous;
+        }
+        
+        metrics.recordStage(PerformanceMetrics.STAGE_TRUNCATE, System.nanoTime() - startTime);
+        return new TruncationResult(text.substring(0, end), 0, end, count, maxTokens, true);
+    }
+    
+    /**
+     * Longest suffix of {@code text} that fits in {@code maxTokens}, for keeping the most
+     * recent part of a transcript or log.
+     */
+    public TruncationResult truncateSuffixToBudget(String text, EncodingType encodingType, int maxTokens) {
+        validateBudget(maxTokens);
+        long startTime = System.nanoTime();
+        Encoding encoding = registry.getEncoding(encodingType);
+        
+        // Counts are additive across safe boundaries, so each step below only encodes
+        // the segment between the new candidate and the suffix known to fit
+        int fitStart = text.length();
+        int fitCount = 0;
+        int failStart = -1;
+        
+        // Gallop backwards with a doubling window until the budget is exceeded
+        long window = Math.max(64L, maxTokens * 4L);
+        while (fitStart > 0) {
+            int candidate = TokenBoundaries.atOrBefore(text, (int) Math.max(0, text.length() - window), encodingType);
+            window *= 2;
+            if (candidate >= fitStart) {
+                continue;
+            }
+            int count = fitCount + encoding.countTokens(text.substring(candidate, fitStart));
+            if (count > maxTokens) {
+                failStart = candidate;
+                break;
+            }
+            fitStart = candidate;
+            fitCount = count;
+        }
+        
+        // Then binary search the boundaries between the last fit and the first overflow
+        while (failStart >= 0) {
+            int middle = failStart + (fitStart - failStart) / 2;
+            int candidate = TokenBoundaries.atOrAfter(text, middle, encodingType);
+            if (candidate >= fitStart) {
+                candidate = TokenBoundaries.atOrBefore(text, middle, encodingType);
+            }
+            if (candidate <= failStart) {
+                break;
+            }
+            int count = fitCount + encoding.countTokens(text.substring(candidate, fitStart));
+            if (count > maxTokens) {
+                failStart = candidate;
+            } else {
+                fitStart = candidate;
+                fitCount = count;
             }
         }
         
+        metrics.recordStage(PerformanceMetrics.STAGE_TRUNCATE, System.nanoTime() - startTime);
+        return new TruncationResult(text.substring(fitStart), fitStart, text.length(), fitCount,
+            maxTokens, fitStart > 0);
+    }
+    
+    /**
+     * Chunks extracted text, e.g. from {@link FileProcessor#extractText}, into pieces of
+     * at most {@code maxTokens} tokens that share up to {@code overlapTokens} with the
+     * previous chunk. The stream is lazy and encodes the text once.
+     */
+    public Stream<TextChunk> chunk(String text, EncodingType encodingType, int maxTokens, int overlapTokens) {
+        return new TokenChunker(registry.getEncoding(encodingType), encodingType, maxTokens, overlapTokens).stream(text);
+    }
+    
+    private static void validateBudget(int maxTokens) {
+        if (maxTokens < 0) {
+            throw new IllegalArgumentException("Token budget must not be negative: " + maxTokens);
+        }
+    }
+    
+    /**
+     * Analyzes {@code files} on the batch scheduler, returning the successful results
+     * in the order given. Progress is reported as files complete.
+     */
+    public List<AnalysisResult> batchAnalyze(List<File> files, ProgressCallback callback) {
+        Map<File, AnalysisResult> results = new HashMap<>();
+        BatchProgressTracker progress = new BatchProgressTracker(files);
+        
+        try {
+            getBatchScheduler().run(files, this::newDeadline, this::readForBatch,
+                (file, content, deadline) -> analyzeDocument(file.getName(), file.length(), content, List.of(),
+                    "gpt-3.5-turbo", System.nanoTime(), null, deadline).result(),
+                new BatchScheduler.Listener<AnalysisResult>() {
+                    @Override
+                    public void onResult(File file, AnalysisResult result) {
+                        results.put(file, result);
+                        progress.addTokens(result.totalTokens());
+                        reportProgress(callback, progress, file);
+                    }
+                    
+                    @Override
+                    public void onFailure(File file, Exception error) {
+                        logFailure(file, error);
+                        reportProgress(callback, progress, file);
+                    }
+                }, progress);
+        } catch (IOException e) {
+            logger.error("Batch interrupted: {}", e.getMessage());
+        }
+        
+        return files.stream().map(results::get).filter(Objects::nonNull).toList();
+    }
+    
+    /**
+     * Like {@link #batchAnalyze(List, ProgressCallback)}, but collects the results into
+     * primitive columns in completion order, which suits very large batches that are
+     * summarized rather than listed.
+     */
+    public ColumnarResultSet batchAnalyzeColumns(List<File> files, ProgressCallback callback) throws IOException {
+        ColumnarResultSet results = new ColumnarResultSet();
+        BatchProgressTracker progress = new BatchProgressTracker(files);
+        
+        getBatchScheduler().run(files, this::newDeadline, this::readForBatch,
+            (file, content, deadline) -> analyzeDocument(file.getName(), file.length(), content, List.of(),
+                "gpt-3.5-turbo", System.nanoTime(), null, deadline).result(),
+            new BatchScheduler.Listener<AnalysisResult>() {
+                @Override
+                public void onResult(File file, AnalysisResult result) {
+                    results.add(file.toPath(), result);
+                    progress.addTokens(result.totalTokens());
+                    reportProgress(callback, progress, file);
+                }
+                
+                @Override
+                public void onFailure(File file, Exception error) {
+                    logFailure(file, error);
+                    reportProgress(callback, progress, file);
+                }
+            }, progress);
         return results;
     }
     
+    /**
+     * Streams every result to {@code exporter} instead of collecting them, so memory
+     * stays constant regardless of the number of files. Files run on the batch
+     * scheduler, so records arrive in completion order rather than the order given.
+     * Near-duplicates are clustered as configured; returns the number analyzed,
+     * excluding skipped duplicates.
+     */
+    public int batchAnalyze(List<File> files, ResultExporter exporter, ProgressCallback callback) throws IOException {
+        BatchProgressTracker progress = new BatchProgressTracker(files);
+        int[] analyzed = { 0 };
+        BatchAggregator aggregator = new BatchAggregator();
+        aggregator.setTokenDecoder(tokenId -> decodeToken(EncodingType.CL100K_BASE, tokenId));
+        DuplicateDetector detector = newDuplicateDetector();
+        
+        getBatchScheduler().run(files, this::newDeadline, this::readForBatch,
+            (file, content, deadline) -> analyzeDocument(file.getName(), file.length(), content, List.of(),
+                "gpt-3.5-turbo", System.nanoTime(), detector, deadline),
+            new BatchScheduler.Listener<DocumentAnalysis>() {
+                @Override
+                public void onResult(File file, DocumentAnalysis analysis) throws IOException {
+                    exporter.write(analysis);
+                    aggregator.record(analysis);
+                    if (!analysis.isSkipped()) {
+                        analyzed[0]++;
+                        progress.addTokens(analysis.result().totalTokens());
+                    }
+                    reportProgress(callback, progress, file);
+                }
+                
+                @Override
+                public void onFailure(File file, Exception error) throws IOException {
+                    logFailure(file, error);
+                    if (error instanceof AnalysisTimeoutException) {
+                        exporter.writeTimeout(file.getName(), error.getMessage());
+                    } else {
+                        exporter.writeFailure(file.getName(), error.getMessage());
+                    }
+                    aggregator.recordFailure();
+                    reportProgress(callback, progress, file);
+                }
+            }, progress);
+        
+        exporter.writeSummary(aggregator.snapshot());
+        return analyzed[0];
+    }
+    
+    /**
+     * Scheduler shared by batch runs, created on first use.
+     */
+    public synchronized BatchScheduler getBatchScheduler() {
+        if (batchScheduler == null) {
+            batchScheduler = new BatchScheduler(fileProcessor);
+        }
+        return batchScheduler;
+    }
+    
+    private String readForBatch(File file, AnalysisDeadline deadline) throws IOException {
+        long startTime = System.nanoTime();
+        String content = Files.readString(file.toPath());
+        metrics.recordStage(PerformanceMetrics.STAGE_READ, System.nanoTime() - startTime);
+        return content;
+    }
+    
+    private static void reportProgress(ProgressCallback callback, BatchProgressTracker progress, File file) {
+        if (callback != null) {
+            callback.onProgress(progress.snapshot(file.getName()));
+        }
+    }
+    
+    private static void logFailure(File file, Exception error) {
+        if (error instanceof AnalysisTimeoutException) {
+            logger.warn("Gave up on {}: {}", file.getName(), error.getMessage());
+        } else {
+            logger.error("Error processing {}: {}", file.getName(), error.getMessage());
+        }
+    }
+    
     private String getModelNameFromEncoding(EncodingType encodingType) {
         return switch (encodingType) {
             case CL100K_BASE -> "claude-sonnet-4";  // Default to Claude Sonnet 4 (best balance)
@@ -262,47 +959,402 @@ public class TokenEngine {
     @FunctionalInterface
     public interface ProgressCallback {
         void onProgress(double progress, String currentFile);
+        
+        /**
+         * Full progress with bytes, throughput, stage counts and ETA. By default reports
+         * the byte-weighted fraction to {@link #onProgress(double, String)}.
+         */
+        default void onProgress(BatchProgress progress) {
+            onProgress(progress.getFraction(), progress.currentFile());
+        }
     }
     
+    private static final class SharedRegistry {
+        // Encodes once with each encoding so the first real documents do not pay for warm-up
+        static final EncodingRegistry INSTANCE = warm(Encodings.newDefaultEncodingRegistry());
+        
+        private static EncodingRegistry warm(EncodingRegistry registry) {
+            for (EncodingType type : EncodingType.values()) {
+                registry.getEncoding(type).encode("Warm up the encoder: 123, \u00e9t\u00e9 \u4e2d\u6587!");
+            }
+            return registry;
+        }
+    }
+    
+    private static final class SharedEngine {
+        static final TokenEngine INSTANCE = new TokenEngine();
+    }
+    
+    /**
+     * Stateless apart from per-thread scratch tables, so one instance serves every thread.
+     */
     static class TextAnalyzer {
-        private static final Pattern WORD_PATTERN = Pattern.compile("\\b\\w+\\b");
         private static final Pattern SENTENCE_PATTERN = Pattern.compile("[.!?]+\\s+");
+        private static final int SAMPLE_WINDOWS = 48;
+        private static final int SAMPLE_WINDOW_CHARS = 8192;
+        private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+        // Reused across documents on each thread so distinct counting allocates only while a table grows
+        private static final ThreadLocal<LongHashSet> WORD_HASHES = ThreadLocal.withInitial(LongHashSet::new);
+        private static final ThreadLocal<LongHashSet> FOLDED_WORD_HASHES = ThreadLocal.withInitial(LongHashSet::new);
+        private static final ThreadLocal<LongLongHashMap> WORD_COUNTS = ThreadLocal.withInitial(LongLongHashMap::new);
+        private static final ThreadLocal<LongLongHashMap> WORD_SPANS = ThreadLocal.withInitial(LongLongHashMap::new);
+        
+        private final PerformanceMetrics metrics;
+        
+        TextAnalyzer(PerformanceMetrics metrics) {
+            this.metrics = metrics;
+        }
         
         public DensityMetrics calculateDensity(String text) {
+            AnalysisStageEvent event = new AnalysisStageEvent();
+            event.begin();
+            long startTime = System.nanoTime();
             int totalChars = text.length();
-            int nonWhitespace = text.replaceAll("\\s", "").length();
+            int nonWhitespace = totalChars - countRegexWhitespace(text);
             double contentDensity = totalChars > 0 ? (double) nonWhitespace / totalChars : 0;
             
-            // Calculate lexical diversity
-            List<String> words = extractWords(text.toLowerCase());
-            Set<String> uniqueWords = new HashSet<>(words);
-            double lexicalDiversity = words.isEmpty() ? 0 : 
-                (double) uniqueWords.size() / words.size();
+            // Lexical diversity over case-folded word hashes, without materializing the words
+            LongHashSet uniqueWords = FOLDED_WORD_HASHES.get();
+            uniqueWords.clear();
+            int wordCount = 0;
+            int i = 0;
+            while (i < totalChars) {
+                if (!isAsciiWordChar(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < totalChars && isAsciiWordChar(text.charAt(i))) {
+                    i++;
+                }
+                uniqueWords.add(hashWord(text, start, i, true));
+                wordCount++;
+            }
+            double lexicalDiversity = wordCount == 0 ? 0 : 
+                (double) uniqueWords.size() / wordCount;
+            uniqueWords.clear();
             
             // Whitespace ratio
             int whitespaceCount = totalChars - nonWhitespace;
             double whitespaceRatio = totalChars > 0 ? 
                 (double) whitespaceCount / totalChars : 0;
             
+            metrics.recordStage(PerformanceMetrics.STAGE_DENSITY, System.nanoTime() - startTime);
+            commitStage(event, PerformanceMetrics.STAGE_DENSITY, totalChars);
             return new DensityMetrics(contentDensity, lexicalDiversity, whitespaceRatio);
         }
         
+        /**
+         * Density with exact character ratios but the lexical diversity of a readability sample.
+         */
+        public DensityMetrics calculateDensity(String text, ReadabilitySample sample) {
+            AnalysisStageEvent event = new AnalysisStageEvent();
+            event.begin();
+            long startTime = System.nanoTime();
+            int totalChars = text.length();
+            int whitespaceCount = countRegexWhitespace(text);
+            double contentDensity = totalChars > 0 ? (double) (totalChars - whitespaceCount) / totalChars : 0;
+            double whitespaceRatio = totalChars > 0 ? (double) whitespaceCount / totalChars : 0;
+            
+            metrics.recordStage(PerformanceMetrics.STAGE_DENSITY, System.nanoTime() - startTime);
+            commitStage(event, PerformanceMetrics.STAGE_DENSITY, totalChars);
+            return new DensityMetrics(contentDensity, sample.lexicalDiversity(), whitespaceRatio);
+        }
+        
         public ReadabilityMetrics calculateReadability(String text) {
-            List<String> words = extractWords(text);
+            AnalysisStageEvent event = new AnalysisStageEvent();
+            event.begin();
+            long startTime = System.nanoTime();
+            try {
+                return computeReadability(text);
+            } finally {
+                metrics.recordStage(PerformanceMetrics.STAGE_READABILITY, System.nanoTime() - startTime);
+                commitStage(event, PerformanceMetrics.STAGE_READABILITY, text.length());
+            }
+        }
+        
+        /**
+         * Estimates readability from evenly spaced windows cut at sentence ends, with
+         * jackknife standard errors across windows. Lexical diversity here is the mean
+         * type/token ratio of a window, which unlike the whole-document ratio does not
+         * shrink as the document grows.
+         */
+        public ReadabilitySample sampleReadability(String text) {
+            AnalysisStageEvent event = new AnalysisStageEvent();
+            event.begin();
+            long startTime = System.nanoTime();
+            try {
+                List<WindowStats> windows = new ArrayList<>(SAMPLE_WINDOWS);
+                long sampledChars = 0;
+                long stride = text.length() / SAMPLE_WINDOWS;
+                for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+                    int from = (int) Math.max(0, i * stride + (stride - SAMPLE_WINDOW_CHARS) / 2);
+                    int start = sentenceStartAfter(text, from, from + SAMPLE_WINDOW_CHARS / 2);
+                    int end = sentenceStartAfter(text, start + SAMPLE_WINDOW_CHARS, start + SAMPLE_WINDOW_CHARS * 3 / 2);
+                    WindowStats window = measureWindow(text.substring(start, Math.min(end, text.length())));
+                    if (window.words() > 0 && window.sentences() > 0) {
+                        windows.add(window);
+                        sampledChars += Math.min(end, text.length()) - start;
+                    }
+                }
+                
+                if (windows.isEmpty()) {
+                    return new ReadabilitySample(0, 0, 0, 0, 0, 0, 0, 0, 0);
+                }
+                
+                double[] estimate = estimateFromWindows(windows, -1);
+                double[] standardError = jackknifeStandardError(windows, estimate.length);
+                return new ReadabilitySample(
+                    estimate[0], standardError[0],
+                    estimate[1], standardError[1],
+                    estimate[2], standardError[2],
+                    estimate[3],
+                    windows.size(),
+                    Math.min(1.0, (double) sampledChars / text.length()));
+            } finally {
+                metrics.recordStage(PerformanceMetrics.STAGE_READABILITY, System.nanoTime() - startTime);
+                commitStage(event, PerformanceMetrics.STAGE_READABILITY, text.length());
+            }
+        }
+        
+        private record WindowStats(int words, int sentences, long syllables, long wordChars,
+                                   double typeTokenRatio, double caseSensitiveTypeTokenRatio) {
+        }
+        
+        private WindowStats measureWindow(String window) {
+            WordStats words = scanWords(window, true);
+            int sentences = extractSentences(window).size();
+            if (words.words() == 0) {
+                return new WindowStats(0, sentences, 0, 0, 0, 0);
+            }
+            return new WindowStats(words.words(), sentences, words.syllables(), words.wordChars(),
+                (double) words.uniqueFolded() / words.words(), (double) words.unique() / words.words());
+        }
+        
+        private record WordStats(int words, long syllables, long wordChars, int unique, int uniqueFolded) {
+        }
+        
+        /**
+         * Counts the {@code \w+} words of {@code text} in place, with their syllables,
+         * characters and distinct values, without creating any word strings.
+         */
+        private WordStats scanWords(String text, boolean countFolded) {
+            LongHashSet uniqueWords = WORD_HASHES.get();
+            LongHashSet uniqueFolded = FOLDED_WORD_HASHES.get();
+            uniqueWords.clear();
+            uniqueFolded.clear();
+            int words = 0;
+            long syllables = 0;
+            long wordChars = 0;
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                if (!isAsciiWordChar(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < length && isAsciiWordChar(text.charAt(i))) {
+                    i++;
+                }
+                words++;
+                syllables += SyllableCounter.count(text, start, i);
+                wordChars += i - start;
+                uniqueWords.add(hashWord(text, start, i, false));
+                if (countFolded) {
+                    uniqueFolded.add(hashWord(text, start, i, true));
+                }
+            }
+            WordStats stats = new WordStats(words, syllables, wordChars, uniqueWords.size(), uniqueFolded.size());
+            uniqueWords.clear();
+            uniqueFolded.clear();
+            return stats;
+        }
+        
+        /**
+         * Flesch, complexity, lexical diversity and sentence length over all windows
+         * except {@code skip}, using the same formulas as the exact path.
+         */
+        private double[] estimateFromWindows(List<WindowStats> windows, int skip) {
+            long words = 0;
+            long sentences = 0;
+            long syllables = 0;
+            long wordChars = 0;
+            double typeTokenRatio = 0;
+            double caseSensitiveTypeTokenRatio = 0;
+            int count = 0;
+            for (int i = 0; i < windows.size(); i++) {
+                if (i == skip) {
+                    continue;
+                }
+                WindowStats window = windows.get(i);
+                words += window.words();
+                sentences += window.sentences();
+                syllables += window.syllables();
+                wordChars += window.wordChars();
+                typeTokenRatio += window.typeTokenRatio();
+                caseSensitiveTypeTokenRatio += window.caseSensitiveTypeTokenRatio();
+                count++;
+            }
+            
+            double avgSentenceLength = (double) words / sentences;
+            double fleschScore = 206.835 - 1.015 * avgSentenceLength - 84.6 * ((double) syllables / words);
+            fleschScore = Math.max(0, Math.min(100, fleschScore));
+            
+            double complexity = ((double) wordChars / words / 10.0) * 0.3 +
+                              (avgSentenceLength / 30.0) * 0.4 +
+                              (1 - caseSensitiveTypeTokenRatio / count) * 0.3;
+            
+            return new double[] { fleschScore, Math.min(1.0, complexity), typeTokenRatio / count, avgSentenceLength };
+        }
+        
+        private double[] jackknifeStandardError(List<WindowStats> windows, int statistics) {
+            int n = windows.size();
+            double[] standardError = new double[statistics];
+            if (n < 2) {
+                return standardError;
+            }
+            
+            double[][] leaveOneOut = new double[n][];
+            double[] mean = new double[statistics];
+            for (int i = 0; i < n; i++) {
+                leaveOneOut[i] = estimateFromWindows(windows, i);
+                for (int j = 0; j < statistics; j++) {
+                    mean[j] += leaveOneOut[i][j] / n;
+                }
+            }
+            for (int j = 0; j < statistics; j++) {
+                double sumSquares = 0;
+                for (int i = 0; i < n; i++) {
+                    double delta = leaveOneOut[i][j] - mean[j];
+                    sumSquares += delta * delta;
+                }
+                standardError[j] = Math.sqrt((n - 1) / (double) n * sumSquares);
+            }
+            return standardError;
+        }
+        
+        private int sentenceStartAfter(String text, int from, int limit) {
+            // First character after a sentence terminator and its whitespace, or from if none is near
+            if (from <= 0) {
+                return 0;
+            }
+            int end = Math.min(limit, text.length());
+            for (int i = from; i < end - 1; i++) {
+                char c = text.charAt(i);
+                if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(text.charAt(i + 1))) {
+                    int start = i + 1;
+                    while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                        start++;
+                    }
+                    return start;
+                }
+            }
+            return Math.min(from, text.length());
+        }
+        
+        /**
+         * Feeds every case-folded {@code \w+} word, the same words lexical diversity
+         * counts, into the distinct-count sketch and the frequent-words summary. Words
+         * are counted by hash, and only the ones the summary keeps become strings.
+         */
+        public void sketchWords(String text, HyperLogLog distinct, HeavyHitters<String> frequent) {
+            LongLongHashMap counts = WORD_COUNTS.get();
+            LongLongHashMap spans = WORD_SPANS.get(); // First occurrence of each word, as start << 32 | end
+            counts.clear();
+            spans.clear();
+            long words = 0;
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                if (!isAsciiWordChar(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < length && isAsciiWordChar(text.charAt(i))) {
+                    i++;
+                }
+                long hash = HyperLogLog.hashLowercase(text, start, i);
+                distinct.addHash(hash);
+                if (counts.addTo(hash, 1) == 1) {
+                    spans.addTo(hash, (long) start << 32 | i);
+                }
+                words++;
+            }
+            
+            // Keep the summary's capacity of words, reduced by the first count left out, as Misra-Gries would
+            long cut = counts.kthLargestValue(frequent.getCapacity() + 1);
+            Map<String, Long> kept = new HashMap<>();
+            for (LongLongHashMap.Entry entry : counts.top(frequent.getCapacity())) {
+                if (entry.value() > cut) {
+                    long span = spans.get(entry.key());
+                    kept.put(text.substring((int) (span >>> 32), (int) span).toLowerCase(Locale.ROOT),
+                        entry.value() - cut);
+                }
+            }
+            frequent.addReduced(kept, words, cut);
+        }
+        
+        /**
+         * Matches {@code \w}, which without UNICODE_CHARACTER_CLASS is ASCII only.
+         */
+        private static boolean isAsciiWordChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        
+        private static int countRegexWhitespace(String text) {
+            // Same set as \s: space, tab, line feed, vertical tab, form feed and carriage return
+            int count = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == ' ' || (c >= '\t' && c <= '\r')) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * 64-bit FNV-1a hash of {@code text[start, end)}, optionally folding ASCII case as it goes.
+         * Words reaching here are ASCII, so 64 bits make a collision vanishingly unlikely.
+         */
+        private static long hashWord(CharSequence text, int start, int end, boolean foldCase) {
+            long hash = FNV_OFFSET;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (foldCase && c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                hash ^= c;
+                hash *= FNV_PRIME;
+            }
+            return HyperLogLog.mix(hash);
+        }
+        
+        private void commitStage(AnalysisStageEvent event, String stage, long characters) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.characters = characters;
+                event.commit();
+            }
+        }
+        
+        private ReadabilityMetrics computeReadability(String text) {
+            WordStats words = scanWords(text, false);
             List<String> sentences = extractSentences(text);
             
-            if (words.isEmpty() || sentences.isEmpty()) {
+            if (words.words() == 0 || sentences.isEmpty()) {
                 return new ReadabilityMetrics(0, 0, 0);
             }
             
             // Calculate average sentence length
-            double avgSentenceLength = (double) words.size() / sentences.size();
+            double avgSentenceLength = (double) words.words() / sentences.size();
             
             // Calculate syllable count (simplified)
-            int totalSyllables = words.stream()
-                .mapToInt(this::countSyllables)
-                .sum();
-            double avgSyllablesPerWord = (double) totalSyllables / words.size();
+            double avgSyllablesPerWord = (double) words.syllables() / words.words();
             
             // Flesch Reading Ease Score
             double fleschScore = 206.835 - 1.015 * avgSentenceLength - 84.6 * avgSyllablesPerWord;
@@ -314,15 +1366,6 @@ public class TokenEngine {
             return new ReadabilityMetrics(fleschScore, complexityScore, avgSentenceLength);
         }
         
-        private List<String> extractWords(String text) {
-            List<String> words = new ArrayList<>();
-            var matcher = WORD_PATTERN.matcher(text);
-            while (matcher.find()) {
-                words.add(matcher.group());
-            }
-            return words;
-        }
-        
         private List<String> extractSentences(String text) {
             // Use BreakIterator for better sentence detection
             BreakIterator iterator = BreakIterator.getSentenceInstance(Locale.US);
@@ -340,41 +1383,14 @@ public class TokenEngine {
             return sentences;
         }
         
-        private int countSyllables(String word) {
-            // Simplified syllable counting
-            word = word.toLowerCase().replaceAll("[^a-z]", "");
-            int count = 0;
-            boolean previousWasVowel = false;
-            
-            for (char c : word.toCharArray()) {
-                boolean isVowel = "aeiou".indexOf(c) >= 0;
-                if (isVowel && !previousWasVowel) {
-                    count++;
-                }
-                previousWasVowel = isVowel;
-            }
-            
-            // Adjust for silent 'e'
-            if (word.endsWith("e") && count > 1) {
-                count--;
-            }
-            
-            return Math.max(1, count);
-        }
-        
-        private double calculateComplexity(List<String> words, double avgSentenceLength) {
+        private double calculateComplexity(WordStats words, double avgSentenceLength) {
             // Custom complexity metric based on:
             // - Average word length
             // - Sentence length
             // - Vocabulary richness
             
-            double avgWordLength = words.stream()
-                .mapToInt(String::length)
-                .average()
-                .orElse(0);
-            
-            Set<String> uniqueWords = new HashSet<>(words);
-            double vocabularyRichness = (double) uniqueWords.size() / words.size();
+            double avgWordLength = (double) words.wordChars() / words.words();
+            double vocabularyRichness = (double) words.unique() / words.words();
             
             // Normalize and combine metrics
             double complexity = (avgWordLength / 10.0) * 0.3 +
@@ -0,0 +1,327 @@
+package com.tokenanalyzer;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.models.EstimateValidation;
+import com.tokenanalyzer.models.TokenCalibration;
+import com.tokenanalyzer.models.TokenEstimate;
+import com.tokenanalyzer.utils.TokenBoundaries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates token counts without encoding everything. Text and plain-text files are
+ * estimated from evenly spaced sample windows; other formats use tokens-per-byte
+ * ratios calibrated from exact analyses of the same format and encoding.
+ */
+public class TokenEstimator {
+    private static final Logger logger = LoggerFactory.getLogger(TokenEstimator.class);
+    private static final double Z_95 = 1.96;
+    private static final int SAMPLE_WINDOWS = 64;
+    private static final int WINDOW_SIZE = 2048; // chars for text, bytes for files
+    private static final int MIN_CALIBRATION_DOCUMENTS = 3;
+    
+    private final EncodingRegistry registry;
+    private final FileProcessor fileProcessor;
+    private final Map<String, Calibration> calibrations = new ConcurrentHashMap<>();
+    
+    public TokenEstimator(EncodingRegistry registry, FileProcessor fileProcessor) {
+        this.registry = registry;
+        this.fileProcessor = fileProcessor;
+    }
+    
+    /**
+     * Learns the tokens-per-byte ratio from an exact count. {@code bytes} is the source
+     * file size; counts without one, such as pasted text, are ignored.
+     */
+    public void calibrate(String format, EncodingType encodingType, long bytes, long tokens) {
+        if (tokens <= 0 || bytes <= 0) {
+            return;
+        }
+        calibrations.computeIfAbsent(calibrationKey(format, encodingType), key -> new Calibration(format, encodingType))
+            .record(bytes, tokens);
+    }
+    
+    public Optional<TokenCalibration> getCalibration(String format, EncodingType encodingType) {
+        return Optional.ofNullable(calibrations.get(calibrationKey(format, encodingType))).map(Calibration::snapshot);
+    }
+    
+    public List<TokenCalibration> getCalibrations() {
+        return calibrations.values().stream()
+            .map(Calibration::snapshot)
+            .sorted(Comparator.comparing(TokenCalibration::format).thenComparing(TokenCalibration::encoding))
+            .toList();
+    }
+    
+    public TokenEstimate estimate(String text, EncodingType encodingType) {
+        Encoding encoding = registry.getEncoding(encodingType);
+        int length = text.length();
+        if (length <= SAMPLE_WINDOWS * WINDOW_SIZE * 2) {
+            return TokenEstimate.exact(encoding.countTokens(text));
+        }
+        
+        RatioSample sample = new RatioSample();
+        long stride = length / SAMPLE_WINDOWS;
+        for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+            int from = (int) (i * stride + (stride - WINDOW_SIZE) / 2);
+            // Snap both edges to safe boundaries so window counts add up without bias
+            int middle = from + WINDOW_SIZE / 2;
+            int start = TokenBoundaries.atOrAfter(text, from, middle, encodingType);
+            int end = start < middle ? TokenBoundaries.atOrBefore(text, from + WINDOW_SIZE, start, encodingType) : start;
+            if (end <= start) {
+                continue; // No safe boundary to cut at, and a cut mid-token would skew the ratio
+            }
+            sample.add(encoding.countTokens(text.substring(start, end)), end - start);
+        }
+        return sample.isEmpty() ? TokenEstimate.exact(encoding.countTokens(text)) : sample.toEstimate(length);
+    }
+    
+    public TokenEstimate estimate(File file, EncodingType encodingType) throws IOException {
+        String format = FileProcessor.getFileExtension(file.getName());
+        long size = file.length();
+        
+        if (FileProcessor.isPlainText(format)) {
+            if (size <= (long) SAMPLE_WINDOWS * WINDOW_SIZE * 2) {
+                String text = Files.readString(file.toPath());
+                return TokenEstimate.exact(registry.getEncoding(encodingType).countTokens(text));
+            }
+            return sampleFile(file, size, encodingType);
+        }
+        
+        Calibration calibration = calibrations.get(calibrationKey(format, encodingType));
+        if (calibration != null && calibration.perByte().getCount() >= MIN_CALIBRATION_DOCUMENTS) {
+            // Prediction interval for a new document from the spread seen across documents
+            RunningStats perByte = calibration.perByte();
+            double margin = Z_95 * perByte.getStdDev() * Math.sqrt(1 + 1.0 / perByte.getCount()) * size;
+            double tokens = perByte.getMean() * size;
+            return new TokenEstimate(Math.round(tokens), (long) Math.max(0, Math.floor(tokens - margin)),
+                (long) Math.ceil(tokens + margin), TokenEstimate.Method.CALIBRATED, 0, 0.0);
+        }
+        
+        // Not calibrated yet, so extract and sample the text instead
+        return estimate(fileProcessor.extractText(file), encodingType);
+    }
+    
+    /**
+     * Estimates and then exactly counts every file, reporting the estimate error and
+     * the interval coverage. The exact counts are kept as calibration afterwards.
+     */
+    public EstimateValidation validate(List<File> files, EncodingType encodingType) {
+        Encoding encoding = registry.getEncoding(encodingType);
+        List<EstimateValidation.Entry> entries = new ArrayList<>();
+        
+        for (File file : files) {
+            try {
+                long startTime = System.nanoTime();
+                TokenEstimate estimate = estimate(file, encodingType);
+                long estimateNanos = System.nanoTime() - startTime;
+                
+                startTime = System.nanoTime();
+                String text = fileProcessor.extractText(file);
+                int exactTokens = encoding.countTokens(text);
+                long exactNanos = System.nanoTime() - startTime;
+                
+                String format = FileProcessor.getFileExtension(file.getName());
+                entries.add(new EstimateValidation.Entry(file.getName(), format, estimate, exactTokens,
+                    estimateNanos, exactNanos));
+                calibrate(format, encodingType, file.length(), exactTokens);
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.warn("Skipping {} in estimate validation: {}", file.getName(), e.getMessage());
+            }
+        }
+        
+        return new EstimateValidation(encoding.getName(), entries);
+    }
+    
+    private TokenEstimate sampleFile(File file, long size, EncodingType encodingType) throws IOException {
+        Encoding encoding = registry.getEncoding(encodingType);
+        RatioSample sample = new RatioSample();
+        ByteBuffer bytes = ByteBuffer.allocate(WINDOW_SIZE);
+        CharBuffer chars = CharBuffer.allocate(WINDOW_SIZE);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        
+        // Positional reads of a few windows, so the cost is a handful of seeks per file
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long stride = size / SAMPLE_WINDOWS;
+            for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+                long position = i * stride + (stride - WINDOW_SIZE) / 2;
+                bytes.clear();
+                while (bytes.hasRemaining()) {
+                    int read = channel.read(bytes, position + bytes.position());
+                    if (read < 0) {
+                        break;
+                    }
+                }
+                bytes.flip();
+                while (bytes.hasRemaining() && (bytes.get(bytes.position()) & 0xC0) == 0x80) {
+                    bytes.get(); // Resync past a split UTF-8 sequence
+                }
+                
+                chars.clear();
+                decoder.reset();
+                decoder.decode(bytes, chars, false);
+                chars.flip();
+                String window = chars.toString();
+                
+                // Offset 0 and the end of a window are not real boundaries, so snap inwards
+                int start = TokenBoundaries.atOrAfter(window, 1, window.length() / 2, encodingType);
+                int end = TokenBoundaries.atOrBefore(window, window.length() - 1, start, encodingType);
+                if (end <= start) {
+                    continue; // No safe boundary to cut at, and a cut mid-token would skew the ratio
+                }
+                String piece = window.substring(start, end);
+                sample.add(encoding.countTokens(piece), utf8Length(piece));
+            }
+        }
+        if (sample.isEmpty()) {
+            return TokenEstimate.exact(encoding.countTokens(Files.readString(file.toPath())));
+        }
+        return sample.toEstimate(size);
+    }
+    
+    private static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+    
+    private static String calibrationKey(String format, EncodingType encodingType) {
+        return format + '/' + encodingType.getName();
+    }
+    
+    /**
+     * Ratio estimator over sample windows; the window-to-window spread gives the standard error.
+     */
+    private static final class RatioSample {
+        private final List<long[]> windows = new ArrayList<>();
+        private long totalTokens;
+        private long totalUnits;
+        
+        void add(long tokens, long units) {
+            windows.add(new long[] { tokens, units });
+            totalTokens += tokens;
+            totalUnits += units;
+        }
+        
+        boolean isEmpty() {
+            return windows.isEmpty();
+        }
+        
+        TokenEstimate toEstimate(long populationUnits) {
+            int k = windows.size();
+            double ratio = totalUnits > 0 ? (double) totalTokens / totalUnits : 0.0;
+            double meanUnits = (double) totalUnits / k;
+            
+            double residuals = 0;
+            for (long[] window : windows) {
+                double residual = window[0] - ratio * window[1];
+                residuals += residual * residual;
+            }
+            double sampledFraction = Math.min(1.0, (double) totalUnits / populationUnits);
+            double variance = k > 1 && meanUnits > 0
+                ? (1 - sampledFraction) * residuals / (k - 1) / (k * meanUnits * meanUnits)
+                : 0.0;
+            
+            double tokens = ratio * populationUnits;
+            double margin = Z_95 * Math.sqrt(variance) * populationUnits;
+            return new TokenEstimate(Math.round(tokens), (long) Math.max(0, Math.floor(tokens - margin)),
+                (long) Math.ceil(tokens + margin), TokenEstimate.Method.SAMPLED, k, sampledFraction);
+        }
+    }
+    
+    private static final class Calibration {
+        private final String format;
+        private final EncodingType encodingType;
+        private final RunningStats perByte = new RunningStats();
+        
+        Calibration(String format, EncodingType encodingType) {
+            this.format = format;
+            this.encodingType = encodingType;
+        }
+        
+        synchronized void record(long bytes, long tokens) {
+            perByte.add((double) tokens / bytes);
+        }
+        
+        synchronized RunningStats perByte() {
+            return perByte.copy();
+        }
+        
+        synchronized TokenCalibration snapshot() {
+            return new TokenCalibration(format, encodingType.getName(), perByte.getCount(), perByte.getMean(),
+                perByte.getStdDev());
+        }
+    }
+    
+    /**
+     * Welford's running mean and variance.
+     */
+    private static final class RunningStats {
+        private long count;
+        private double mean;
+        private double m2;
+        
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+        
+        RunningStats copy() {
+            RunningStats copy = new RunningStats();
+            copy.count = count;
+            copy.mean = mean;
+            copy.m2 = m2;
+            return copy;
+        }
+        
+        long getCount() {
+            return count;
+        }
+        
+        double getMean() {
+            return mean;
+        }
+        
+        double getVariance() {
+            return count > 1 ? m2 / (count - 1) : 0.0;
+        }
+        
+        double getStdDev() {
+            return Math.sqrt(getVariance());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,289 @@
+package com.tokenanalyzer.controllers;
+
+import com.tokenanalyzer.controllers.MainController.BatchResultRow;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Backing model for the batch results table. Worker threads submit rows into a queue
+ * that is drained into the table in bulk at a fixed frame rate, and re-sorting or
+ * re-filtering the full result set happens on a background thread. Numeric columns
+ * sort by typed keys on the row, and rows drained while a sort is active are merged
+ * into the sorted view rather than re-sorting everything.
+ */
+class BatchTableModel {
+    private static final Logger logger = LoggerFactory.getLogger(BatchTableModel.class);
+    private static final Duration FRAME_INTERVAL = Duration.millis(1000.0 / 15); // 15 fps
+    
+    private final TableView<BatchResultRow> table;
+    private final ConcurrentLinkedQueue<BatchResultRow> pendingRows = new ConcurrentLinkedQueue<>();
+    private final Map<TableColumn<BatchResultRow, ?>, Function<TableColumn.SortType, Comparator<BatchResultRow>>>
+        columnOrders = new HashMap<>();
+    private final ExecutorService viewWorker;
+    
+    // All state below is confined to the FX thread
+    private final List<BatchResultRow> allRows = new ArrayList<>();
+    private String filterText = "";
+    private long viewGeneration = 0;
+    private boolean refreshRunning = false;
+    private boolean refreshPending = false;
+    private Runnable onFlush = () -> {};
+    
+    BatchTableModel(TableView<BatchResultRow> table) {
+        this.table = table;
+        this.viewWorker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-table-view");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Sorting is done on the view worker rather than by FXCollections.sort on the FX thread
+        table.setSortPolicy(t -> {
+            scheduleRefresh();
+            return true;
+        });
+        
+        Timeline frameTimer = new Timeline(new KeyFrame(FRAME_INTERVAL, event -> flush()));
+        frameTimer.setCycleCount(Timeline.INDEFINITE);
+        frameTimer.play();
+    }
+    
+    /**
+     * Binds a text column, sorted case-insensitively.
+     */
+    void bindColumn(TableColumn<BatchResultRow, String> column, Function<BatchResultRow, String> value) {
+        Comparator<BatchResultRow> order = Comparator.comparing(value, String.CASE_INSENSITIVE_ORDER);
+        bindSortedColumn(column, value,
+            sortType -> sortType == TableColumn.SortType.DESCENDING ? order.reversed() : order);
+    }
+    
+    /**
+     * Binds a numeric column, sorted by {@code sortKey}; rows whose key is NaN, such as
+     * failed files, sort after every number in either direction.
+     */
+    void bindColumn(TableColumn<BatchResultRow, String> column, Function<BatchResultRow, String> value,
+                    ToDoubleFunction<BatchResultRow> sortKey) {
+        bindSortedColumn(column, value, sortType -> {
+            boolean descending = sortType == TableColumn.SortType.DESCENDING;
+            return (a, b) -> compareKeys(sortKey.applyAsDouble(a), sortKey.applyAsDouble(b), descending);
+        });
+    }
+    
+    private void bindSortedColumn(TableColumn<BatchResultRow, String> column, Function<BatchResultRow, String> value,
+                                  Function<TableColumn.SortType, Comparator<BatchResultRow>> order) {
+        column.setCellValueFactory(cellData -> new SimpleStringProperty(value.apply(cellData.getValue())));
+        columnOrders.put(column, order);
+    }
+    
+    void setOnFlush(Runnable onFlush) {
+        this.onFlush = onFlush;
+    }
+    
+    /**
+     * Queues a row from any thread; it becomes visible on the next frame.
+     */
+    void submit(BatchResultRow row) {
+        pendingRows.add(row);
+    }
+    
+    void flush() {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        
+        List<BatchResultRow> drained = new ArrayList<>();
+        BatchResultRow row;
+        while ((row = pendingRows.poll()) != null) {
+            drained.add(row);
+        }
+        allRows.addAll(drained);
+        
+        Comparator<BatchResultRow> comparator = createComparator();
+        if (refreshRunning) {
+            // The in-flight view was built without these rows
+            scheduleRefresh();
+        } else {
+            List<BatchResultRow> visible = filterText.isEmpty() ? drained
+                : drained.stream().filter(createFilter()).toList();
+            if (comparator == null) {
+                table.getItems().addAll(visible);
+            } else {
+                mergeSorted(visible, comparator);
+            }
+        }
+        
+        onFlush.run();
+    }
+    
+    /**
+     * Merges {@code rows} into the sorted view, after any rows they compare equal to, so
+     * the result matches a stable sort of all rows in arrival order. The view is replaced
+     * in one change, so the table lays out once per frame however many rows arrived.
+     */
+    private void mergeSorted(List<BatchResultRow> rows, Comparator<BatchResultRow> comparator) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<BatchResultRow> added = new ArrayList<>(rows);
+        added.sort(comparator);
+        List<BatchResultRow> items = table.getItems();
+        
+        List<BatchResultRow> merged = new ArrayList<>(items.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < items.size() || j < added.size()) {
+            if (j == added.size() || (i < items.size() && comparator.compare(items.get(i), added.get(j)) <= 0)) {
+                merged.add(items.get(i++));
+            } else {
+                merged.add(added.get(j++));
+            }
+        }
+        table.getItems().setAll(merged);
+    }
+    
+    void upsert(BatchResultRow row) {
+        int index = indexOf(row.fileName());
+        if (index >= 0) {
+            allRows.set(index, row);
+        } else {
+            allRows.add(row);
+        }
+        scheduleRefresh();
+    }
+    
+    void remove(String fileName) {
+        int index = indexOf(fileName);
+        if (index >= 0) {
+            allRows.remove(index);
+            scheduleRefresh();
+        }
+    }
+    
+    void setFilter(String text) {
+        filterText = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        scheduleRefresh();
+    }
+    
+    void clear() {
+        pendingRows.clear();
+        allRows.clear();
+        viewGeneration++;
+        table.getItems().clear();
+    }
+    
+    /**
+     * Every row of the batch regardless of the current filter, in arrival order.
+     */
+    List<BatchResultRow> getRows() {
+        return allRows;
+    }
+    
+    private int indexOf(String fileName) {
+        for (int i = 0; i < allRows.size(); i++) {
+            if (allRows.get(i).fileName().equals(fileName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private void scheduleRefresh() {
+        if (refreshRunning) {
+            // Coalesce: one more pass after the current one picks up everything
+            refreshPending = true;
+            return;
+        }
+        
+        refreshRunning = true;
+        refreshPending = false;
+        long generation = ++viewGeneration;
+        
+        List<BatchResultRow> snapshot = List.copyOf(allRows);
+        Predicate<BatchResultRow> filter = createFilter();
+        Comparator<BatchResultRow> comparator = createComparator();
+        
+        viewWorker.execute(() -> {
+            List<BatchResultRow> view;
+            try {
+                view = new ArrayList<>(snapshot.size());
+                for (BatchResultRow row : snapshot) {
+                    if (filter.test(row)) {
+                        view.add(row);
+                    }
+                }
+                if (comparator != null) {
+                    view.sort(comparator);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to refresh batch results view", e);
+                view = null;
+            }
+            
+            List<BatchResultRow> result = view;
+            Platform.runLater(() -> {
+                refreshRunning = false;
+                if (result != null && generation == viewGeneration) {
+                    table.getItems().setAll(result);
+                }
+                if (refreshPending) {
+                    scheduleRefresh();
+                }
+            });
+        });
+    }
+    
+    private Predicate<BatchResultRow> createFilter() {
+        String text = filterText;
+        if (text.isEmpty()) {
+            return row -> true;
+        }
+        return row -> row.fileName().toLowerCase(Locale.ROOT).contains(text)
+            || row.status().toLowerCase(Locale.ROOT).contains(text);
+    }
+    
+    private Comparator<BatchResultRow> createComparator() {
+        Comparator<BatchResultRow> comparator = null;
+        
+        for (TableColumn<BatchResultRow, ?> column : table.getSortOrder()) {
+            Function<TableColumn.SortType, Comparator<BatchResultRow>> order = columnOrders.get(column);
+            if (order == null) {
+                continue;
+            }
+            
+            Comparator<BatchResultRow> columnComparator = order.apply(column.getSortType());
+            comparator = comparator == null ? columnComparator : comparator.thenComparing(columnComparator);
+        }
+        
+        return comparator;
+    }
+    
+    private static int compareKeys(double a, double b, boolean descending) {
+        // Numbers by value in the requested direction, missing values after numbers either way
+        boolean missingA = Double.isNaN(a);
+        boolean missingB = Double.isNaN(b);
+        if (missingA || missingB) {
+            return Boolean.compare(missingA, missingB);
+        }
+        return descending ? Double.compare(b, a) : Double.compare(a, b);
+    }
+}
\ No newline at end of file
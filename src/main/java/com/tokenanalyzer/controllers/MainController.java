@@ -1,9 +1,24 @@
 package com.tokenanalyzer.controllers;
 
 import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.BatchAggregator;
+import com.tokenanalyzer.BatchProgressTracker;
+import com.tokenanalyzer.BatchScheduler;
+import com.tokenanalyzer.ColumnarResultSet;
+import com.tokenanalyzer.DirectoryWatcher;
+import com.tokenanalyzer.DuplicateDetector;
 import com.tokenanalyzer.FileProcessor;
 import com.tokenanalyzer.TokenEngine;
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
+import com.tokenanalyzer.export.ResultExporter;
 import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.BatchProgress;
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.ColumnSummary;
+import com.tokenanalyzer.models.CorpusSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.RunTotals;
+import com.tokenanalyzer.store.ResultStore;
 import com.tokenanalyzer.utils.ErrorHandler;
 import com.tokenanalyzer.utils.ClaudePricing;
 import javafx.application.Platform;
@@ -14,20 +29,30 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 public class MainController implements Initializable {
     private static final Logger logger = LoggerFactory.getLogger(MainController.class);
+    private static final int TOP_ITEMS_SHOWN = 8;
+    private static final long SUMMARY_REFRESH_NANOS = 500_000_000L; // Live summary at most twice a second
     
     @FXML private TextArea inputTextArea;
     @FXML private ComboBox<EncodingType> encodingComboBox;
@@ -39,6 +64,11 @@ public class MainController implements Initializable {
     @FXML private TableColumn<MetricRow, String> valueColumn;
     @FXML private TableColumn<MetricRow, String> descriptionColumn;
     @FXML private Label statusLabel;
+    @FXML private MenuItem watchDirectoryMenuItem;
+    @FXML private MenuItem exportBatchMenuItem;
+    @FXML private MenuItem validateEstimatesMenuItem;
+    @FXML private CheckMenuItem skipDuplicatesMenuItem;
+    @FXML private CheckMenuItem archiveTokensMenuItem;
     
     // Batch processing components
     @FXML private TabPane resultsTabPane;
@@ -51,6 +81,7 @@ public class MainController implements Initializable {
     @FXML private TableColumn<BatchResultRow, String> fileReadabilityColumn;
     @FXML private TableColumn<BatchResultRow, String> fileComplexityColumn;
     @FXML private TableColumn<BatchResultRow, String> fileStatusColumn;
+    @FXML private TextField batchFilterField;
     @FXML private ProgressBar batchProgressBar;
     @FXML private Label progressLabel;
     
@@ -61,10 +92,28 @@ public class MainController implements Initializable {
     @FXML private Label summaryAvgTokens;
     @FXML private Label summaryAvgReadability;
     @FXML private Label summarySuccessRate;
+    @FXML private Label summaryTokenDistribution;
+    @FXML private Label summaryDistinctTokens;
+    @FXML private Label summaryDistinctWords;
+    @FXML private Label summaryTopTokens;
+    @FXML private Label summaryTopWords;
+    @FXML private Label summaryTopTrigrams;
+    @FXML private Label summaryByExtension;
+    @FXML private Label summaryDuplicates;
     
-    private final TokenEngine tokenEngine = new TokenEngine();
-    private final FileProcessor fileProcessor = new FileProcessor();
+    private final TokenEngine tokenEngine = TokenEngine.shared();
+    private final FileProcessor fileProcessor = tokenEngine.getFileProcessor();
     private List<File> selectedFiles = null;
+    private DirectoryWatcher directoryWatcher = null;
+    private BatchTableModel batchTableModel;
+    private final BatchAggregator batchAggregator = new BatchAggregator();
+    private final ColumnarResultSet batchColumns = new ColumnarResultSet();
+    private volatile BatchProgressTracker batchProgress;
+    private final AtomicBoolean summaryRefreshPending = new AtomicBoolean();
+    private long lastSummaryRefresh = 0;
+    private Path exportTarget = null;
+    private ResultStore resultStore = null;
+    private boolean resultStoreUnavailable = false;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -72,6 +121,8 @@ public class MainController implements Initializable {
         setupResultsTable();
         setupBatchResultsTable();
         setupEventHandlers();
+        skipDuplicatesMenuItem.setSelected(tokenEngine.isSkipDuplicates());
+        archiveTokensMenuItem.setSelected(tokenEngine.isArchiveTokens());
         
         logger.info("MainController initialized with multi-file processing support");
     }
@@ -98,12 +149,17 @@ public class MainController implements Initializable {
     }
     
     private void setupBatchResultsTable() {
-        fileNameColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().fileName()));
-        fileTokensColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().tokens()));
-        fileUniqueTokensColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().uniqueTokens()));
-        fileReadabilityColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().readability()));
-        fileComplexityColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().complexity()));
-        fileStatusColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().status()));
+        batchTableModel = new BatchTableModel(batchResultsTable);
+        batchTableModel.bindColumn(fileNameColumn, BatchResultRow::fileName);
+        batchTableModel.bindColumn(fileTokensColumn, BatchResultRow::tokens, BatchResultRow::tokenCount);
+        batchTableModel.bindColumn(fileUniqueTokensColumn, BatchResultRow::uniqueTokens, BatchResultRow::uniqueTokenCount);
+        batchTableModel.bindColumn(fileReadabilityColumn, BatchResultRow::readability, BatchResultRow::fleschScore);
+        batchTableModel.bindColumn(fileComplexityColumn, BatchResultRow::complexity);
+        batchTableModel.bindColumn(fileStatusColumn, BatchResultRow::status);
+        
+        // Progress is refreshed together with the rows, once per frame
+        batchTableModel.setOnFlush(this::updateBatchProgress);
+        batchFilterField.textProperty().addListener((obs, oldText, newText) -> batchTableModel.setFilter(newText));
     }
     
     private void setupEventHandlers() {
@@ -174,70 +230,94 @@ public class MainController implements Initializable {
         analyzeBatchButton.setDisable(true);
         
         // Clear previous results
-        batchResultsTable.getItems().clear();
+        batchTableModel.clear();
         
         // Show progress indicators
         batchProgressBar.setVisible(true);
         progressLabel.setVisible(true);
         batchProgressBar.setProgress(0);
         
-        AtomicInteger processed = new AtomicInteger(0);
+        batchAggregator.reset();
+        batchColumns.clear();
+        batchAggregator.setTokenDecoder(tokenId -> tokenEngine.decodeToken(encoding, tokenId));
         int totalFiles = selectedFiles.size();
+        BatchProgressTracker progress = new BatchProgressTracker(selectedFiles);
+        batchProgress = progress;
         
-        // Process files asynchronously
-        CompletableFuture<Void> batchFuture = CompletableFuture.runAsync(() -> {
-            for (File file : selectedFiles) {
-                try {
-                    // Process file
-                    String content = fileProcessor.processFile(file.toPath()).join();
-                    AnalysisResult result = tokenEngine.analyzeText(content, encoding).join();
-                    
-                    // Update UI on JavaFX thread
-                    Platform.runLater(() -> {
-                        BatchResultRow row = new BatchResultRow(
-                            file.getName(),
-                            String.valueOf(result.totalTokens()),
-                            String.valueOf(result.uniqueTokens()),
-                            String.format("%.1f", result.fleschScore()),
-                            result.getComplexityLevel(),
-                            "Completed"
-                        );
-                        batchResultsTable.getItems().add(row);
-                        
-                        int currentProgress = processed.incrementAndGet();
-                        double progress = (double) currentProgress / totalFiles;
-                        batchProgressBar.setProgress(progress);
-                        progressLabel.setText(String.format("Processing %d/%d files...", currentProgress, totalFiles));
-                    });
-                    
-                } catch (Exception e) {
-                    Platform.runLater(() -> {
-                        BatchResultRow errorRow = new BatchResultRow(
-                            file.getName(),
-                            "N/A",
-                            "N/A",
-                            "N/A",
-                            "N/A",
-                            "Error: " + e.getMessage()
-                        );
-                        batchResultsTable.getItems().add(errorRow);
+        Path exportPath = exportTarget;
+        DuplicateDetector duplicateDetector = tokenEngine.newDuplicateDetector();
+        
+        // Process files asynchronously; rows reach the table through the frame-rate flush
+        CompletableFuture<String> batchFuture = CompletableFuture.supplyAsync(() -> {
+            ResultStore store = getResultStore();
+            long runId = beginStoredRun(store);
+            try (ResultExporter exporter = exportPath != null ? ResultExporter.open(exportPath) : null) {
+                // Largest files first, extraction and analysis on separate pools
+                tokenEngine.getBatchScheduler().run(selectedFiles, tokenEngine::newDeadline,
+                    fileProcessor::extractSections,
+                    (file, content, deadline) -> new StoredAnalysis(
+                        tokenEngine.analyzeDocument(file.getName(), file.length(), content, encoding,
+                            duplicateDetector, deadline),
+                        runId >= 0 ? ResultStore.contentHash(content.text()) : 0),
+                    new BatchScheduler.Listener<StoredAnalysis>() {
+                        @Override
+                        public void onResult(File file, StoredAnalysis stored) throws IOException {
+                            DocumentAnalysis analysis = stored.analysis();
+                            batchAggregator.record(analysis);
+                            batchTableModel.submit(createBatchRow(file.getName(), analysis));
+                            if (exporter != null) {
+                                exporter.write(analysis); // Export failures abort the batch
+                            }
+                            if (runId >= 0 && !analysis.isSkipped()) {
+                                storeResult(store, runId, file, stored.contentHash(), analysis.result());
+                            }
+                            if (!analysis.isSkipped()) {
+                                progress.addTokens(analysis.result().totalTokens());
+                                batchColumns.add(file.toPath(), analysis.result());
+                            }
+                        }
                         
-                        int currentProgress = processed.incrementAndGet();
-                        double progress = (double) currentProgress / totalFiles;
-                        batchProgressBar.setProgress(progress);
-                        progressLabel.setText(String.format("Processing %d/%d files...", currentProgress, totalFiles));
-                    });
-                    
-                    logger.error("Error processing file {}: {}", file.getName(), e.getMessage());
+                        @Override
+                        public void onFailure(File file, Exception e) throws IOException {
+                            batchAggregator.recordFailure();
+                            if (e instanceof AnalysisTimeoutException timeout) {
+                                batchTableModel.submit(createTimeoutRow(file.getName(), timeout));
+                                logger.warn("Gave up on {}: {}", file.getName(), e.getMessage());
+                                if (exporter != null) {
+                                    exporter.writeTimeout(file.getName(), e.getMessage());
+                                }
+                            } else {
+                                batchTableModel.submit(createErrorRow(file.getName(), e.getMessage()));
+                                logger.error("Error processing file {}: {}", file.getName(), e.getMessage());
+                                if (exporter != null) {
+                                    exporter.writeFailure(file.getName(), e.getMessage());
+                                }
+                            }
+                        }
+                    }, progress);
+                if (exporter != null) {
+                    exporter.writeSummary(batchAggregator.snapshot());
                 }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to export batch results to " + exportPath, e);
+            } finally {
+                endStoredRun(store, runId);
             }
+            return compareWithPreviousRun(store, runId);
         });
         
-        batchFuture.thenRun(() -> Platform.runLater(() -> {
-            // Calculate and display batch summary
-            calculateAndDisplayBatchSummary();
+        batchFuture.thenAccept(history -> Platform.runLater(() -> {
+            batchTableModel.flush();
+            
+            // Final summary, including anything recorded after the last frame
+            BatchSummary summary = batchAggregator.snapshot();
+            displayBatchSummary(summary);
+            summaryByExtension.setText(formatByExtension(
+                batchColumns.groupBy(ColumnarResultSet.Grouping.EXTENSION, ColumnarResultSet.Column.TOTAL_TOKENS)));
+            logger.info("Batch summary: {} files, {} tokens total, {}% success rate",
+                summary.getTotalFiles(), summary.totalTokens(), String.format("%.1f", summary.getSuccessRate()));
             
-            statusLabel.setText("Batch analysis complete - " + totalFiles + " files processed");
+            statusLabel.setText("Batch analysis complete - " + totalFiles + " files processed" + history);
             analyzeBatchButton.setDisable(false);
             batchProgressBar.setVisible(false);
             progressLabel.setVisible(false);
@@ -257,6 +337,224 @@ public class MainController implements Initializable {
         });
     }
     
+    @FXML
+    private void handleExportBatch() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Stream Batch Results To");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl"),
+            new FileChooser.ExtensionFilter("JSON Lines (gzip)", "*.jsonl.gz"),
+            new FileChooser.ExtensionFilter("CSV", "*.csv"),
+            new FileChooser.ExtensionFilter("CSV (gzip)", "*.csv.gz")
+        );
+        
+        Stage stage = (Stage) inputTextArea.getScene().getWindow();
+        File target = fileChooser.showSaveDialog(stage);
+        
+        if (target == null) {
+            exportTarget = null;
+            exportBatchMenuItem.setText("Stream Batch Results To...");
+            statusLabel.setText("Batch export disabled");
+            return;
+        }
+        
+        exportTarget = target.toPath();
+        exportBatchMenuItem.setText("Stream Batch Results To: " + target.getName());
+        statusLabel.setText("Batch results will be streamed to " + target.getAbsolutePath());
+        logger.info("Batch export target set to {}", exportTarget);
+    }
+    
+    /**
+     * Estimates and exactly counts the chosen files, then shows the estimator's error and
+     * interval coverage. The exact counts also calibrate later estimates.
+     */
+    @FXML
+    private void handleValidateEstimates() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Validate Token Estimates");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("All Supported", "*.txt", "*.pdf", "*.docx", "*.html", "*.htm", "*.java", "*.py", "*.js", "*.md", "*.css", "*.xml", "*.json", "*.zip"),
+            new FileChooser.ExtensionFilter("All files", "*.*")
+        );
+        
+        Stage stage = (Stage) inputTextArea.getScene().getWindow();
+        List<File> files = fileChooser.showOpenMultipleDialog(stage);
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        
+        EncodingType encoding = encodingComboBox.getValue();
+        validateEstimatesMenuItem.setDisable(true);
+        statusLabel.setText("Validating token estimates on " + files.size() + " files...");
+        CompletableFuture.supplyAsync(() -> tokenEngine.validateEstimates(files, encoding))
+            .whenComplete((validation, throwable) -> Platform.runLater(() -> {
+                validateEstimatesMenuItem.setDisable(false);
+                if (throwable != null) {
+                    ErrorHandler.logError("estimate validation", throwable, "files", files.size());
+                    showError("Validation Error", ErrorHandler.getUserFriendlyMessage(throwable));
+                    statusLabel.setText("Estimate validation failed");
+                    return;
+                }
+                
+                TextArea report = new TextArea(validation.toReport());
+                report.setEditable(false);
+                report.setStyle("-fx-font-family: monospace;");
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Token Estimate Validation");
+                alert.setHeaderText(String.format("Mean error %.2f%%, interval coverage %.1f%%",
+                    validation.getMeanAbsoluteErrorPercent(), validation.getCoveragePercent()));
+                alert.getDialogPane().setContent(report);
+                alert.setResizable(true);
+                alert.getDialogPane().setPrefSize(900, 500);
+                alert.show();
+                statusLabel.setText("Validated token estimates on " + validation.entries().size() + " files");
+            }));
+    }
+    
+    /**
+     * Stops watching and closes the history store, finishing any run still open, and
+     * the token archives.
+     */
+    public synchronized void shutdown() {
+        stopWatching();
+        tokenEngine.closeTokenArchives();
+        if (resultStore != null) {
+            try {
+                resultStore.close();
+            } catch (IOException e) {
+                logger.warn("Could not close result store: {}", e.getMessage());
+            }
+            resultStore = null;
+        }
+        resultStoreUnavailable = true; // A batch still finishing must not reopen it
+    }
+    
+    /**
+     * Opens the history store on first use. Batches still run if it cannot be opened,
+     * including when another instance of the application holds it.
+     */
+    private synchronized ResultStore getResultStore() {
+        if (resultStore == null && !resultStoreUnavailable) {
+            try {
+                resultStore = ResultStore.open(ResultStore.defaultDirectory());
+            } catch (IOException e) {
+                resultStoreUnavailable = true;
+                logger.warn("Batch history disabled, could not open result store: {}", e.getMessage());
+            }
+        }
+        return resultStore;
+    }
+    
+    private long beginStoredRun(ResultStore store) {
+        if (store == null) {
+            return -1;
+        }
+        try {
+            return store.beginRun();
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("Not storing this batch: {}", e.getMessage());
+            return -1;
+        }
+    }
+    
+    private void storeResult(ResultStore store, long runId, File file, long contentHash, AnalysisResult result) {
+        try {
+            store.append(runId, file.getAbsolutePath(), contentHash, result);
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("Could not store result for {}: {}", file.getName(), e.getMessage());
+        }
+    }
+    
+    private void endStoredRun(ResultStore store, long runId) {
+        if (runId < 0) {
+            return;
+        }
+        try {
+            store.endRun(runId);
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("Could not finish stored run {}: {}", runId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Token change against the last run over the same files, if there was one.
+     */
+    private String compareWithPreviousRun(ResultStore store, long runId) {
+        if (runId < 1) {
+            return "";
+        }
+        try {
+            Optional<Long> comparable = store.findComparableRun(runId);
+            if (comparable.isEmpty()) {
+                return "";
+            }
+            RunTotals current = store.totals(runId);
+            RunTotals previous = store.totals(comparable.get());
+            return String.format(" (%,d tokens, %+.1f%% vs previous run over the same files)", current.totalTokens(),
+                current.getTokenChange(previous));
+        } catch (IOException e) {
+            logger.warn("Could not compare with the previous run: {}", e.getMessage());
+            return "";
+        }
+    }
+    
+    @FXML
+    private void handleToggleSkipDuplicates() {
+        boolean skip = skipDuplicatesMenuItem.isSelected();
+        tokenEngine.setSkipDuplicates(skip);
+        statusLabel.setText(skip
+            ? "Near-duplicates in batches will be counted but not analyzed"
+            : "Near-duplicates in batches will be analyzed");
+    }
+    
+    @FXML
+    private void handleToggleArchiveTokens() {
+        boolean archive = archiveTokensMenuItem.isSelected();
+        tokenEngine.setArchiveTokens(archive);
+        statusLabel.setText(archive
+            ? "Token IDs of analyzed documents will be archived for corpus queries"
+            : "Token IDs will not be archived");
+    }
+    
+    private void updateBatchProgress() {
+        BatchProgressTracker tracker = batchProgress;
+        if (!batchProgressBar.isVisible() || tracker == null) {
+            return;
+        }
+        
+        BatchProgress progress = tracker.snapshot(null);
+        batchProgressBar.setProgress(progress.getFraction());
+        progressLabel.setText(String.format("Processing %d/%d files (%.1f of %.1f MB) - %s - %d extracting, %d queued, %d analyzing (%s) - ETA %s",
+            progress.completedFiles(), progress.totalFiles(),
+            progress.processedBytes() / (1024.0 * 1024), progress.totalBytes() / (1024.0 * 1024),
+            progress.getFormattedThroughput(), progress.extracting(), progress.awaitingAnalysis(),
+            progress.analyzing(), progress.getBottleneck(), progress.getFormattedEta()));
+        refreshBatchSummary(tracker);
+    }
+    
+    /**
+     * Takes a live summary snapshot off the FX thread, at most one at a time and no more
+     * often than {@link #SUMMARY_REFRESH_NANOS}, since percentiles and top-K lists are not
+     * cheap enough to rebuild every frame. Results from a finished or replaced run are dropped.
+     */
+    private void refreshBatchSummary(BatchProgressTracker tracker) {
+        long now = System.nanoTime();
+        if (now - lastSummaryRefresh < SUMMARY_REFRESH_NANOS || !summaryRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        lastSummaryRefresh = now;
+        
+        CompletableFuture.supplyAsync(batchAggregator::snapshot)
+            .whenComplete((summary, throwable) -> Platform.runLater(() -> {
+                summaryRefreshPending.set(false);
+                if (summary != null && batchProgress == tracker && batchProgressBar.isVisible()) {
+                    displayBatchSummary(summary);
+                } else if (throwable != null) {
+                    logger.warn("Failed to refresh batch summary: {}", throwable.getMessage());
+                }
+            }));
+    }
+    
     @FXML
     private void handleOpenMultipleFiles() {
         FileChooser fileChooser = new FileChooser();
@@ -276,6 +574,7 @@ public class MainController implements Initializable {
         selectedFiles = fileChooser.showOpenMultipleDialog(stage);
         
         if (selectedFiles != null && !selectedFiles.isEmpty()) {
+            stopWatching();
             inputTextArea.setText("Selected " + selectedFiles.size() + " files for batch processing:\n" +
                 selectedFiles.stream()
                     .map(File::getName)
@@ -294,6 +593,72 @@ public class MainController implements Initializable {
         }
     }
     
+    @FXML
+    private void handleWatchDirectory() {
+        if (directoryWatcher != null) {
+            stopWatching();
+            statusLabel.setText("Stopped watching directory");
+            return;
+        }
+        
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Directory to Watch");
+        
+        Stage stage = (Stage) inputTextArea.getScene().getWindow();
+        File directory = directoryChooser.showDialog(stage);
+        
+        if (directory == null) {
+            return;
+        }
+        
+        // Watch mode takes over the batch tab
+        selectedFiles = null;
+        analyzeBatchButton.setVisible(false);
+        batchTableModel.clear();
+        batchResultTab.setDisable(false);
+        resultsTabPane.getSelectionModel().select(batchResultTab);
+        
+        try {
+            directoryWatcher = new DirectoryWatcher(fileProcessor, tokenEngine, encodingComboBox.getValue(),
+                directory, true, update -> Platform.runLater(() -> applyCorpusUpdate(update)));
+            directoryWatcher.start();
+            
+            watchDirectoryMenuItem.setText("Stop Watching");
+            statusLabel.setText("Watching " + directory.getAbsolutePath());
+            logger.info("Started watch mode for {}", directory.getAbsolutePath());
+            
+        } catch (IOException e) {
+            stopWatching();
+            ErrorHandler.logError("directory watch", e, "directory", directory.getAbsolutePath());
+            showError("Watch Error", ErrorHandler.getUserFriendlyMessage(e));
+            statusLabel.setText("Failed to watch directory");
+        }
+    }
+    
+    private void applyCorpusUpdate(DirectoryWatcher.CorpusUpdate update) {
+        if (directoryWatcher == null) {
+            return; // Late update from a watcher that was already stopped
+        }
+        
+        String name = directoryWatcher.getRootDirectory().relativize(update.file()).toString();
+        switch (update.type()) {
+            case ANALYZED -> batchTableModel.upsert(createBatchRow(name, update.result()));
+            case FAILED -> batchTableModel.upsert(createErrorRow(name, update.error()));
+            case REMOVED -> batchTableModel.remove(name);
+        }
+        
+        displayCorpusSummary(update.summary());
+        statusLabel.setText("Watching " + directoryWatcher.getRootDirectory() + " - last change: " + name);
+    }
+    
+    private void stopWatching() {
+        if (directoryWatcher != null) {
+            directoryWatcher.close();
+            directoryWatcher = null;
+        }
+        watchDirectoryMenuItem.setText("Watch Directory...");
+    }
+    
     @FXML
     private void handleAnalyze() {
         String text = inputTextArea.getText().trim();
@@ -380,9 +745,10 @@ public class MainController implements Initializable {
     
     @FXML
     private void handleClear() {
+        stopWatching();
         inputTextArea.clear();
         resultsTable.getItems().clear();
-        batchResultsTable.getItems().clear();
+        batchTableModel.clear();
         statusLabel.setText("Ready");
         analyzeButton.setDisable(true);
         
@@ -400,45 +766,48 @@ public class MainController implements Initializable {
         batchSummarySection.setVisible(false);
     }
     
-    private void calculateAndDisplayBatchSummary() {
-        if (batchResultsTable.getItems().isEmpty()) {
+    private void displayBatchSummary(BatchSummary summary) {
+        if (summary.getTotalFiles() == 0) {
             return;
         }
         
-        var items = batchResultsTable.getItems();
-        int totalFiles = items.size();
-        int successfulFiles = 0;
-        long totalTokens = 0;
-        double totalReadability = 0;
-        int readabilityCount = 0;
-        
-        for (var item : items) {
-            if ("Completed".equals(item.status())) {
-                successfulFiles++;
-                
-                // Parse tokens (handle "N/A" case)
-                try {
-                    totalTokens += Long.parseLong(item.tokens());
-                } catch (NumberFormatException e) {
-                    // Skip if not a number
-                }
-                
-                // Parse readability (handle "N/A" case)
-                try {
-                    double readability = Double.parseDouble(item.readability());
-                    totalReadability += readability;
-                    readabilityCount++;
-                } catch (NumberFormatException e) {
-                    // Skip if not a number
-                }
-            }
+        displaySummary(summary.getTotalFiles(), summary.totalTokens(), summary.avgTokens(),
+            summary.avgReadability(), summary.getSuccessRate());
+        summaryTokenDistribution.setText(summary.getTokenDistribution());
+        summaryDistinctTokens.setText(String.format("~%,d", summary.distinctTokens()));
+        summaryDistinctWords.setText(String.format("~%,d", summary.distinctWords()));
+        summaryTopTokens.setText(summary.getTopTokensText(TOP_ITEMS_SHOWN));
+        summaryTopWords.setText(summary.getTopWordsText(TOP_ITEMS_SHOWN));
+        summaryTopTrigrams.setText(summary.getTopTrigramsText(TOP_ITEMS_SHOWN));
+        summaryDuplicates.setText(summary.getDuplicatesText());
+    }
+    
+    private static String formatByExtension(Map<String, ColumnSummary> byExtension) {
+        if (byExtension.isEmpty()) {
+            return "N/A";
         }
-        
-        // Calculate averages
-        double avgTokens = successfulFiles > 0 ? (double) totalTokens / successfulFiles : 0;
-        double avgReadability = readabilityCount > 0 ? totalReadability / readabilityCount : 0;
-        double successRate = totalFiles > 0 ? (double) successfulFiles / totalFiles * 100 : 0;
-        
+        return byExtension.entrySet().stream()
+            .map(entry -> String.format("%s: %,.0f / %,.0f / %,.0f (%,d files)",
+                entry.getKey().isEmpty() ? "(none)" : entry.getKey(),
+                entry.getValue().p50(), entry.getValue().p90(), entry.getValue().p99(), entry.getValue().count()))
+            .collect(Collectors.joining("   "));
+    }
+    
+    private void displayCorpusSummary(CorpusSummary summary) {
+        displaySummary(summary.getTrackedFiles(), summary.totalTokens(), summary.avgTokens(),
+            summary.avgReadability(), summary.getSuccessRate());
+        summaryTokenDistribution.setText("N/A");
+        summaryDistinctTokens.setText("N/A");
+        summaryDistinctWords.setText("N/A");
+        summaryTopTokens.setText("N/A");
+        summaryTopWords.setText("N/A");
+        summaryTopTrigrams.setText("N/A");
+        summaryByExtension.setText("N/A");
+        summaryDuplicates.setText("N/A");
+    }
+    
+    private void displaySummary(int totalFiles, long totalTokens, double avgTokens,
+                                double avgReadability, double successRate) {
         // Update summary labels
         summaryFilesProcessed.setText(String.valueOf(totalFiles));
         summaryTotalTokens.setText(String.format("%,d", totalTokens));
@@ -448,9 +817,6 @@ public class MainController implements Initializable {
         
         // Show summary section
         batchSummarySection.setVisible(true);
-        
-        logger.info("Batch summary calculated: {} files, {} tokens total, {:.1f}% success rate", 
-            totalFiles, totalTokens, successRate);
     }
     
     @FXML
@@ -490,8 +856,80 @@ public class MainController implements Initializable {
         alert.showAndWait();
     }
     
+    private BatchResultRow createBatchRow(String name, AnalysisResult result) {
+        return new BatchResultRow(
+            name,
+            String.valueOf(result.totalTokens()),
+            String.valueOf(result.uniqueTokens()),
+            String.format(Locale.ROOT, "%.1f", result.fleschScore()),
+            result.getComplexityLevel(),
+            "Completed",
+            result.totalTokens(),
+            result.uniqueTokens(),
+            result.fleschScore()
+        );
+    }
+    
+    private BatchResultRow createBatchRow(String name, DocumentAnalysis analysis) {
+        if (analysis.isSkipped()) {
+            return new BatchResultRow(
+                name,
+                String.valueOf(analysis.result().totalTokens()),
+                "N/A",
+                "N/A",
+                "N/A",
+                analysis.duplicate().getDescription(),
+                analysis.result().totalTokens(),
+                Double.NaN,
+                Double.NaN
+            );
+        }
+        BatchResultRow row = createBatchRow(name, analysis.result());
+        if (!analysis.isDuplicate()) {
+            return row;
+        }
+        return new BatchResultRow(row.fileName(), row.tokens(), row.uniqueTokens(), row.readability(),
+            row.complexity(), analysis.duplicate().getDescription(), row.tokenCount(), row.uniqueTokenCount(),
+            row.fleschScore());
+    }
+    
+    private BatchResultRow createTimeoutRow(String name, AnalysisTimeoutException timeout) {
+        return new BatchResultRow(
+            name,
+            "N/A",
+            "N/A",
+            "N/A",
+            "N/A",
+            "Timed out during " + timeout.getStage(),
+            Double.NaN,
+            Double.NaN,
+            Double.NaN
+        );
+    }
+    
+    private BatchResultRow createErrorRow(String name, String error) {
+        return new BatchResultRow(
+            name,
+            "N/A",
+            "N/A",
+            "N/A",
+            "N/A",
+            "Error: " + error,
+            Double.NaN,
+            Double.NaN,
+            Double.NaN
+        );
+    }
+    
+    private record StoredAnalysis(DocumentAnalysis analysis, long contentHash) {}
+    
     public record MetricRow(String metric, String value, String description) {}
     
+    /**
+     * A batch table row: display text plus the numeric keys its columns sort by, NaN
+     * where the value is missing.
+     */
     public record BatchResultRow(String fileName, String tokens, String uniqueTokens, 
-                                String readability, String complexity, String status) {}
+                                String readability, String complexity, String status,
+                                double tokenCount, double uniqueTokenCount, double fleschScore) {}
 }
\ No newline at end of file
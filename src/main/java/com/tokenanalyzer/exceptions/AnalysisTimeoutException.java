@@ -0,0 +1,37 @@
+package com.tokenanalyzer.exceptions;
+
+/**
+ * Thrown when a file runs past its analysis deadline or its deadline is cancelled.
+ * Unchecked so it can leave extractor callbacks and asynchronous stages unchanged.
+ */
+public class AnalysisTimeoutException extends RuntimeException {
+    private final String fileName;
+    private final String stage;
+    private final long elapsedMillis;
+    private final long limitMillis;
+    
+    public AnalysisTimeoutException(String fileName, String stage, long elapsedMillis, long limitMillis) {
+        super(String.format("Timed out during %s of %s after %d ms (limit %d ms)",
+            stage, fileName, elapsedMillis, limitMillis));
+        this.fileName = fileName;
+        this.stage = stage;
+        this.elapsedMillis = elapsedMillis;
+        this.limitMillis = limitMillis;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public String getStage() {
+        return stage;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public long getLimitMillis() {
+        return limitMillis;
+    }
+}
\ No newline at end of file
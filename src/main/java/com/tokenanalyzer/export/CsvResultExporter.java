@@ -0,0 +1,169 @@
+package com.tokenanalyzer.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.FrequentItem;
+import com.tokenanalyzer.models.TokenInfo;
+
+/**
+ * RFC 4180 style CSV with a header row. Top tokens go in a single column as a JSON
+ * array of {@code {"text", "count"}} objects, since token text can contain any
+ * separator. Skipped near-duplicates have status {@code duplicate} and only their
+ * token count.
+ */
+class CsvResultExporter extends StreamingResultExporter {
+    private static final String HEADER = String.join(",",
+        "file_name", "status", "model", "file_size", "total_tokens", "unique_tokens",
+        "token_word_ratio", "avg_token_length", "content_density", "lexical_diversity",
+        "whitespace_ratio", "flesch_score", "complexity_score", "avg_sentence_length",
+        "processing_time_ms", "duplicate_cluster", "top_tokens", "error");
+    
+    private static final JsonFactory JSON = new JsonFactory();
+    
+    private final Writer writer;
+    
+    CsvResultExporter(Path target, ExportOptions options) throws IOException {
+        super(target, options);
+        this.writer = new BufferedWriter(new OutputStreamWriter(output(), StandardCharsets.UTF_8));
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+    
+    @Override
+    protected void writeResult(DocumentAnalysis analysis) throws IOException {
+        AnalysisResult result = analysis.result();
+        
+        StringWriter topTokens = new StringWriter();
+        try (JsonGenerator json = JSON.createGenerator(topTokens)) {
+            json.writeStartArray();
+            for (TokenInfo token : topTokens(analysis)) {
+                json.writeStartObject();
+                json.writeStringField("text", token.text());
+                json.writeNumberField("count", token.frequency());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        
+        writeRow(
+            result.fileName(),
+            analysis.isSkipped() ? "duplicate" : "completed",
+            result.model(),
+            String.valueOf(result.fileSize()),
+            String.valueOf(result.totalTokens()),
+            String.valueOf(result.uniqueTokens()),
+            format(result.tokenWordRatio()),
+            format(result.avgTokenLength()),
+            format(result.contentDensity()),
+            format(result.lexicalDiversity()),
+            format(result.whitespaceRatio()),
+            format(result.fleschScore()),
+            format(result.complexityScore()),
+            format(result.avgSentenceLength()),
+            String.valueOf(result.processingTime()),
+            analysis.duplicate() != null ? String.valueOf(analysis.duplicate().clusterId()) : "",
+            topTokens.toString(),
+            ""
+        );
+    }
+    
+    @Override
+    protected void writeFailureRecord(String fileName, String status, String error) throws IOException {
+        writeRow(fileName, status, "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", error);
+    }
+    
+    /**
+     * Corpus row; the top_tokens column holds a JSON object with the file counts, token
+     * percentiles and the frequent {@code tokens}, {@code words}, {@code bigrams} and
+     * {@code trigrams}, named as in the JSON Lines summary record.
+     */
+    @Override
+    protected void writeSummaryRecord(BatchSummary summary) throws IOException {
+        StringWriter frequent = new StringWriter();
+        try (JsonGenerator json = JSON.createGenerator(frequent)) {
+            json.writeStartObject();
+            json.writeNumberField("files", summary.successfulFiles());
+            json.writeNumberField("failedFiles", summary.failedFiles());
+            json.writeNumberField("duplicateFiles", summary.duplicateFiles());
+            json.writeNumberField("skippedFiles", summary.skippedFiles());
+            json.writeNumberField("p50Tokens", summary.p50Tokens());
+            json.writeNumberField("p90Tokens", summary.p90Tokens());
+            json.writeNumberField("p99Tokens", summary.p99Tokens());
+            writeItems(json, "tokens", summary.topTokens());
+            writeItems(json, "words", summary.topWords());
+            writeItems(json, "bigrams", summary.topBigrams());
+            writeItems(json, "trigrams", summary.topTrigrams());
+            json.writeEndObject();
+        }
+        writeRow(SUMMARY_NAME, "summary", "", "", String.valueOf(summary.totalTokens()),
+            String.valueOf(summary.distinctTokens()), "", "", "", "", "", "", "", "", "", "",
+            frequent.toString(), "");
+    }
+    
+    private static void writeItems(JsonGenerator json, String field, List<FrequentItem> items) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (FrequentItem item : items) {
+            json.writeStartObject();
+            json.writeStringField("text", item.text());
+            json.writeNumberField("count", item.count());
+            json.writeNumberField("maxCount", item.maxCount());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+    
+    @Override
+    protected void flushWriter() throws IOException {
+        writer.flush();
+    }
+    
+    @Override
+    protected void closeWriter() throws IOException {
+        writer.close();
+    }
+    
+    private void writeRow(String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(values[i]);
+        }
+        writer.write('\n');
+    }
+    
+    private void writeField(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+    
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.tokenanalyzer.export;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public record ExportOptions(
+    Format format,
+    boolean gzip,
+    int topTokens,
+    int flushEveryRecords,
+    long flushIntervalMillis
+) {
+    public static final int DEFAULT_TOP_TOKENS = 10;
+    public static final int DEFAULT_FLUSH_EVERY_RECORDS = 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 2000;
+    
+    public enum Format {
+        JSON_LINES,
+        CSV
+    }
+    
+    /**
+     * Picks the format from the file name: {@code .csv} or {@code .csv.gz} for CSV,
+     * anything else as JSON Lines; a trailing {@code .gz} turns on compression.
+     */
+    public static ExportOptions forPath(Path target) {
+        String name = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) {
+            name = name.substring(0, name.length() - 3);
+        }
+        Format format = name.endsWith(".csv") ? Format.CSV : Format.JSON_LINES;
+        
+        return new ExportOptions(format, gzip, DEFAULT_TOP_TOKENS,
+            DEFAULT_FLUSH_EVERY_RECORDS, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+    
+    public ExportOptions withTopTokens(int topTokens) {
+        return new ExportOptions(format, gzip, topTokens, flushEveryRecords, flushIntervalMillis);
+    }
+}
\ No newline at end of file
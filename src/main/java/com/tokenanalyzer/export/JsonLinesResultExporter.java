@@ -0,0 +1,162 @@
+package com.tokenanalyzer.export;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.DuplicateCluster;
+import com.tokenanalyzer.models.FrequentItem;
+import com.tokenanalyzer.models.ReadabilitySample;
+import com.tokenanalyzer.models.SectionTokens;
+import com.tokenanalyzer.models.TokenInfo;
+
+/**
+ * One JSON object per line, written with Jackson's streaming generator.
+ */
+class JsonLinesResultExporter extends StreamingResultExporter {
+    private final JsonGenerator generator;
+    
+    JsonLinesResultExporter(Path target, ExportOptions options) throws IOException {
+        super(target, options);
+        this.generator = new JsonFactory().createGenerator(output(), JsonEncoding.UTF8);
+        // Flushing is driven by StreamingResultExporter, not by the generator
+        this.generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        // Records are separated by the newline written after each object
+        this.generator.setRootValueSeparator(null);
+    }
+    
+    @Override
+    protected void writeResult(DocumentAnalysis analysis) throws IOException {
+        AnalysisResult result = analysis.result();
+        
+        generator.writeStartObject();
+        generator.writeStringField("fileName", result.fileName());
+        generator.writeStringField("status", analysis.isSkipped() ? "duplicate" : "completed");
+        generator.writeStringField("model", result.model());
+        generator.writeNumberField("fileSize", result.fileSize());
+        generator.writeNumberField("totalTokens", result.totalTokens());
+        generator.writeNumberField("uniqueTokens", result.uniqueTokens());
+        generator.writeNumberField("tokenWordRatio", result.tokenWordRatio());
+        generator.writeNumberField("avgTokenLength", result.avgTokenLength());
+        generator.writeNumberField("contentDensity", result.contentDensity());
+        generator.writeNumberField("lexicalDiversity", result.lexicalDiversity());
+        generator.writeNumberField("whitespaceRatio", result.whitespaceRatio());
+        generator.writeNumberField("fleschScore", result.fleschScore());
+        generator.writeNumberField("complexityScore", result.complexityScore());
+        generator.writeNumberField("avgSentenceLength", result.avgSentenceLength());
+        generator.writeNumberField("processingTimeMs", result.processingTime());
+        
+        DuplicateCluster duplicate = analysis.duplicate();
+        if (duplicate != null) {
+            generator.writeObjectFieldStart("duplicateCluster");
+            generator.writeNumberField("id", duplicate.clusterId());
+            generator.writeBooleanField("duplicate", duplicate.duplicate());
+            if (duplicate.duplicate()) {
+                generator.writeStringField("representative", duplicate.representative());
+                generator.writeNumberField("similarity", duplicate.similarity());
+            }
+            generator.writeEndObject();
+        }
+        
+        ReadabilitySample sample = analysis.readabilitySample();
+        if (sample != null) {
+            generator.writeObjectFieldStart("readabilitySample");
+            generator.writeNumberField("windows", sample.windows());
+            generator.writeNumberField("sampledFraction", sample.sampledFraction());
+            generator.writeNumberField("fleschStdError", sample.fleschStdError());
+            generator.writeNumberField("complexityStdError", sample.complexityStdError());
+            generator.writeNumberField("lexicalDiversityStdError", sample.lexicalDiversityStdError());
+            generator.writeEndObject();
+        }
+        
+        if (!analysis.sections().isEmpty()) {
+            generator.writeArrayFieldStart("sections");
+            for (SectionTokens section : analysis.sections()) {
+                generator.writeStartObject();
+                generator.writeStringField("kind", section.section().kind());
+                generator.writeStringField("label", section.section().label());
+                generator.writeNumberField("start", section.section().start());
+                generator.writeNumberField("end", section.section().end());
+                generator.writeNumberField("tokens", section.tokens());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        
+        if (options.topTokens() > 0) {
+            generator.writeArrayFieldStart("topTokens");
+            for (TokenInfo token : topTokens(analysis)) {
+                generator.writeStartObject();
+                generator.writeStringField("text", token.text());
+                generator.writeNumberField("id", token.tokenId());
+                generator.writeNumberField("count", token.frequency());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+    
+    @Override
+    protected void writeFailureRecord(String fileName, String status, String error) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("fileName", fileName);
+        generator.writeStringField("status", status);
+        generator.writeStringField("error", error);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+    
+    @Override
+    protected void writeSummaryRecord(BatchSummary summary) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("fileName", SUMMARY_NAME);
+        generator.writeStringField("status", "summary");
+        generator.writeNumberField("files", summary.successfulFiles());
+        generator.writeNumberField("failedFiles", summary.failedFiles());
+        generator.writeNumberField("duplicateFiles", summary.duplicateFiles());
+        generator.writeNumberField("skippedFiles", summary.skippedFiles());
+        generator.writeNumberField("totalTokens", summary.totalTokens());
+        generator.writeNumberField("p50Tokens", summary.p50Tokens());
+        generator.writeNumberField("p90Tokens", summary.p90Tokens());
+        generator.writeNumberField("p99Tokens", summary.p99Tokens());
+        generator.writeNumberField("distinctTokens", summary.distinctTokens());
+        generator.writeNumberField("distinctWords", summary.distinctWords());
+        writeFrequentItems("topTokens", summary.topTokens());
+        writeFrequentItems("topWords", summary.topWords());
+        writeFrequentItems("topBigrams", summary.topBigrams());
+        writeFrequentItems("topTrigrams", summary.topTrigrams());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+    
+    private void writeFrequentItems(String field, List<FrequentItem> items) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (FrequentItem item : items) {
+            generator.writeStartObject();
+            generator.writeStringField("text", item.text());
+            generator.writeNumberField("count", item.count());
+            generator.writeNumberField("maxCount", item.maxCount());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+    
+    @Override
+    protected void flushWriter() throws IOException {
+        generator.flush();
+    }
+    
+    @Override
+    protected void closeWriter() throws IOException {
+        generator.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.tokenanalyzer.export;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+
+/**
+ * Writes analysis results to disk one record at a time as they complete.
+ * Implementations are thread-safe and hold no results in memory.
+ */
+public interface ResultExporter extends Closeable, Flushable {
+    void write(DocumentAnalysis analysis) throws IOException;
+    
+    void writeFailure(String fileName, String error) throws IOException;
+    
+    /**
+     * Records a file abandoned at its deadline, with status {@code timeout} rather than {@code error}.
+     */
+    void writeTimeout(String fileName, String error) throws IOException;
+    
+    /**
+     * Writes a trailing corpus record with the batch's most frequent tokens and words.
+     */
+    void writeSummary(BatchSummary summary) throws IOException;
+    
+    long getRecordCount();
+    
+    static ResultExporter open(Path target) throws IOException {
+        return open(target, ExportOptions.forPath(target));
+    }
+    
+    static ResultExporter open(Path target, ExportOptions options) throws IOException {
+        return switch (options.format()) {
+            case JSON_LINES -> new JsonLinesResultExporter(target, options);
+            case CSV -> new CsvResultExporter(target, options);
+        };
+    }
+}
\ No newline at end of file
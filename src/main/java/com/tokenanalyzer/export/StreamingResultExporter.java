@@ -0,0 +1,124 @@
+package com.tokenanalyzer.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.TokenInfo;
+
+/**
+ * Shared plumbing for the exporters: buffered (optionally gzip) output, record
+ * counting and flushing every N records or T milliseconds, whichever comes first.
+ */
+abstract class StreamingResultExporter implements ResultExporter {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingResultExporter.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    protected static final String SUMMARY_NAME = "(corpus)";
+    
+    protected final ExportOptions options;
+    private final Path target;
+    private final OutputStream output;
+    private final long flushIntervalNanos;
+    private long recordCount = 0;
+    private long lastFlushNanos = System.nanoTime();
+    
+    protected StreamingResultExporter(Path target, ExportOptions options) throws IOException {
+        this.target = target;
+        this.options = options;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(options.flushIntervalMillis());
+        
+        OutputStream stream = new BufferedOutputStream(Files.newOutputStream(target), BUFFER_SIZE);
+        if (options.gzip()) {
+            // syncFlush so periodic flushes make complete records readable on disk
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE, true);
+        }
+        this.output = stream;
+    }
+    
+    protected OutputStream output() {
+        return output;
+    }
+    
+    protected abstract void writeResult(DocumentAnalysis analysis) throws IOException;
+    
+    protected abstract void writeFailureRecord(String fileName, String status, String error) throws IOException;
+    
+    protected abstract void writeSummaryRecord(BatchSummary summary) throws IOException;
+    
+    protected abstract void flushWriter() throws IOException;
+    
+    protected abstract void closeWriter() throws IOException;
+    
+    @Override
+    public synchronized void write(DocumentAnalysis analysis) throws IOException {
+        writeResult(analysis);
+        recordWritten();
+    }
+    
+    @Override
+    public synchronized void writeFailure(String fileName, String error) throws IOException {
+        writeFailureRecord(fileName, "error", error);
+        recordWritten();
+    }
+    
+    @Override
+    public synchronized void writeTimeout(String fileName, String error) throws IOException {
+        writeFailureRecord(fileName, "timeout", error);
+        recordWritten();
+    }
+    
+    @Override
+    public synchronized void writeSummary(BatchSummary summary) throws IOException {
+        writeSummaryRecord(summary);
+        flush();
+    }
+    
+    @Override
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+    
+    @Override
+    public synchronized void flush() throws IOException {
+        flushWriter();
+        output.flush();
+        lastFlushNanos = System.nanoTime();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushWriter();
+            closeWriter();
+        } finally {
+            output.close();
+        }
+        logger.info("Exported {} records to {}", recordCount, target);
+    }
+    
+    protected List<TokenInfo> topTokens(DocumentAnalysis analysis) {
+        if (options.topTokens() <= 0 || analysis.tokenMetrics() == null) {
+            return List.of();
+        }
+        List<TokenInfo> mostFrequent = analysis.tokenMetrics().mostFrequent();
+        return mostFrequent.subList(0, Math.min(options.topTokens(), mostFrequent.size()));
+    }
+    
+    private void recordWritten() throws IOException {
+        recordCount++;
+        if (recordCount % options.flushEveryRecords() == 0
+                || System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+            flush();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.tokenanalyzer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.tokenanalyzer.AnalysisStage")
+@Label("Analysis Stage")
+@Description("One text analysis stage such as density or readability")
+@Category({"Token Analyzer", "Analysis"})
+@StackTrace(false)
+public class AnalysisStageEvent extends Event {
+    @Label("Stage")
+    public String stage;
+    
+    @Label("Characters")
+    public long characters;
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.tokenanalyzer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.tokenanalyzer.Extraction")
+@Label("Text Extraction")
+@Description("Text extracted from a single file by FileProcessor")
+@Category({"Token Analyzer", "Extraction"})
+@StackTrace(false)
+public class ExtractionEvent extends Event {
+    @Label("File")
+    public String file;
+    
+    @Label("Format")
+    public String format;
+    
+    @Label("File Size")
+    @DataAmount
+    public long bytes;
+    
+    @Label("Characters")
+    @Description("Length of the extracted text")
+    public long characters;
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.tokenanalyzer.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the bundled JFR settings ({@code /jfr/token-analyzer.jfc}), which enable the
+ * extraction, tokenization and stage events next to GC, thread and CPU events.
+ */
+public class FlightRecorderProfile {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderProfile.class);
+    private static final String PROFILE_RESOURCE = "/jfr/token-analyzer.jfc";
+    
+    public static Configuration load() throws IOException {
+        try (InputStream in = FlightRecorderProfile.class.getResourceAsStream(PROFILE_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("JFR profile not found on classpath: " + PROFILE_RESOURCE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            }
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR profile: " + PROFILE_RESOURCE, e);
+        }
+    }
+    
+    public static Recording startRecording(Path destination) throws IOException {
+        Recording recording = new Recording(load());
+        recording.setName("token-analyzer");
+        recording.setDestination(destination);
+        recording.setToDisk(true);
+        recording.setDumpOnExit(true);
+        recording.start();
+        
+        logger.info("Flight recording started, dumping to {} on exit", destination);
+        return recording;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.tokenanalyzer.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two nanosecond buckets. Recording is
+ * a handful of adder increments, so it is cheap enough to leave on in production;
+ * percentiles are interpolated within a bucket and therefore approximate.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketFor(value)].increment();
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+    
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n > 0 ? (double) totalNanos.sum() / n : 0.0;
+    }
+    
+    public double getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        
+        double rank = Math.min(1.0, Math.max(0.0, percentile / 100.0)) * total;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (seen + counts[i] >= rank) {
+                double lower = i == 0 ? 0 : Math.scalb(1.0, i - 1);
+                double upper = Math.min(Math.scalb(1.0, i), Math.max(lower, maxNanos.get()));
+                double fraction = (rank - seen) / counts[i];
+                return lower + (upper - lower) * fraction;
+            }
+            seen += counts[i];
+        }
+        return maxNanos.get();
+    }
+    
+    public LatencySnapshot snapshot() {
+        return new LatencySnapshot(
+            getCount(),
+            getTotalNanos(),
+            getMeanNanos(),
+            getPercentileNanos(50),
+            getPercentileNanos(90),
+            getPercentileNanos(99),
+            getMaxNanos()
+        );
+    }
+    
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+    
+    private static int bucketFor(long nanos) {
+        // Bucket i holds values in [2^(i-1), 2^i)
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+    
+    public record LatencySnapshot(
+        long count,
+        long totalNanos,
+        double meanNanos,
+        double p50Nanos,
+        double p90Nanos,
+        double p99Nanos,
+        long maxNanos
+    ) {}
+}
\ No newline at end of file
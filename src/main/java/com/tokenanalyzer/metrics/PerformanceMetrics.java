@@ -0,0 +1,250 @@
+package com.tokenanalyzer.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Process-wide per-stage latency histograms and throughput counters.
+ * Registered under the {@code com.tokenanalyzer} JMX domain on first use,
+ * with one MBean for the totals and one per analysis stage.
+ */
+public class PerformanceMetrics implements PerformanceMetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceMetrics.class);
+    private static final String JMX_DOMAIN = "com.tokenanalyzer";
+    
+    public static final String STAGE_READ = "read";
+    public static final String STAGE_ENCODE = "encode";
+    public static final String STAGE_HISTOGRAM = "histogram";
+    public static final String STAGE_AVG_TOKEN_LENGTH = "avg-token-length";
+    public static final String STAGE_DENSITY = "density";
+    public static final String STAGE_READABILITY = "readability";
+    public static final String STAGE_ANALYSIS = "analysis";
+    public static final String STAGE_TRUNCATE = "truncate";
+    public static final String STAGE_DEDUP = "dedup";
+    public static final String STAGE_NGRAMS = "ngrams";
+    
+    private static final PerformanceMetrics INSTANCE = new PerformanceMetrics(true);
+    
+    private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+    private final LongAdder documentsAnalyzed = new LongAdder();
+    private final LongAdder filesExtracted = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder charactersAnalyzed = new LongAdder();
+    private final LongAdder tokensProduced = new LongAdder();
+    private final boolean registerWithJmx;
+    private volatile long startNanos = System.nanoTime();
+    
+    PerformanceMetrics(boolean registerWithJmx) {
+        this.registerWithJmx = registerWithJmx;
+        if (registerWithJmx) {
+            register(this, JMX_DOMAIN + ":type=PerformanceMetrics");
+        }
+    }
+    
+    public static PerformanceMetrics getInstance() {
+        return INSTANCE;
+    }
+    
+    public static String extractStage(String format) {
+        return "extract." + (format == null || format.isEmpty() ? "unknown" : format);
+    }
+    
+    public void recordStage(String stage, long nanos) {
+        stages.computeIfAbsent(stage, this::createStage).record(nanos);
+    }
+    
+    public void recordExtraction(String format, long bytes, long nanos) {
+        recordStage(extractStage(format), nanos);
+        filesExtracted.increment();
+        bytesRead.add(bytes);
+    }
+    
+    public void recordAnalysis(long characters, long tokens, long nanos) {
+        recordStage(STAGE_ANALYSIS, nanos);
+        documentsAnalyzed.increment();
+        charactersAnalyzed.add(characters);
+        tokensProduced.add(tokens);
+    }
+    
+    public LatencyHistogram getStage(String stage) {
+        return stages.get(stage);
+    }
+    
+    @Override
+    public long getDocumentsAnalyzed() {
+        return documentsAnalyzed.sum();
+    }
+    
+    @Override
+    public long getFilesExtracted() {
+        return filesExtracted.sum();
+    }
+    
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+    
+    @Override
+    public long getCharactersAnalyzed() {
+        return charactersAnalyzed.sum();
+    }
+    
+    @Override
+    public long getTokensProduced() {
+        return tokensProduced.sum();
+    }
+    
+    @Override
+    public double getBytesPerSecond() {
+        double seconds = getUptimeSeconds();
+        return seconds > 0 ? bytesRead.sum() / seconds : 0.0;
+    }
+    
+    @Override
+    public double getTokensPerSecond() {
+        double seconds = getUptimeSeconds();
+        return seconds > 0 ? tokensProduced.sum() / seconds : 0.0;
+    }
+    
+    @Override
+    public double getUptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+    
+    @Override
+    public String[] getStageNames() {
+        return new TreeMap<>(stages).keySet().toArray(String[]::new);
+    }
+    
+    @Override
+    public String dumpJson() {
+        try {
+            return new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValueAsString(toMap());
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize performance metrics", e);
+            return "{}";
+        }
+    }
+    
+    public void dumpJson(Path target) throws IOException {
+        new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(target.toFile(), toMap());
+        logger.info("Performance metrics written to {}", target);
+    }
+    
+    @Override
+    public void reset() {
+        stages.values().forEach(LatencyHistogram::reset);
+        documentsAnalyzed.reset();
+        filesExtracted.reset();
+        bytesRead.reset();
+        charactersAnalyzed.reset();
+        tokensProduced.reset();
+        startNanos = System.nanoTime();
+    }
+    
+    private Map<String, Object> toMap() {
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("uptimeSeconds", getUptimeSeconds());
+        throughput.put("documentsAnalyzed", getDocumentsAnalyzed());
+        throughput.put("filesExtracted", getFilesExtracted());
+        throughput.put("bytesRead", getBytesRead());
+        throughput.put("charactersAnalyzed", getCharactersAnalyzed());
+        throughput.put("tokensProduced", getTokensProduced());
+        throughput.put("bytesPerSecond", getBytesPerSecond());
+        throughput.put("tokensPerSecond", getTokensPerSecond());
+        
+        Map<String, Object> stageMap = new TreeMap<>();
+        stages.forEach((name, histogram) -> stageMap.put(name, histogram.snapshot()));
+        
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("throughput", throughput);
+        root.put("stages", stageMap);
+        return root;
+    }
+    
+    private LatencyHistogram createStage(String stage) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (registerWithJmx) {
+            register(new StageLatency(stage, histogram),
+                JMX_DOMAIN + ":type=StageLatency,name=" + ObjectName.quote(stage));
+        }
+        return histogram;
+    }
+    
+    private static void register(Object mbean, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            logger.warn("Could not register MBean {}: {}", name, e.getMessage());
+        }
+    }
+    
+    private record StageLatency(String stage, LatencyHistogram histogram) implements StageLatencyMXBean {
+        @Override
+        public String getStage() {
+            return stage;
+        }
+        
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+        
+        @Override
+        public double getTotalMillis() {
+            return histogram.getTotalNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+        
+        @Override
+        public double getMeanMicros() {
+            return histogram.getMeanNanos() / 1_000.0;
+        }
+        
+        @Override
+        public double getP50Micros() {
+            return histogram.getPercentileNanos(50) / 1_000.0;
+        }
+        
+        @Override
+        public double getP90Micros() {
+            return histogram.getPercentileNanos(90) / 1_000.0;
+        }
+        
+        @Override
+        public double getP99Micros() {
+            return histogram.getPercentileNanos(99) / 1_000.0;
+        }
+        
+        @Override
+        public double getMaxMicros() {
+            return histogram.getMaxNanos() / 1_000.0;
+        }
+    }
+}
\ No newline at end of file
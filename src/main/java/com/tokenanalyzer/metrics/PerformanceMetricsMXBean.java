@@ -0,0 +1,25 @@
+package com.tokenanalyzer.metrics;
+
+public interface PerformanceMetricsMXBean {
+    long getDocumentsAnalyzed();
+    
+    long getFilesExtracted();
+    
+    long getBytesRead();
+    
+    long getCharactersAnalyzed();
+    
+    long getTokensProduced();
+    
+    double getBytesPerSecond();
+    
+    double getTokensPerSecond();
+    
+    double getUptimeSeconds();
+    
+    String[] getStageNames();
+    
+    String dumpJson();
+    
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.tokenanalyzer.metrics;
+
+public interface StageLatencyMXBean {
+    String getStage();
+    
+    long getCount();
+    
+    double getTotalMillis();
+    
+    double getMeanMicros();
+    
+    double getP50Micros();
+    
+    double getP90Micros();
+    
+    double getP99Micros();
+    
+    double getMaxMicros();
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.tokenanalyzer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.tokenanalyzer.Tokenization")
+@Label("Tokenization")
+@Description("Encoding of one text by TokenEngine and the token metrics calculated from it")
+@Category({"Token Analyzer", "Tokenization"})
+@StackTrace(false)
+public class TokenizationEvent extends Event {
+    @Label("Encoding")
+    public String encoding;
+    
+    @Label("Model")
+    public String model;
+    
+    @Label("Characters")
+    public long characters;
+    
+    @Label("Tokens")
+    public long tokens;
+}
\ No newline at end of file
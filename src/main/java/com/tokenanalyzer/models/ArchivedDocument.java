@@ -0,0 +1,17 @@
+package com.tokenanalyzer.models;
+
+/**
+ * Entry of a document in a token archive. {@code bytes} is the size of its encoded
+ * token stream.
+ */
+public record ArchivedDocument(
+    int index,
+    String name,
+    long contentHash,
+    int tokenCount,
+    long bytes
+) {
+    public double getBytesPerToken() {
+        return tokenCount > 0 ? (double) bytes / tokenCount : 0.0;
+    }
+}
\ No newline at end of file
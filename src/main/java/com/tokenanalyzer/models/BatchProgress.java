@@ -0,0 +1,72 @@
+package com.tokenanalyzer.models;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time progress of a batch. Progress and ETA are weighted by bytes rather
+ * than file count, and the stage counts show whether files are waiting on extraction
+ * (I/O-bound) or queuing for analysis (CPU-bound).
+ */
+public record BatchProgress(
+    int completedFiles,
+    int totalFiles,
+    long processedBytes,
+    long totalBytes,
+    long totalTokens,
+    int extracting,
+    int awaitingAnalysis,
+    int analyzing,
+    long elapsedNanos,
+    double bytesPerSecond,
+    double tokensPerSecond,
+    double filesPerSecond,
+    long etaNanos,
+    String currentFile
+) {
+    /**
+     * Fraction done by bytes, or by files when the batch has no bytes to weigh.
+     */
+    public double getFraction() {
+        if (totalBytes > 0) {
+            return Math.min(1.0, (double) processedBytes / totalBytes);
+        }
+        return totalFiles > 0 ? (double) completedFiles / totalFiles : 1.0;
+    }
+    
+    public int getInFlight() {
+        return extracting + awaitingAnalysis + analyzing;
+    }
+    
+    public boolean hasEta() {
+        return etaNanos >= 0;
+    }
+    
+    /**
+     * "CPU-bound" when extracted files queue for analysis, "I/O-bound" when only
+     * extraction is busy.
+     */
+    public String getBottleneck() {
+        if (awaitingAnalysis > 0) {
+            return "CPU-bound";
+        }
+        if (extracting > 0 && analyzing == 0) {
+            return "I/O-bound";
+        }
+        return "balanced";
+    }
+    
+    public String getFormattedEta() {
+        if (!hasEta()) {
+            return "--";
+        }
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(etaNanos);
+        if (seconds < 60) return seconds + "s";
+        if (seconds < 3600) return String.format("%dm %02ds", seconds / 60, seconds % 60);
+        return String.format("%dh %02dm", seconds / 3600, seconds % 3600 / 60);
+    }
+    
+    public String getFormattedThroughput() {
+        double megabytes = bytesPerSecond / (1024 * 1024);
+        return String.format("%.1f MB/s, %,.0f tokens/s, %.1f files/s", megabytes, tokensPerSecond, filesPerSecond);
+    }
+}
\ No newline at end of file
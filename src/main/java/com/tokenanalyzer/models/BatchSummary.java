@@ -0,0 +1,75 @@
+package com.tokenanalyzer.models;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public record BatchSummary(
+    int successfulFiles,
+    int failedFiles,
+    int duplicateFiles,
+    int skippedFiles,
+    long totalTokens,
+    double avgTokens,
+    long minTokens,
+    long maxTokens,
+    long p50Tokens,
+    long p90Tokens,
+    long p99Tokens,
+    double avgReadability,
+    double minReadability,
+    double maxReadability,
+    double avgProcessingTime,
+    long distinctTokens,
+    long distinctWords,
+    List<FrequentItem> topTokens,
+    List<FrequentItem> topWords,
+    List<FrequentItem> topBigrams,
+    List<FrequentItem> topTrigrams
+) {
+    /**
+     * Includes near-duplicates that were skipped, which are not in the token statistics.
+     */
+    public int getTotalFiles() {
+        return successfulFiles + skippedFiles + failedFiles;
+    }
+    
+    public double getSuccessRate() {
+        int total = getTotalFiles();
+        return total > 0 ? (double) (successfulFiles + skippedFiles) / total * 100 : 0.0;
+    }
+    
+    public String getDuplicatesText() {
+        if (duplicateFiles == 0) return "None";
+        return skippedFiles > 0
+            ? String.format("%,d (skipped)", duplicateFiles)
+            : String.format("%,d", duplicateFiles);
+    }
+    
+    public String getTopTokensText(int limit) {
+        return formatTop(topTokens, limit);
+    }
+    
+    public String getTopWordsText(int limit) {
+        return formatTop(topWords, limit);
+    }
+    
+    /**
+     * Most frequent token trigrams, the usual sign of boilerplate repeated across documents.
+     */
+    public String getTopTrigramsText(int limit) {
+        return formatTop(topTrigrams, limit);
+    }
+    
+    private static String formatTop(List<FrequentItem> items, int limit) {
+        if (items.isEmpty()) return "N/A";
+        return items.stream()
+            .limit(limit)
+            .map(item -> String.format("\"%s\" (%,d)", item.text().replace("\n", "\\n"), item.count()))
+            .collect(Collectors.joining(", "));
+    }
+    
+    public String getTokenDistribution() {
+        if (successfulFiles == 0) return "N/A";
+        return String.format("%,d / %,d / %,d / %,d / %,d", minTokens, p50Tokens, p90Tokens, p99Tokens, maxTokens);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.tokenanalyzer.models;
+
+/**
+ * Aggregates over one column of a result set, or of one group within it. Percentiles
+ * come from a histogram over the column's range, exact for small integer ranges.
+ */
+public record ColumnSummary(
+    long count,
+    double sum,
+    double mean,
+    double min,
+    double max,
+    double p50,
+    double p90,
+    double p99
+) {
+    public static final ColumnSummary EMPTY = new ColumnSummary(0, 0, 0, 0, 0, 0, 0, 0);
+    
+    public String getDistribution() {
+        if (count == 0) return "N/A";
+        return String.format("%,.0f / %,.0f / %,.0f / %,.0f / %,.0f", min, p50, p90, p99, max);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.tokenanalyzer.models;
+
+public record CorpusSummary(
+    int fileCount,
+    int failedCount,
+    long totalTokens,
+    double avgTokens,
+    double avgReadability
+) {
+    public int getTrackedFiles() {
+        return fileCount + failedCount;
+    }
+    
+    public double getSuccessRate() {
+        int tracked = getTrackedFiles();
+        return tracked > 0 ? (double) fileCount / tracked * 100 : 0.0;
+    }
+}
\ No newline at end of file
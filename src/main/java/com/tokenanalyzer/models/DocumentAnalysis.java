@@ -0,0 +1,43 @@
+package com.tokenanalyzer.models;
+
+import java.util.List;
+
+/**
+ * {@code readabilitySample} is only set when readability was estimated from samples,
+ * and {@code duplicate} only for batch documents checked for near-duplicates. A skipped
+ * duplicate carries just its token count, without metrics or sketches. {@code sections}
+ * is empty unless the document was analyzed with its extracted sections.
+ */
+public record DocumentAnalysis(
+    AnalysisResult result,
+    TokenMetrics tokenMetrics,
+    ReadabilitySample readabilitySample,
+    DocumentSketches sketches,
+    DuplicateCluster duplicate,
+    List<SectionTokens> sections
+) {
+    public DocumentAnalysis(AnalysisResult result, TokenMetrics tokenMetrics) {
+        this(result, tokenMetrics, null, null, null);
+    }
+    
+    public DocumentAnalysis(AnalysisResult result, TokenMetrics tokenMetrics, ReadabilitySample readabilitySample,
+                            DocumentSketches sketches, DuplicateCluster duplicate) {
+        this(result, tokenMetrics, readabilitySample, sketches, duplicate, List.of());
+    }
+    
+    public String getFileName() {
+        return result.fileName();
+    }
+    
+    public boolean isSampled() {
+        return readabilitySample != null;
+    }
+    
+    public boolean isDuplicate() {
+        return duplicate != null && duplicate.duplicate();
+    }
+    
+    public boolean isSkipped() {
+        return duplicate != null && duplicate.skipped();
+    }
+}
\ No newline at end of file
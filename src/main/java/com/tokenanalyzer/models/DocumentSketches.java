@@ -0,0 +1,25 @@
+package com.tokenanalyzer.models;
+
+import com.tokenanalyzer.utils.HeavyHitters;
+import com.tokenanalyzer.utils.HyperLogLog;
+import com.tokenanalyzer.utils.NgramCounter;
+
+/**
+ * Mergeable sketches of a document: distinct-count sketches of its token IDs and
+ * case-folded words, a bounded summary of its most frequent words, and its token
+ * bigram and trigram counts when n-gram statistics are enabled.
+ */
+public record DocumentSketches(
+    HyperLogLog tokens,
+    HyperLogLog words,
+    HeavyHitters<String> frequentWords,
+    NgramCounter ngrams
+) {
+    public long estimateDistinctTokens() {
+        return tokens.estimate();
+    }
+    
+    public long estimateDistinctWords() {
+        return words.estimate();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.tokenanalyzer.models;
+
+/**
+ * Near-duplicate cluster of a document within a batch. The cluster ID is the batch
+ * position of its first document, which is the representative the others matched;
+ * {@code similarity} is the estimated Jaccard similarity to that representative.
+ */
+public record DuplicateCluster(
+    int clusterId,
+    String representative,
+    double similarity,
+    boolean duplicate,
+    boolean skipped
+) {
+    public String getDescription() {
+        if (!duplicate) return "Unique";
+        return String.format("%s %s (%.0f%% similar, cluster %d)",
+            skipped ? "Skipped, duplicate of" : "Near-duplicate of", representative, similarity * 100, clusterId);
+    }
+}
\ No newline at end of file
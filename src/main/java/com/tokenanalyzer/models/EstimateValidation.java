@@ -0,0 +1,63 @@
+package com.tokenanalyzer.models;
+
+import java.util.List;
+
+public record EstimateValidation(
+    String encoding,
+    List<Entry> entries
+) {
+    public record Entry(
+        String fileName,
+        String format,
+        TokenEstimate estimate,
+        long exactTokens,
+        long estimateNanos,
+        long exactNanos
+    ) {
+        public double getErrorPercent() {
+            return exactTokens > 0 ? (estimate.tokens() - exactTokens) * 100.0 / exactTokens : 0.0;
+        }
+        
+        public boolean isWithinInterval() {
+            return estimate.contains(exactTokens);
+        }
+    }
+    
+    public double getMeanAbsoluteErrorPercent() {
+        return entries.stream().mapToDouble(e -> Math.abs(e.getErrorPercent())).average().orElse(0.0);
+    }
+    
+    public double getMaxAbsoluteErrorPercent() {
+        return entries.stream().mapToDouble(e -> Math.abs(e.getErrorPercent())).max().orElse(0.0);
+    }
+    
+    /**
+     * Share of files whose exact count fell inside the reported interval.
+     */
+    public double getCoveragePercent() {
+        return entries.isEmpty() ? 0.0
+            : entries.stream().filter(Entry::isWithinInterval).count() * 100.0 / entries.size();
+    }
+    
+    public double getSpeedup() {
+        long estimateNanos = entries.stream().mapToLong(Entry::estimateNanos).sum();
+        long exactNanos = entries.stream().mapToLong(Entry::exactNanos).sum();
+        return estimateNanos > 0 ? (double) exactNanos / estimateNanos : 0.0;
+    }
+    
+    public String toReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Token estimate validation (%s, %d files)%n", encoding, entries.size()));
+        report.append(String.format("%-40s %-6s %-10s %12s %12s %25s %8s%n",
+            "File", "Format", "Method", "Exact", "Estimate", "Interval", "Error %"));
+        for (Entry entry : entries) {
+            TokenEstimate estimate = entry.estimate();
+            report.append(String.format("%-40s %-6s %-10s %12d %12d %25s %+8.2f%n",
+                entry.fileName(), entry.format(), estimate.method(), entry.exactTokens(), estimate.tokens(),
+                "[" + estimate.lowerBound() + ", " + estimate.upperBound() + "]", entry.getErrorPercent()));
+        }
+        report.append(String.format("Mean |error|: %.2f%%, max |error|: %.2f%%, interval coverage: %.1f%%, speedup: %.1fx%n",
+            getMeanAbsoluteErrorPercent(), getMaxAbsoluteErrorPercent(), getCoveragePercent(), getSpeedup()));
+        return report.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.tokenanalyzer.models;
+
+/**
+ * An item from a bounded frequent-items summary. The true count lies in
+ * {@code [count, maxCount]}.
+ */
+public record FrequentItem(
+    String text,
+    long count,
+    long maxCount
+) {
+    public boolean isExact() {
+        return count == maxCount;
+    }
+    
+    public double getShare(long total) {
+        return total > 0 ? (double) count / total : 0.0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.tokenanalyzer.models;
+
+/**
+ * Occurrences of a phrase across archived documents and the tokens they cost.
+ */
+public record PhraseUsage(
+    String phrase,
+    long occurrences,
+    long tokens,
+    int documents
+) {
+    public double getTokensPerOccurrence() {
+        return occurrences > 0 ? (double) tokens / occurrences : 0.0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.tokenanalyzer.models;
+
+public record ReadabilitySample(
+    double fleschScore,
+    double fleschStdError,
+    double complexityScore,
+    double complexityStdError,
+    double lexicalDiversity,
+    double lexicalDiversityStdError,
+    double avgSentenceLength,
+    int windows,
+    double sampledFraction
+) {
+    public ReadabilityMetrics toReadabilityMetrics() {
+        return new ReadabilityMetrics(fleschScore, complexityScore, avgSentenceLength);
+    }
+    
+    // 95% margins of error
+    public double getFleschMargin() {
+        return 1.96 * fleschStdError;
+    }
+    
+    public double getComplexityMargin() {
+        return 1.96 * complexityStdError;
+    }
+    
+    public double getLexicalDiversityMargin() {
+        return 1.96 * lexicalDiversityStdError;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.tokenanalyzer.models;
+
+/**
+ * Aggregates over the stored results of one run.
+ */
+public record RunTotals(
+    long runId,
+    long files,
+    long totalBytes,
+    long totalTokens,
+    long minTokens,
+    long maxTokens,
+    double avgReadability,
+    double avgLexicalDiversity,
+    long totalProcessingTime
+) {
+    public double getAvgTokens() {
+        return files > 0 ? (double) totalTokens / files : 0.0;
+    }
+    
+    /**
+     * Relative change in total tokens from {@code previous}, in percent.
+     */
+    public double getTokenChange(RunTotals previous) {
+        return previous.totalTokens() > 0
+            ? (double) (totalTokens - previous.totalTokens()) / previous.totalTokens() * 100 : 0.0;
+    }
+}
\ No newline at end of file
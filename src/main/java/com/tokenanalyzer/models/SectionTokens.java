@@ -0,0 +1,13 @@
+package com.tokenanalyzer.models;
+
+/**
+ * Token count of one section. Counts of a document's sections add up to its total.
+ */
+public record SectionTokens(
+    TextSection section,
+    int tokens
+) {
+    public double getShare(long totalTokens) {
+        return totalTokens > 0 ? (double) tokens / totalTokens * 100 : 0.0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.tokenanalyzer.models;
+
+import java.util.List;
+
+/**
+ * Extracted text with the section boundaries recorded while extracting it.
+ */
+public record SectionedText(
+    String text,
+    List<TextSection> sections
+) {
+    /**
+     * Text without structure, as one body section.
+     */
+    public static SectionedText whole(String text) {
+        return new SectionedText(text, List.of(new TextSection(TextSection.BODY, "Body", 0, text.length())));
+    }
+}
\ No newline at end of file
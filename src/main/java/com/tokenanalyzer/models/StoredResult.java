@@ -0,0 +1,11 @@
+package com.tokenanalyzer.models;
+
+public record StoredResult(
+    long recordNumber,
+    long runId,
+    long storedAt,
+    String path,
+    long contentHash,
+    AnalysisResult result
+) {
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.tokenanalyzer.models;
+
+/**
+ * A batch run in the result store; its results are records
+ * {@code [firstRecord, firstRecord + recordCount)}.
+ */
+public record StoredRun(
+    long runId,
+    long startedAt,
+    long finishedAt,
+    long firstRecord,
+    long recordCount
+) {
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.tokenanalyzer.models;
+
+public record TextChunk(
+    int index,
+    int startOffset,
+    int endOffset,
+    int tokenCount,
+    int overlapTokens,
+    String text
+) {
+    public int getLength() {
+        return endOffset - startOffset;
+    }
+    
+    public int getNewTokens() {
+        return tokenCount - overlapTokens;
+    }
+}
\ No newline at end of file
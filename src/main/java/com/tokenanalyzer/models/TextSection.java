@@ -0,0 +1,21 @@
+package com.tokenanalyzer.models;
+
+/**
+ * A span of extracted text, {@code [start, end)} in characters: a PDF page, a DOCX
+ * heading section or table, or the whole body of formats without structure.
+ */
+public record TextSection(
+    String kind,
+    String label,
+    int start,
+    int end
+) {
+    public static final String PAGE = "page";
+    public static final String HEADING = "heading";
+    public static final String TABLE = "table";
+    public static final String BODY = "body";
+    
+    public int length() {
+        return end - start;
+    }
+}
\ No newline at end of file
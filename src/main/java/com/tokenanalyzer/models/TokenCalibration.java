@@ -0,0 +1,13 @@
+package com.tokenanalyzer.models;
+
+public record TokenCalibration(
+    String format,
+    String encoding,
+    long documents,
+    double tokensPerByte,
+    double tokensPerByteStdDev
+) {
+    public double getBytesPerToken() {
+        return tokensPerByte > 0 ? 1.0 / tokensPerByte : 0.0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.tokenanalyzer.models;
+
+public record TokenEstimate(
+    long tokens,
+    long lowerBound,
+    long upperBound,
+    Method method,
+    int sampleWindows,
+    double sampledFraction
+) {
+    public enum Method {
+        EXACT,
+        SAMPLED,
+        CALIBRATED
+    }
+    
+    public static TokenEstimate exact(long tokens) {
+        return new TokenEstimate(tokens, tokens, tokens, Method.EXACT, 0, 1.0);
+    }
+    
+    public boolean isExact() {
+        return method == Method.EXACT;
+    }
+    
+    public long getMarginOfError() {
+        return (upperBound - lowerBound + 1) / 2;
+    }
+    
+    public double getRelativeMargin() {
+        return tokens > 0 ? (double) getMarginOfError() / tokens : 0.0;
+    }
+    
+    public boolean contains(long exactTokens) {
+        return exactTokens >= lowerBound && exactTokens <= upperBound;
+    }
+}
\ No newline at end of file
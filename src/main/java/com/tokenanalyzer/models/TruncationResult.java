@@ -0,0 +1,18 @@
+package com.tokenanalyzer.models;
+
+public record TruncationResult(
+    String text,
+    int startOffset,
+    int endOffset,
+    int tokenCount,
+    int maxTokens,
+    boolean truncated
+) {
+    public int getLength() {
+        return endOffset - startOffset;
+    }
+    
+    public int getRemainingTokens() {
+        return maxTokens - tokenCount;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,251 @@
+package com.tokenanalyzer.store;
+
+import com.tokenanalyzer.utils.HyperLogLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped open-addressing map from 64-bit hashes to record numbers, kept at
+ * most half full. Growing writes a table of the next generation to a new file, so the
+ * previous one stays intact until the new one is complete. Lookups touch only the
+ * probed slots, whatever the size of the table.
+ */
+class MappedHashIndex implements Closeable {
+    private static final int MAGIC = 0x54414958; // "TAIX"
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final long MIN_CAPACITY = 1 << 12;
+    private static final long MAX_CAPACITY = 1 << 26; // Keeps a table within one mapping
+    
+    private final Path directory;
+    private final String name;
+    private int generation;
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private long capacity;
+    private long size;
+    
+    private MappedHashIndex(Path directory, String name) {
+        this.directory = directory;
+        this.name = name;
+    }
+    
+    /**
+     * Opens the newest complete generation of index {@code name}, or creates an empty one.
+     */
+    static MappedHashIndex open(Path directory, String name) throws IOException {
+        MappedHashIndex index = new MappedHashIndex(directory, name);
+        int newest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + ".*.idx")) {
+            for (Path file : files) {
+                int generation = parseGeneration(file, name);
+                if (generation > newest && isComplete(file)) {
+                    newest = generation;
+                }
+            }
+        }
+        if (newest < 0) {
+            index.create(0, MIN_CAPACITY);
+            index.markComplete();
+        } else {
+            index.map(newest);
+        }
+        index.deleteOtherGenerations();
+        return index;
+    }
+    
+    /**
+     * Record number stored for {@code key}, or -1.
+     */
+    long get(long key) {
+        key = normalize(key);
+        long slot = slotFor(key);
+        while (true) {
+            long stored = table.getLong(offset(slot));
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == key) {
+                return table.getLong(offset(slot) + 8);
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+    
+    /**
+     * Maps {@code key} to {@code value}, replacing any earlier value.
+     */
+    void put(long key, long value) throws IOException {
+        if ((size + 1) * 2 > capacity) {
+            grow();
+        }
+        key = normalize(key);
+        long slot = slotFor(key);
+        while (true) {
+            long stored = table.getLong(offset(slot));
+            if (stored == 0) {
+                table.putLong(offset(slot), key);
+                table.putLong(offset(slot) + 8, value);
+                table.putLong(8, ++size);
+                return;
+            }
+            if (stored == key) {
+                table.putLong(offset(slot) + 8, value);
+                return;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+    
+    /**
+     * Number of leading data records this index already covers.
+     */
+    long getIndexedRecords() {
+        return table.getLong(24);
+    }
+    
+    void setIndexedRecords(long records) {
+        table.putLong(24, records);
+    }
+    
+    long size() {
+        return size;
+    }
+    
+    void clear() throws IOException {
+        int next = generation + 1;
+        closeMapping();
+        create(next, MIN_CAPACITY);
+        markComplete();
+        deleteOtherGenerations();
+    }
+    
+    void force() {
+        table.force();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        force();
+        closeMapping();
+    }
+    
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException("Index " + name + " is full at " + size + " entries");
+        }
+        MappedByteBuffer old = table;
+        long oldCapacity = capacity;
+        FileChannel oldChannel = channel;
+        
+        create(generation + 1, capacity * 2);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            long key = old.getLong(offset(slot));
+            if (key != 0) {
+                long target = slotFor(key);
+                while (table.getLong(offset(target)) != 0) {
+                    target = (target + 1) & (capacity - 1);
+                }
+                table.putLong(offset(target), key);
+                table.putLong(offset(target) + 8, old.getLong(offset(slot) + 8));
+                size++;
+            }
+        }
+        table.putLong(8, size);
+        table.putLong(24, old.getLong(24));
+        markComplete();
+        oldChannel.close();
+        deleteOtherGenerations();
+    }
+    
+    private void create(int generation, long capacity) throws IOException {
+        this.generation = generation;
+        this.capacity = capacity;
+        this.size = 0;
+        channel = FileChannel.open(fileFor(generation), StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + capacity * SLOT_BYTES);
+        table.putLong(16, capacity);
+    }
+    
+    private void markComplete() {
+        table.force();
+        table.putInt(0, MAGIC); // Only a fully written table is picked up by open
+        table.force();
+    }
+    
+    private void map(int generation) throws IOException {
+        this.generation = generation;
+        channel = FileChannel.open(fileFor(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        size = table.getLong(8);
+        capacity = table.getLong(16);
+    }
+    
+    private void closeMapping() throws IOException {
+        channel.close(); // The mapping stays valid until collected, but is no longer used
+    }
+    
+    private void deleteOtherGenerations() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + ".*.idx")) {
+            for (Path file : files) {
+                if (parseGeneration(file, name) != generation) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Still mapped on some platforms; retried on the next open
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Stale generations only waste space
+        }
+    }
+    
+    private Path fileFor(int generation) {
+        return directory.resolve(name + "." + generation + ".idx");
+    }
+    
+    private long slotFor(long key) {
+        return HyperLogLog.mix(key) & (capacity - 1);
+    }
+    
+    private static int offset(long slot) {
+        return (int) (HEADER_BYTES + slot * SLOT_BYTES); // Below 2 GB as capacity is capped
+    }
+    
+    private static long normalize(long key) {
+        return key == 0 ? 1 : key; // Zero marks empty slots
+    }
+    
+    private static int parseGeneration(Path file, String name) {
+        String fileName = file.getFileName().toString();
+        try {
+            return Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - ".idx".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    private static boolean isComplete(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read the whole header
+            }
+            long capacity = header.getLong(16);
+            return header.getInt(0) == MAGIC && channel.size() == HEADER_BYTES + capacity * SLOT_BYTES;
+        }
+    }
+}
\ No newline at end of file
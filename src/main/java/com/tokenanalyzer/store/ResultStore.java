@@ -0,0 +1,488 @@
+package com.tokenanalyzer.store;
+
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.RunTotals;
+import com.tokenanalyzer.models.StoredResult;
+import com.tokenanalyzer.models.StoredRun;
+import com.tokenanalyzer.utils.HyperLogLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Embedded append-only store of analysis results across batch runs. Results are
+ * fixed-width records in {@code results.dat}, so record N sits at a known offset and
+ * scans read memory-mapped segments without creating objects. Strings live in
+ * {@code strings.dat}, runs in {@code runs.dat}, and memory-mapped hash indexes map
+ * path and content hashes to the newest matching record. Each run's records are
+ * contiguous, which makes a run a single range scan. A lock on {@code store.lock} keeps
+ * a second process, or a second store in this one, from appending to the same files.
+ */
+public class ResultStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ResultStore.class);
+    public static final String STORE_DIR_PROPERTY = "tokenanalyzer.storeDir";
+    
+    private static final int RUN_BYTES = 32;
+    private static final int SEGMENT_RECORDS = (1 << 30) / ResultView.RECORD_BYTES; // At most ~1 GB mapped at a time
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int MAX_COMPARED_RUNS = 32; // Look-back for a run over the same files
+    
+    private final FileChannel lockChannel;
+    private final FileChannel records;
+    private final FileChannel strings;
+    private final FileChannel runs;
+    private final MappedHashIndex pathIndex;
+    private final MappedHashIndex contentIndex;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(ResultView.RECORD_BYTES);
+    private final Map<String, Long> modelOffsets = new HashMap<>();
+    private long recordCount;
+    private long stringBytes;
+    private long runCount;
+    private long openRun = -1;
+    
+    private ResultStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = openChannel(directory.resolve("store.lock"));
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lockChannel.close();
+            throw new IOException("Result store at " + directory + " is already open in this process", e);
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Result store at " + directory + " is in use by another process");
+        }
+        
+        try {
+            records = openChannel(directory.resolve("results.dat"));
+            strings = openChannel(directory.resolve("strings.dat"));
+            runs = openChannel(directory.resolve("runs.dat"));
+            pathIndex = MappedHashIndex.open(directory, "paths");
+            contentIndex = MappedHashIndex.open(directory, "contents");
+        } catch (IOException e) {
+            lockChannel.close(); // Releases the lock
+            throw e;
+        }
+    }
+    
+    /**
+     * Opens the store, failing if another process or store already holds its lock.
+     */
+    public static ResultStore open(Path directory) throws IOException {
+        ResultStore store = new ResultStore(directory);
+        try {
+            store.recover();
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        logger.info("Opened result store at {} with {} results in {} runs", directory, store.recordCount, store.runCount);
+        return store;
+    }
+    
+    /**
+     * {@code ~/.tokenanalyzer/results}, unless the {@value #STORE_DIR_PROPERTY} property says otherwise.
+     */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty(STORE_DIR_PROPERTY);
+        if (configured != null && !configured.isBlank()) {
+            return Path.of(configured);
+        }
+        return Path.of(System.getProperty("user.home"), ".tokenanalyzer", "results");
+    }
+    
+    /**
+     * Case-sensitive 64-bit hash of extracted text, for recognizing unchanged content.
+     */
+    public static long contentHash(CharSequence text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return HyperLogLog.mix(hash ^ text.length());
+    }
+    
+    public synchronized long beginRun() throws IOException {
+        if (openRun >= 0) {
+            throw new IllegalStateException("Run " + openRun + " is still open");
+        }
+        openRun = runCount++;
+        writeRun(new StoredRun(openRun, System.currentTimeMillis(), 0, recordCount, 0));
+        return openRun;
+    }
+    
+    /**
+     * Appends {@code result} to the open run and returns its record number.
+     */
+    public synchronized long append(long runId, String path, long contentHash, AnalysisResult result) throws IOException {
+        if (runId != openRun) {
+            throw new IllegalStateException("Run " + runId + " is not open");
+        }
+        long pathHash = pathHash(path);
+        
+        ByteBuffer buffer = recordBuffer.clear();
+        buffer.putLong(ResultView.RUN_ID, runId);
+        buffer.putLong(ResultView.STORED_AT, System.currentTimeMillis());
+        buffer.putLong(ResultView.PATH_HASH, pathHash);
+        buffer.putLong(ResultView.CONTENT_HASH, contentHash);
+        buffer.putLong(ResultView.FILE_SIZE, result.fileSize());
+        buffer.putLong(ResultView.PROCESSING_TIME, result.processingTime());
+        putString(buffer, ResultView.PATH_OFFSET, ResultView.PATH_LENGTH, path);
+        putString(buffer, ResultView.NAME_OFFSET, ResultView.NAME_LENGTH, result.fileName());
+        putModel(buffer, result.model());
+        buffer.putInt(ResultView.TOTAL_TOKENS, result.totalTokens());
+        buffer.putInt(ResultView.UNIQUE_TOKENS, result.uniqueTokens());
+        buffer.putInt(ResultView.FLAGS, 0);
+        buffer.putDouble(ResultView.TOKEN_WORD_RATIO, result.tokenWordRatio());
+        buffer.putDouble(ResultView.AVG_TOKEN_LENGTH, result.avgTokenLength());
+        buffer.putDouble(ResultView.CONTENT_DENSITY, result.contentDensity());
+        buffer.putDouble(ResultView.LEXICAL_DIVERSITY, result.lexicalDiversity());
+        buffer.putDouble(ResultView.WHITESPACE_RATIO, result.whitespaceRatio());
+        buffer.putDouble(ResultView.FLESCH_SCORE, result.fleschScore());
+        buffer.putDouble(ResultView.COMPLEXITY_SCORE, result.complexityScore());
+        buffer.putDouble(ResultView.AVG_SENTENCE_LENGTH, result.avgSentenceLength());
+        writeFully(records, buffer, recordCount * ResultView.RECORD_BYTES);
+        
+        long recordNumber = recordCount++;
+        index(recordNumber, pathHash, contentHash);
+        return recordNumber;
+    }
+    
+    public synchronized void endRun(long runId) throws IOException {
+        if (runId != openRun) {
+            throw new IllegalStateException("Run " + runId + " is not open");
+        }
+        StoredRun run = readRun(runId);
+        records.force(false);
+        strings.force(false);
+        writeRun(new StoredRun(runId, run.startedAt(), System.currentTimeMillis(), run.firstRecord(),
+            recordCount - run.firstRecord()));
+        runs.force(false);
+        pathIndex.force();
+        contentIndex.force();
+        openRun = -1;
+    }
+    
+    public synchronized List<StoredRun> getRuns() throws IOException {
+        List<StoredRun> all = new ArrayList<>((int) runCount);
+        for (long runId = 0; runId < runCount; runId++) {
+            all.add(currentRun(runId));
+        }
+        return all;
+    }
+    
+    public synchronized Optional<StoredRun> getRun(long runId) throws IOException {
+        return runId >= 0 && runId < runCount ? Optional.of(currentRun(runId)) : Optional.empty();
+    }
+    
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * The most recently stored result for {@code path}.
+     */
+    public synchronized Optional<StoredResult> findLatest(String path) throws IOException {
+        long recordNumber = pathIndex.get(pathHash(path));
+        if (recordNumber < 0) {
+            return Optional.empty();
+        }
+        StoredResult stored = read(recordNumber);
+        return stored.path().equals(path) ? Optional.of(stored) : Optional.empty();
+    }
+    
+    /**
+     * The most recently stored result for text with this {@link #contentHash}, under any path.
+     */
+    public synchronized Optional<StoredResult> findByContentHash(long contentHash) throws IOException {
+        long recordNumber = contentIndex.get(contentHash);
+        if (recordNumber < 0) {
+            return Optional.empty();
+        }
+        StoredResult stored = read(recordNumber);
+        return stored.contentHash() == contentHash ? Optional.of(stored) : Optional.empty();
+    }
+    
+    public synchronized StoredResult read(long recordNumber) throws IOException {
+        if (recordNumber < 0 || recordNumber >= recordCount) {
+            throw new IllegalArgumentException("No record " + recordNumber + " in a store of " + recordCount);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(ResultView.RECORD_BYTES);
+        readFully(records, buffer, recordNumber * ResultView.RECORD_BYTES);
+        ResultView view = new ResultView();
+        view.moveTo(buffer, 0, recordNumber);
+        return toStoredResult(view);
+    }
+    
+    /**
+     * Materializes the record under {@code view}, including its strings.
+     */
+    public synchronized StoredResult toStoredResult(ResultView view) throws IOException {
+        AnalysisResult result = new AnalysisResult(
+            readString(view.nameOffset(), view.nameLength()),
+            view.fileSize(),
+            readString(view.modelOffset(), view.modelLength()),
+            view.totalTokens(),
+            view.uniqueTokens(),
+            view.tokenWordRatio(),
+            view.avgTokenLength(),
+            view.contentDensity(),
+            view.lexicalDiversity(),
+            view.whitespaceRatio(),
+            view.fleschScore(),
+            view.complexityScore(),
+            view.avgSentenceLength(),
+            view.processingTime()
+        );
+        return new StoredResult(view.recordNumber(), view.runId(), view.storedAt(),
+            readString(view.pathOffset(), view.pathLength()), view.contentHash(), result);
+    }
+    
+    /**
+     * Visits every record of {@code runId} in order through one reused view.
+     */
+    public void scanRun(long runId, Consumer<ResultView> visitor) throws IOException {
+        StoredRun run;
+        synchronized (this) {
+            if (runId < 0 || runId >= runCount) {
+                throw new IllegalArgumentException("No run " + runId + " in a store of " + runCount + " runs");
+            }
+            run = currentRun(runId);
+        }
+        scan(run.firstRecord(), run.firstRecord() + run.recordCount(), visitor);
+    }
+    
+    /**
+     * Visits records {@code [from, to)} through one reused view. Records are never
+     * rewritten, so the scan runs without holding the store's lock.
+     */
+    public void scan(long from, long to, Consumer<ResultView> visitor) throws IOException {
+        synchronized (this) {
+            to = Math.min(to, recordCount);
+        }
+        ResultView view = new ResultView();
+        for (long start = Math.max(0, from); start < to; start += SEGMENT_RECORDS) {
+            int count = (int) Math.min(SEGMENT_RECORDS, to - start);
+            MappedByteBuffer segment = records.map(FileChannel.MapMode.READ_ONLY,
+                start * ResultView.RECORD_BYTES, (long) count * ResultView.RECORD_BYTES);
+            for (int i = 0; i < count; i++) {
+                view.moveTo(segment, i * ResultView.RECORD_BYTES, start + i);
+                visitor.accept(view);
+            }
+        }
+    }
+    
+    /**
+     * The newest earlier run that stored results for exactly the same paths as
+     * {@code runId}, looking back at most {@value #MAX_COMPARED_RUNS} runs. Totals of
+     * runs over different files say nothing about how the files themselves changed.
+     */
+    public Optional<Long> findComparableRun(long runId) throws IOException {
+        long[] paths = pathSet(runId);
+        if (paths[0] == 0) {
+            return Optional.empty();
+        }
+        for (long previous = runId - 1; previous >= Math.max(0, runId - MAX_COMPARED_RUNS); previous--) {
+            StoredRun run;
+            synchronized (this) {
+                run = currentRun(previous);
+            }
+            if (run.recordCount() == paths[0] && Arrays.equals(pathSet(previous), paths)) {
+                return Optional.of(previous);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    public RunTotals totals(long runId) throws IOException {
+        long[] sums = new long[5]; // files, bytes, tokens, min, max
+        double[] means = new double[2]; // readability, lexical diversity
+        long[] processingTime = new long[1];
+        sums[3] = Long.MAX_VALUE;
+        sums[4] = Long.MIN_VALUE;
+        scanRun(runId, view -> {
+            int tokens = view.totalTokens();
+            sums[0]++;
+            sums[1] += view.fileSize();
+            sums[2] += tokens;
+            sums[3] = Math.min(sums[3], tokens);
+            sums[4] = Math.max(sums[4], tokens);
+            means[0] += view.fleschScore();
+            means[1] += view.lexicalDiversity();
+            processingTime[0] += view.processingTime();
+        });
+        
+        long files = sums[0];
+        if (files == 0) {
+            return new RunTotals(runId, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new RunTotals(runId, files, sums[1], sums[2], sums[3], sums[4],
+            means[0] / files, means[1] / files, processingTime[0]);
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (openRun >= 0) {
+            endRun(openRun);
+        }
+        try (lockChannel; records; strings; runs; pathIndex; contentIndex) {
+            // Closes everything even if one close fails, and the lock last
+        }
+    }
+    
+    /**
+     * Record count and an order-independent hash of the run's paths.
+     */
+    private long[] pathSet(long runId) throws IOException {
+        long[] set = new long[2];
+        scanRun(runId, view -> {
+            set[0]++;
+            set[1] += HyperLogLog.mix(view.pathHash());
+        });
+        return set;
+    }
+    
+    private void recover() throws IOException {
+        // Drop a record or run left half-written by a crash
+        recordCount = records.size() / ResultView.RECORD_BYTES;
+        records.truncate(recordCount * ResultView.RECORD_BYTES);
+        runCount = runs.size() / RUN_BYTES;
+        runs.truncate(runCount * RUN_BYTES);
+        stringBytes = strings.size();
+        
+        if (runCount > 0) {
+            StoredRun last = readRun(runCount - 1);
+            if (!last.isFinished()) {
+                writeRun(new StoredRun(last.runId(), last.startedAt(), System.currentTimeMillis(),
+                    last.firstRecord(), recordCount - last.firstRecord()));
+                logger.warn("Closed interrupted run {} with {} results", last.runId(), recordCount - last.firstRecord());
+            }
+        }
+        
+        // Bring the indexes up to date with records appended after their last sync
+        for (MappedHashIndex index : List.of(pathIndex, contentIndex)) {
+            if (index.getIndexedRecords() > recordCount) {
+                index.clear();
+            }
+        }
+        long indexed = Math.min(pathIndex.getIndexedRecords(), contentIndex.getIndexedRecords());
+        if (indexed < recordCount) {
+            logger.info("Indexing {} stored results", recordCount - indexed);
+            scan(indexed, recordCount, view -> {
+                try {
+                    index(view.recordNumber(), view.pathHash(), view.contentHash());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+    
+    private void index(long recordNumber, long pathHash, long contentHash) throws IOException {
+        pathIndex.put(pathHash, recordNumber);
+        contentIndex.put(contentHash, recordNumber);
+        pathIndex.setIndexedRecords(recordNumber + 1);
+        contentIndex.setIndexedRecords(recordNumber + 1);
+    }
+    
+    /**
+     * The stored entry, or for the open run its records so far.
+     */
+    private StoredRun currentRun(long runId) throws IOException {
+        StoredRun run = readRun(runId);
+        return run.runId() == openRun
+            ? new StoredRun(runId, run.startedAt(), 0, run.firstRecord(), recordCount - run.firstRecord())
+            : run;
+    }
+    
+    private StoredRun readRun(long runId) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RUN_BYTES);
+        readFully(runs, buffer, runId * RUN_BYTES);
+        return new StoredRun(runId, buffer.getLong(0), buffer.getLong(8), buffer.getLong(16), buffer.getLong(24));
+    }
+    
+    private void writeRun(StoredRun run) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RUN_BYTES);
+        buffer.putLong(0, run.startedAt());
+        buffer.putLong(8, run.finishedAt());
+        buffer.putLong(16, run.firstRecord());
+        buffer.putLong(24, run.recordCount());
+        writeFully(runs, buffer, run.runId() * RUN_BYTES);
+    }
+    
+    private void putString(ByteBuffer record, int offsetField, int lengthField, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.putLong(offsetField, stringBytes);
+        record.putInt(lengthField, bytes.length);
+        writeFully(strings, ByteBuffer.wrap(bytes), stringBytes);
+        stringBytes += bytes.length;
+    }
+    
+    private void putModel(ByteBuffer record, String model) throws IOException {
+        // Model names repeat on every record, so each is written once per session
+        Long offset = modelOffsets.get(model);
+        if (offset == null) {
+            putString(record, ResultView.MODEL_OFFSET, ResultView.MODEL_LENGTH, model);
+            modelOffsets.put(model, record.getLong(ResultView.MODEL_OFFSET));
+        } else {
+            record.putLong(ResultView.MODEL_OFFSET, offset);
+            record.putInt(ResultView.MODEL_LENGTH, model.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+    
+    private String readString(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(strings, buffer, offset);
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+    
+    private static long pathHash(String path) {
+        return contentHash(path);
+    }
+    
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of store file at " + position);
+            }
+            position += read;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.tokenanalyzer.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the fields of one stored record in place. A scan moves a single view across
+ * mapped records, so it is only valid inside the callback that received it.
+ */
+public final class ResultView {
+    static final int RUN_ID = 0;
+    static final int STORED_AT = 8;
+    static final int PATH_HASH = 16;
+    static final int CONTENT_HASH = 24;
+    static final int FILE_SIZE = 32;
+    static final int PROCESSING_TIME = 40;
+    static final int PATH_OFFSET = 48;
+    static final int NAME_OFFSET = 56;
+    static final int MODEL_OFFSET = 64;
+    static final int PATH_LENGTH = 72;
+    static final int NAME_LENGTH = 76;
+    static final int MODEL_LENGTH = 80;
+    static final int TOTAL_TOKENS = 84;
+    static final int UNIQUE_TOKENS = 88;
+    static final int FLAGS = 92;
+    static final int TOKEN_WORD_RATIO = 96;
+    static final int AVG_TOKEN_LENGTH = 104;
+    static final int CONTENT_DENSITY = 112;
+    static final int LEXICAL_DIVERSITY = 120;
+    static final int WHITESPACE_RATIO = 128;
+    static final int FLESCH_SCORE = 136;
+    static final int COMPLEXITY_SCORE = 144;
+    static final int AVG_SENTENCE_LENGTH = 152;
+    static final int RECORD_BYTES = 160;
+    
+    private ByteBuffer buffer;
+    private int base;
+    private long recordNumber;
+    
+    void moveTo(ByteBuffer buffer, int base, long recordNumber) {
+        this.buffer = buffer;
+        this.base = base;
+        this.recordNumber = recordNumber;
+    }
+    
+    public long recordNumber() {
+        return recordNumber;
+    }
+    
+    public long runId() {
+        return buffer.getLong(base + RUN_ID);
+    }
+    
+    public long storedAt() {
+        return buffer.getLong(base + STORED_AT);
+    }
+    
+    public long pathHash() {
+        return buffer.getLong(base + PATH_HASH);
+    }
+    
+    public long contentHash() {
+        return buffer.getLong(base + CONTENT_HASH);
+    }
+    
+    public long fileSize() {
+        return buffer.getLong(base + FILE_SIZE);
+    }
+    
+    public long processingTime() {
+        return buffer.getLong(base + PROCESSING_TIME);
+    }
+    
+    public int totalTokens() {
+        return buffer.getInt(base + TOTAL_TOKENS);
+    }
+    
+    public int uniqueTokens() {
+        return buffer.getInt(base + UNIQUE_TOKENS);
+    }
+    
+    public double tokenWordRatio() {
+        return buffer.getDouble(base + TOKEN_WORD_RATIO);
+    }
+    
+    public double avgTokenLength() {
+        return buffer.getDouble(base + AVG_TOKEN_LENGTH);
+    }
+    
+    public double contentDensity() {
+        return buffer.getDouble(base + CONTENT_DENSITY);
+    }
+    
+    public double lexicalDiversity() {
+        return buffer.getDouble(base + LEXICAL_DIVERSITY);
+    }
+    
+    public double whitespaceRatio() {
+        return buffer.getDouble(base + WHITESPACE_RATIO);
+    }
+    
+    public double fleschScore() {
+        return buffer.getDouble(base + FLESCH_SCORE);
+    }
+    
+    public double complexityScore() {
+        return buffer.getDouble(base + COMPLEXITY_SCORE);
+    }
+    
+    public double avgSentenceLength() {
+        return buffer.getDouble(base + AVG_SENTENCE_LENGTH);
+    }
+    
+    long pathOffset() {
+        return buffer.getLong(base + PATH_OFFSET);
+    }
+    
+    int pathLength() {
+        return buffer.getInt(base + PATH_LENGTH);
+    }
+    
+    long nameOffset() {
+        return buffer.getLong(base + NAME_OFFSET);
+    }
+    
+    int nameLength() {
+        return buffer.getInt(base + NAME_LENGTH);
+    }
+    
+    long modelOffset() {
+        return buffer.getLong(base + MODEL_OFFSET);
+    }
+    
+    int modelLength() {
+        return buffer.getInt(base + MODEL_LENGTH);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,527 @@
+package com.tokenanalyzer.store;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.IntArrayList;
+import com.tokenanalyzer.models.ArchivedDocument;
+import com.tokenanalyzer.models.PhraseUsage;
+import com.tokenanalyzer.utils.HyperLogLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only archive of the token ID streams of analyzed documents, one per encoding.
+ * IDs are LEB128 varints in {@code tokens.dat}, mostly two or three bytes each, and
+ * {@code documents.dat} holds a fixed-width entry per document with its byte range.
+ * Corpus queries decode the memory-mapped streams instead of encoding documents again.
+ * A hash index over name and content hash keeps re-analyses of unchanged documents
+ * from being archived twice.
+ */
+public class TokenArchive implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TokenArchive.class);
+    public static final String ARCHIVE_DIR_PROPERTY = "tokenanalyzer.archiveDir";
+    
+    private static final int DATA_OFFSET = 0;
+    private static final int DATA_BYTES = 8;
+    private static final int TOKEN_COUNT = 16;
+    private static final int NAME_LENGTH = 20;
+    private static final int CONTENT_HASH = 24;
+    private static final int NAME_OFFSET = 32;
+    private static final int DOCUMENT_BYTES = 40;
+    private static final int TABLE_DOCUMENTS = (1 << 30) / DOCUMENT_BYTES;
+    private static final long WINDOW_BYTES = 1L << 30; // At most ~1 GB of tokens mapped at a time
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_VARINT_BYTES = 5;
+    
+    private final Encoding encoding;
+    private final FileChannel data;
+    private final FileChannel documents;
+    private final FileChannel names;
+    private final MappedHashIndex documentIndex;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+    private final ByteBuffer entryBuffer = ByteBuffer.allocate(DOCUMENT_BYTES);
+    private int documentCount;
+    private long dataBytes;
+    private long nameBytes;
+    private long totalTokens;
+    
+    /**
+     * Receives the tokens of archived documents in order.
+     */
+    public interface TokenVisitor {
+        default void beginDocument(int document, int tokenCount) {
+        }
+        
+        void token(int tokenId);
+    }
+    
+    private TokenArchive(Path directory, Encoding encoding) throws IOException {
+        Files.createDirectories(directory);
+        this.encoding = encoding;
+        data = openChannel(directory.resolve("tokens.dat"));
+        documents = openChannel(directory.resolve("documents.dat"));
+        names = openChannel(directory.resolve("names.dat"));
+        documentIndex = MappedHashIndex.open(directory, "documents");
+    }
+    
+    /**
+     * Opens the archive of {@code encoding} in a subdirectory of {@code directory} named after it.
+     */
+    public static TokenArchive open(Path directory, Encoding encoding) throws IOException {
+        Path encodingDirectory = directory.resolve(encoding.getName());
+        TokenArchive archive = new TokenArchive(encodingDirectory, encoding);
+        try {
+            archive.recover();
+        } catch (IOException e) {
+            archive.close();
+            throw e;
+        }
+        logger.info("Opened token archive at {} with {} tokens in {} documents",
+            encodingDirectory, archive.totalTokens, archive.documentCount);
+        return archive;
+    }
+    
+    /**
+     * {@code ~/.tokenanalyzer/tokens}, unless the {@value #ARCHIVE_DIR_PROPERTY} property says otherwise.
+     */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty(ARCHIVE_DIR_PROPERTY);
+        if (configured != null && !configured.isBlank()) {
+            return Path.of(configured);
+        }
+        return Path.of(System.getProperty("user.home"), ".tokenanalyzer", "tokens");
+    }
+    
+    public Encoding getEncoding() {
+        return encoding;
+    }
+    
+    /**
+     * Appends the token stream of a document and returns its index. A document already
+     * archived under the same name and content hash is not appended again, and its
+     * existing index is returned.
+     */
+    public synchronized int append(String name, long contentHash, IntArrayList tokens) throws IOException {
+        long key = documentKey(name, contentHash);
+        long existing = documentIndex.get(key);
+        if (existing >= 0 && existing < documentCount) {
+            ArchivedDocument archived = getDocument((int) existing);
+            if (archived.contentHash() == contentHash && archived.name().equals(name)) {
+                return (int) existing;
+            }
+        }
+        if (documentCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Token archive is full");
+        }
+        long offset = dataBytes;
+        try {
+            ByteBuffer buffer = writeBuffer.clear();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (buffer.remaining() < MAX_VARINT_BYTES) {
+                    flushTokens(buffer);
+                }
+                putVarint(buffer, tokens.get(i));
+            }
+            flushTokens(buffer);
+        } catch (IOException e) {
+            dataBytes = offset;
+            throw e;
+        }
+        
+        // The entry goes last, so a crash before it leaves only bytes that recovery drops
+        byte[] nameData = name.getBytes(StandardCharsets.UTF_8);
+        writeFully(names, ByteBuffer.wrap(nameData), nameBytes);
+        ByteBuffer entry = entryBuffer.clear();
+        entry.putLong(DATA_OFFSET, offset);
+        entry.putLong(DATA_BYTES, dataBytes - offset);
+        entry.putInt(TOKEN_COUNT, tokens.size());
+        entry.putInt(NAME_LENGTH, nameData.length);
+        entry.putLong(CONTENT_HASH, contentHash);
+        entry.putLong(NAME_OFFSET, nameBytes);
+        writeFully(documents, entry, (long) documentCount * DOCUMENT_BYTES);
+        
+        nameBytes += nameData.length;
+        totalTokens += tokens.size();
+        documentIndex.put(key, documentCount);
+        documentIndex.setIndexedRecords(documentCount + 1L);
+        return documentCount++;
+    }
+    
+    public synchronized int getDocumentCount() {
+        return documentCount;
+    }
+    
+    public synchronized long getTotalTokens() {
+        return totalTokens;
+    }
+    
+    /**
+     * Size of all token streams, in bytes.
+     */
+    public synchronized long getDataBytes() {
+        return dataBytes;
+    }
+    
+    public synchronized ArchivedDocument getDocument(int document) throws IOException {
+        checkDocument(document);
+        ByteBuffer entry = ByteBuffer.allocate(DOCUMENT_BYTES);
+        readFully(documents, entry, (long) document * DOCUMENT_BYTES);
+        ByteBuffer name = ByteBuffer.allocate(entry.getInt(NAME_LENGTH));
+        readFully(names, name, entry.getLong(NAME_OFFSET));
+        return new ArchivedDocument(document, new String(name.array(), StandardCharsets.UTF_8),
+            entry.getLong(CONTENT_HASH), entry.getInt(TOKEN_COUNT), entry.getLong(DATA_BYTES));
+    }
+    
+    public int[] readTokens(int document) throws IOException {
+        synchronized (this) {
+            checkDocument(document);
+        }
+        IntArrayList tokens = new IntArrayList();
+        scan(document, document + 1, new TokenVisitor() {
+            @Override
+            public void beginDocument(int index, int tokenCount) {
+                tokens.ensureCapacity(tokenCount);
+            }
+            
+            @Override
+            public void token(int tokenId) {
+                tokens.add(tokenId);
+            }
+        });
+        return tokens.toArray();
+    }
+    
+    /**
+     * Decodes the token streams of documents {@code [from, to)} in order. Documents are
+     * never rewritten, so the scan runs without holding the archive's lock.
+     */
+    public void scan(int from, int to, TokenVisitor visitor) throws IOException {
+        long end;
+        synchronized (this) {
+            to = Math.min(to, documentCount);
+            end = dataBytes;
+        }
+        Cursor cursor = new Cursor(end);
+        for (int first = Math.max(0, from); first < to; first += TABLE_DOCUMENTS) {
+            int count = Math.min(TABLE_DOCUMENTS, to - first);
+            MappedByteBuffer table = documents.map(FileChannel.MapMode.READ_ONLY,
+                (long) first * DOCUMENT_BYTES, (long) count * DOCUMENT_BYTES);
+            for (int i = 0; i < count; i++) {
+                int base = i * DOCUMENT_BYTES;
+                int tokens = table.getInt(base + TOKEN_COUNT);
+                visitor.beginDocument(first + i, tokens);
+                if (tokens > 0) {
+                    cursor.seek(table.getLong(base + DATA_OFFSET));
+                }
+                for (int t = 0; t < tokens; t++) {
+                    visitor.token(cursor.nextVarint());
+                }
+            }
+        }
+    }
+    
+    public void scan(TokenVisitor visitor) throws IOException {
+        scan(0, Integer.MAX_VALUE, visitor);
+    }
+    
+    /**
+     * Non-overlapping occurrences of a token sequence in each archived document.
+     */
+    public long[] countSequence(int[] sequence) throws IOException {
+        return countSequences(List.of(sequence))[0];
+    }
+    
+    /**
+     * Occurrences of {@code phrase} across the archive and the tokens they cost. Within
+     * text a phrase usually follows a space that the tokenizer merges into its first
+     * token, so both that form and the bare phrase are counted. When the space is a token
+     * of its own the bare form also matches inside the spaced one, and only the spaced
+     * match is counted.
+     */
+    public PhraseUsage countPhrase(String phrase) throws IOException {
+        if (phrase.isEmpty()) {
+            throw new IllegalArgumentException("Phrase must not be empty");
+        }
+        List<int[]> forms = new ArrayList<>(2);
+        if (!Character.isWhitespace(phrase.charAt(0))) {
+            forms.add(encoding.encode(" " + phrase).toArray());
+        }
+        forms.add(encoding.encode(phrase).toArray());
+        long[][] counts = countSequences(forms);
+        
+        long occurrences = 0;
+        long tokens = 0;
+        int documentsWithPhrase = 0;
+        for (int document = 0; document < counts[0].length; document++) {
+            long inDocument = 0;
+            for (int form = 0; form < forms.size(); form++) {
+                inDocument += counts[form][document];
+                tokens += counts[form][document] * forms.get(form).length;
+            }
+            occurrences += inDocument;
+            if (inDocument > 0) {
+                documentsWithPhrase++;
+            }
+        }
+        return new PhraseUsage(phrase, occurrences, tokens, documentsWithPhrase);
+    }
+    
+    public synchronized void force() throws IOException {
+        data.force(false);
+        names.force(false);
+        documents.force(false);
+        documentIndex.force();
+    }
+    
+    /**
+     * Forces everything appended to disk, then closes the archive.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try (data; documents; names; documentIndex) {
+            force();
+        }
+    }
+    
+    /**
+     * Counts every sequence in one pass, each with its own Knuth-Morris-Pratt matcher.
+     * Matches of different sequences never overlap: a match that starts within the last
+     * counted one is dropped, and at the same token earlier sequences win.
+     */
+    private long[][] countSequences(List<int[]> sequences) throws IOException {
+        int forms = sequences.size();
+        int[][] failures = new int[forms][];
+        for (int form = 0; form < forms; form++) {
+            if (sequences.get(form).length == 0) {
+                throw new IllegalArgumentException("Token sequence must not be empty");
+            }
+            failures[form] = failureTable(sequences.get(form));
+        }
+        int documentTotal = getDocumentCount();
+        long[][] counts = new long[forms][documentTotal];
+        int[] matched = new int[forms];
+        
+        scan(0, documentTotal, new TokenVisitor() {
+            private int document;
+            private long position;
+            private long countedUntil;
+            
+            @Override
+            public void beginDocument(int index, int tokenCount) {
+                document = index;
+                position = 0;
+                countedUntil = -1;
+                Arrays.fill(matched, 0);
+            }
+            
+            @Override
+            public void token(int tokenId) {
+                long current = position++;
+                for (int form = 0; form < forms; form++) {
+                    int[] sequence = sequences.get(form);
+                    int length = matched[form];
+                    while (length > 0 && sequence[length] != tokenId) {
+                        length = failures[form][length - 1];
+                    }
+                    if (sequence[length] == tokenId) {
+                        length++;
+                    }
+                    if (length == sequence.length) {
+                        if (current - length >= countedUntil) {
+                            counts[form][document]++;
+                            countedUntil = current;
+                        }
+                        length = 0;
+                    }
+                    matched[form] = length;
+                }
+            }
+        });
+        return counts;
+    }
+    
+    private static int[] failureTable(int[] sequence) {
+        int[] failure = new int[sequence.length];
+        int length = 0;
+        for (int i = 1; i < sequence.length; i++) {
+            while (length > 0 && sequence[i] != sequence[length]) {
+                length = failure[length - 1];
+            }
+            if (sequence[i] == sequence[length]) {
+                length++;
+            }
+            failure[i] = length;
+        }
+        return failure;
+    }
+    
+    private void recover() throws IOException {
+        // Drop entries whose tokens or name never fully reached disk, then the bytes past the last entry
+        documentCount = (int) Math.min(Integer.MAX_VALUE, documents.size() / DOCUMENT_BYTES);
+        long dataSize = data.size();
+        long nameSize = names.size();
+        ByteBuffer entry = ByteBuffer.allocate(DOCUMENT_BYTES);
+        while (documentCount > 0) {
+            readFully(documents, entry.clear(), (long) (documentCount - 1) * DOCUMENT_BYTES);
+            dataBytes = entry.getLong(DATA_OFFSET) + entry.getLong(DATA_BYTES);
+            nameBytes = entry.getLong(NAME_OFFSET) + entry.getInt(NAME_LENGTH);
+            if (dataBytes <= dataSize && nameBytes <= nameSize) {
+                break;
+            }
+            documentCount--;
+        }
+        if (documentCount == 0) {
+            dataBytes = 0;
+            nameBytes = 0;
+        }
+        if (documents.size() > (long) documentCount * DOCUMENT_BYTES || dataSize > dataBytes || nameSize > nameBytes) {
+            logger.warn("Dropping incomplete writes from token archive with {} documents", documentCount);
+            documents.truncate((long) documentCount * DOCUMENT_BYTES);
+            data.truncate(dataBytes);
+            names.truncate(nameBytes);
+        }
+        
+        totalTokens = 0;
+        for (int first = 0; first < documentCount; first += TABLE_DOCUMENTS) {
+            int count = Math.min(TABLE_DOCUMENTS, documentCount - first);
+            MappedByteBuffer table = documents.map(FileChannel.MapMode.READ_ONLY,
+                (long) first * DOCUMENT_BYTES, (long) count * DOCUMENT_BYTES);
+            for (int i = 0; i < count; i++) {
+                totalTokens += table.getInt(i * DOCUMENT_BYTES + TOKEN_COUNT);
+            }
+        }
+        
+        // Bring the index up to date with documents appended after its last sync
+        if (documentIndex.getIndexedRecords() > documentCount) {
+            documentIndex.clear();
+        }
+        long indexed = documentIndex.getIndexedRecords();
+        if (indexed < documentCount) {
+            logger.info("Indexing {} archived documents", documentCount - indexed);
+            for (int document = (int) indexed; document < documentCount; document++) {
+                ArchivedDocument archived = getDocument(document);
+                documentIndex.put(documentKey(archived.name(), archived.contentHash()), document);
+            }
+            documentIndex.setIndexedRecords(documentCount);
+        }
+    }
+    
+    private static long documentKey(String name, long contentHash) {
+        return HyperLogLog.mix(ResultStore.contentHash(name) ^ contentHash);
+    }
+    
+    private void checkDocument(int document) {
+        if (document < 0 || document >= documentCount) {
+            throw new IllegalArgumentException("No document " + document + " in an archive of " + documentCount);
+        }
+    }
+    
+    private void flushTokens(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        writeFully(data, buffer, dataBytes);
+        dataBytes += length;
+        buffer.clear();
+    }
+    
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    /**
+     * Reads varints from a window of the token file, mapping the next window when a read crosses its end.
+     */
+    private final class Cursor {
+        private final long end;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private int position;
+        private int limit;
+        
+        Cursor(long end) {
+            this.end = end;
+        }
+        
+        void seek(long offset) throws IOException {
+            if (window != null && offset >= windowStart && offset < windowStart + limit) {
+                position = (int) (offset - windowStart);
+            } else {
+                map(offset);
+            }
+        }
+        
+        int nextVarint() {
+            int b = nextByte();
+            if (b >= 0) {
+                return b;
+            }
+            int value = b & 0x7F;
+            int shift = 7;
+            do {
+                b = nextByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+        
+        private int nextByte() {
+            if (position == limit) {
+                try {
+                    map(windowStart + limit);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return window.get(position++);
+        }
+        
+        private void map(long offset) throws IOException {
+            long length = Math.min(WINDOW_BYTES, end - offset);
+            if (length <= 0) {
+                throw new IOException("Token stream ends early at byte " + offset);
+            }
+            window = data.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            windowStart = offset;
+            position = 0;
+            limit = (int) length;
+        }
+    }
+    
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of archive file at " + position);
+            }
+            position += read;
+        }
+    }
+}
\ No newline at end of file
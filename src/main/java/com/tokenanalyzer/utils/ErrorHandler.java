@@ -1,5 +1,6 @@
 package com.tokenanalyzer.utils;
 
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
 import com.tokenanalyzer.exceptions.FileProcessingException;
 import com.tokenanalyzer.exceptions.TokenAnalysisException;
 import com.tokenanalyzer.exceptions.UnsupportedFormatException;
@@ -18,7 +19,9 @@ public class ErrorHandler {
             throwable = throwable.getCause();
         }
         
-        if (throwable instanceof UnsupportedFormatException ufe) {
+        if (throwable instanceof AnalysisTimeoutException ate) {
+            return handleTimeoutError(ate);
+        } else if (throwable instanceof UnsupportedFormatException ufe) {
             return handleUnsupportedFormatError(ufe);
         } else if (throwable instanceof FileProcessingException fpe) {
             return handleFileProcessingError(fpe);
@@ -27,7 +30,7 @@ public class ErrorHandler {
         } else if (throwable instanceof IOException ioe) {
             return handleIOError(ioe);
         } else if (throwable instanceof OutOfMemoryError) {
-            return "File is too large to process. Please try with a smaller file.";
+            return "Ran out of memory. Lower -Dtokenanalyzer.memoryBudget or raise -Xmx, or try a smaller file.";
         } else if (throwable instanceof SecurityException) {
             return "Access denied. Please check file permissions.";
         } else {
@@ -48,6 +51,11 @@ public class ErrorHandler {
         return baseMessage + ": " + fpe.getMessage();
     }
     
+    private static String handleTimeoutError(AnalysisTimeoutException ate) {
+        return String.format("'%s' took too long during %s and was skipped (limit %,d ms)",
+            ate.getFileName(), ate.getStage(), ate.getLimitMillis());
+    }
+    
     private static String handleTokenAnalysisError(TokenAnalysisException tae) {
         if (tae.getOperation() != null && tae.getDetails() != null) {
             return String.format("Token analysis failed during %s: %s", tae.getOperation(), tae.getDetails());
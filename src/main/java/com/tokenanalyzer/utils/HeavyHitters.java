@@ -0,0 +1,144 @@
+package com.tokenanalyzer.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mergeable Misra-Gries frequent-items summary holding {@code capacity} counters, or
+ * up to twice that between reductions, which keeps {@link #offer} amortized O(1).
+ * Reported counts are lower bounds that undercount by at most {@link #getErrorBound()},
+ * which never exceeds total weight / (capacity + 1), so every item above that
+ * frequency is guaranteed to be tracked.
+ */
+public class HeavyHitters<K> {
+    private final int capacity;
+    private final Map<K, long[]> counters;
+    private long totalWeight = 0;
+    private long errorBound = 0;
+    
+    public record Entry<K>(K key, long count, long maxCount) {
+    }
+    
+    public HeavyHitters(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 4);
+    }
+    
+    public synchronized void offer(K key) {
+        totalWeight++;
+        long[] counter = counters.get(key);
+        if (counter != null) {
+            counter[0]++;
+        } else {
+            counters.put(key, new long[] { 1 });
+            if (counters.size() > 2L * capacity) {
+                reduce();
+            }
+        }
+    }
+    
+    /**
+     * Adds exact counts, e.g. one document's histogram.
+     */
+    public synchronized void addAll(Map<K, Long> counts) {
+        for (Map.Entry<K, Long> entry : counts.entrySet()) {
+            totalWeight += entry.getValue();
+            add(entry.getKey(), entry.getValue());
+        }
+        reduce();
+    }
+    
+    /**
+     * Adds a summary built elsewhere, e.g. from hashed counts: {@code counts} were
+     * already reduced by {@code errorBound} and come from {@code totalWeight} items.
+     */
+    public synchronized void addReduced(Map<K, Long> counts, long totalWeight, long errorBound) {
+        counts.forEach(this::add);
+        this.totalWeight += totalWeight;
+        this.errorBound += errorBound;
+        reduce();
+    }
+    
+    public void merge(HeavyHitters<K> other) {
+        Map<K, long[]> otherCounters;
+        long otherWeight;
+        long otherError;
+        synchronized (other) {
+            otherCounters = new HashMap<>(other.counters.size() * 2);
+            other.counters.forEach((key, value) -> otherCounters.put(key, new long[] { value[0] }));
+            otherWeight = other.totalWeight;
+            otherError = other.errorBound;
+        }
+        
+        synchronized (this) {
+            otherCounters.forEach((key, value) -> add(key, value[0]));
+            totalWeight += otherWeight;
+            errorBound += otherError;
+            reduce();
+        }
+    }
+    
+    /**
+     * The {@code n} most frequent tracked items, most frequent first.
+     */
+    public synchronized List<Entry<K>> top(int n) {
+        List<Entry<K>> entries = new ArrayList<>(counters.size());
+        counters.forEach((key, value) -> entries.add(new Entry<>(key, value[0], value[0] + errorBound)));
+        entries.sort(Comparator.comparingLong((Entry<K> entry) -> entry.count()).reversed());
+        return entries.size() > n ? new ArrayList<>(entries.subList(0, n)) : entries;
+    }
+    
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+    
+    public synchronized long getErrorBound() {
+        return errorBound;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public synchronized void reset() {
+        counters.clear();
+        totalWeight = 0;
+        errorBound = 0;
+    }
+    
+    private void add(K key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        long[] counter = counters.get(key);
+        if (counter != null) {
+            counter[0] += weight;
+        } else {
+            counters.put(key, new long[] { weight });
+        }
+    }
+    
+    private void reduce() {
+        if (counters.size() <= capacity) {
+            return;
+        }
+        // Subtract the (capacity + 1)-th largest count from everything, which leaves at most capacity counters
+        long[] values = new long[counters.size()];
+        int i = 0;
+        for (long[] value : counters.values()) {
+            values[i++] = value[0];
+        }
+        Arrays.sort(values);
+        long cut = values[values.length - capacity - 1];
+        
+        errorBound += cut;
+        counters.values().removeIf(value -> (value[0] -= cut) <= 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.tokenanalyzer.utils;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct-count sketch. At the default precision of 12 it holds 4096
+ * one-byte registers (4 KB) with about 1.6% standard error. Sketches of the same
+ * precision merge by register maximum, so per-document sketches combine into a
+ * corpus-wide count without keeping any of the underlying sets.
+ */
+public class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 12;
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private final int precision;
+    private final byte[] registers;
+    
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    public void addInt(int value) {
+        addHash(mix(value));
+    }
+    
+    /**
+     * Adds an already well-mixed 64-bit hash, e.g. from {@link #mix} or {@link #hashLowercase}.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The sentinel bit caps the rank when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+    
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+    
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros); // Linear counting for small cardinalities
+        }
+        return Math.round(estimate);
+    }
+    
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+    
+    public void reset() {
+        Arrays.fill(registers, (byte) 0);
+    }
+    
+    public int getPrecision() {
+        return precision;
+    }
+    
+    public int getSizeInBytes() {
+        return registers.length;
+    }
+    
+    /**
+     * MurmurHash3 64-bit finalizer.
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+    
+    /**
+     * Case-insensitive hash of {@code text[start, end)} without creating a substring.
+     */
+    public static long hashLowercase(CharSequence text, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash ^= Character.toLowerCase(text.charAt(i));
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.tokenanalyzer.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive longs with linear probing. Meant to be reused:
+ * {@link #clear()} keeps the table unless it grew past {@code retainedCapacity}, so
+ * counting distinct word hashes allocates nothing once the table has warmed up.
+ * Keys should already be well mixed, e.g. from {@link HyperLogLog#mix}.
+ */
+public class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+    private static final int DEFAULT_RETAINED_CAPACITY = 1 << 16;
+    
+    private final int retainedCapacity;
+    private long[] keys;
+    private int mask;
+    private int size = 0;
+    private boolean containsZero = false;
+    
+    public LongHashSet() {
+        this(MIN_CAPACITY, DEFAULT_RETAINED_CAPACITY);
+    }
+    
+    public LongHashSet(int expectedSize, int retainedCapacity) {
+        if (expectedSize < 0 || retainedCapacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + expectedSize + ", " + retainedCapacity);
+        }
+        this.retainedCapacity = Integer.highestOneBit(retainedCapacity);
+        allocate(tableSizeFor(expectedSize));
+    }
+    
+    /**
+     * Returns true if {@code key} was not already present.
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            // Zero marks empty slots, so it is tracked separately
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        
+        int slot = (int) key & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > (mask + 1) / 2) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+    
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int slot = (int) key & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        if (keys.length > retainedCapacity) {
+            allocate(retainedCapacity);
+        } else if (size > 0) {
+            Arrays.fill(keys, 0L);
+        }
+        size = 0;
+        containsZero = false;
+    }
+    
+    private void rehash(int capacity) {
+        long[] old = keys;
+        allocate(capacity);
+        for (long key : old) {
+            if (key != 0) {
+                int slot = (int) key & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+    
+    private static int tableSizeFor(int expectedSize) {
+        // Keeps the load factor at or below one half
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, expectedSize) * 2L - 1) * 2);
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,324 @@
+package com.tokenanalyzer.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Open-addressing map from primitive longs to long counts with linear probing. Keys
+ * are mixed before probing, so structured keys such as packed token n-grams spread
+ * evenly. Absent keys read as zero.
+ */
+public class LongLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+    
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size = 0;
+    private boolean containsZero = false;
+    private long zeroValue = 0;
+    
+    public record Entry(long key, long value) {
+    }
+    
+    /**
+     * Receives the entries of a map in table order.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+    
+    public LongLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+    
+    public LongLongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + expectedSize);
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+    
+    /**
+     * Adds {@code delta} to the value of {@code key} and returns the new value.
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            // Zero marks empty slots, so it is tracked separately
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            return zeroValue += delta;
+        }
+        
+        int slot = slotFor(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] += delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > (mask + 1) / 2) {
+            rehash(keys.length * 2);
+        }
+        return delta;
+    }
+    
+    /**
+     * Sets the value of {@code key} and returns the previous one, zero if it was absent.
+     */
+    public long put(long key, long value) {
+        long previous = get(key);
+        addTo(key, value - previous);
+        return previous;
+    }
+    
+    public long get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+    
+    public boolean containsKey(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void forEach(EntryConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+    
+    /**
+     * Adds every entry of {@code other} to this map.
+     */
+    public void addAll(LongLongHashMap other) {
+        other.forEach(this::addTo);
+    }
+    
+    /**
+     * Subtracts {@code amount} from every value and removes the entries left at zero or below.
+     */
+    public void subtractAll(long amount) {
+        if (containsZero && (zeroValue -= amount) <= 0) {
+            containsZero = false;
+            zeroValue = 0;
+            size--;
+        }
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length);
+        size = containsZero ? 1 : 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long value = oldValues[slot] - amount;
+            if (oldKeys[slot] != 0 && value > 0) {
+                insert(oldKeys[slot], value);
+                size++;
+            }
+        }
+    }
+    
+    /**
+     * The {@code k}-th largest value, or zero if the map has fewer entries.
+     */
+    public long kthLargestValue(int k) {
+        if (k <= 0 || k > size) {
+            return 0;
+        }
+        long[] all = new long[size];
+        int[] count = { 0 };
+        forEach((key, value) -> all[count[0]++] = value);
+        return select(all, all.length - k);
+    }
+    
+    /**
+     * The {@code k} entries with the largest values, largest first.
+     */
+    public List<Entry> top(int k) {
+        if (k <= 0 || size == 0) {
+            return List.of();
+        }
+        // Min-heap of the best k slots seen so far, with the zero key as slot -1
+        int limit = Math.min(k, size);
+        int[] heap = new int[limit];
+        int[] heapSize = { 0 };
+        if (containsZero) {
+            offer(heap, heapSize, -1);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                offer(heap, heapSize, slot);
+            }
+        }
+        
+        List<Entry> entries = new ArrayList<>(heapSize[0]);
+        for (int i = 0; i < heapSize[0]; i++) {
+            entries.add(new Entry(keyAt(heap[i]), valueAt(heap[i])));
+        }
+        entries.sort((a, b) -> Long.compare(b.value(), a.value()));
+        return entries;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        size = 0;
+        containsZero = false;
+        zeroValue = 0;
+    }
+    
+    private void offer(int[] heap, int[] heapSize, int slot) {
+        if (heapSize[0] < heap.length) {
+            int i = heapSize[0]++;
+            heap[i] = slot;
+            while (i > 0 && valueAt(heap[(i - 1) / 2]) > valueAt(heap[i])) {
+                swap(heap, i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+            return;
+        }
+        if (valueAt(slot) <= valueAt(heap[0])) {
+            return;
+        }
+        heap[0] = slot;
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < heap.length && valueAt(heap[left]) < valueAt(heap[smallest])) {
+                smallest = left;
+            }
+            if (right < heap.length && valueAt(heap[right]) < valueAt(heap[smallest])) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(heap, i, smallest);
+            i = smallest;
+        }
+    }
+    
+    /**
+     * Quickselect: the value that would sit at {@code index} if {@code values} were sorted.
+     */
+    private static long select(long[] values, int index) {
+        int low = 0;
+        int high = values.length - 1;
+        while (low < high) {
+            long pivot = values[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long value = values[i];
+                    values[i++] = values[j];
+                    values[j--] = value;
+                }
+            }
+            if (index <= j) {
+                high = j;
+            } else if (index >= i) {
+                low = i;
+            } else {
+                break;
+            }
+        }
+        return values[index];
+    }
+    
+    private long keyAt(int slot) {
+        return slot < 0 ? 0 : keys[slot];
+    }
+    
+    private long valueAt(int slot) {
+        return slot < 0 ? zeroValue : values[slot];
+    }
+    
+    private static void swap(int[] heap, int i, int j) {
+        int slot = heap[i];
+        heap[i] = heap[j];
+        heap[j] = slot;
+    }
+    
+    private int slotFor(long key) {
+        return (int) HyperLogLog.mix(key) & mask;
+    }
+    
+    private void insert(long key, long value) {
+        int slot = slotFor(key);
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+    
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != 0) {
+                insert(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+    
+    private static int tableSizeFor(int expectedSize) {
+        // Keeps the load factor at or below one half
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, expectedSize) * 2L - 1) * 2);
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+}
\ No newline at end of file
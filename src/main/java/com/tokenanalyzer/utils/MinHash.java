@@ -0,0 +1,64 @@
+package com.tokenanalyzer.utils;
+
+import com.knuddels.jtokkit.api.IntArrayList;
+
+import java.util.Arrays;
+
+/**
+ * MinHash signatures over shingles of consecutive token IDs. The fraction of equal
+ * positions in two signatures estimates the Jaccard similarity of the documents'
+ * shingle sets, with a standard error of at most 0.5 / sqrt(SIGNATURE_SIZE).
+ */
+public final class MinHash {
+    public static final int SIGNATURE_SIZE = 128;
+    public static final int SHINGLE_TOKENS = 4;
+    
+    private MinHash() {
+    }
+    
+    /**
+     * Returns {@code null} for an empty token list, which has no shingles to compare.
+     */
+    public static int[] signature(IntArrayList tokens) {
+        int size = tokens.size();
+        if (size == 0) {
+            return null;
+        }
+        
+        long[] minimums = new long[SIGNATURE_SIZE];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        int shingles = Math.max(1, size - SHINGLE_TOKENS + 1);
+        for (int i = 0; i < shingles; i++) {
+            long hash = 0;
+            for (int j = i; j < Math.min(size, i + SHINGLE_TOKENS); j++) {
+                hash = HyperLogLog.mix(hash ^ tokens.get(j)) + j - i;
+            }
+            // Kirsch-Mitzenmacher: SIGNATURE_SIZE hash functions derived from two
+            long h1 = HyperLogLog.mix(hash);
+            long h2 = HyperLogLog.mix(h1) | 1;
+            long combined = h1;
+            for (int k = 0; k < SIGNATURE_SIZE; k++) {
+                if (combined < minimums[k]) {
+                    minimums[k] = combined;
+                }
+                combined += h2;
+            }
+        }
+        
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int k = 0; k < SIGNATURE_SIZE; k++) {
+            signature[k] = (int) (minimums[k] >>> 32);
+        }
+        return signature;
+    }
+    
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int k = 0; k < SIGNATURE_SIZE; k++) {
+            if (a[k] == b[k]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.tokenanalyzer.utils;
+
+import com.knuddels.jtokkit.api.IntArrayList;
+
+import java.util.List;
+
+/**
+ * Counts token bigrams and trigrams, packed 21 bits per token into long keys. Counts
+ * are exact until more than {@code capacity} distinct n-grams of one length are held;
+ * past that each length is reduced like {@link HeavyHitters}, so counts are lower
+ * bounds that undercount by at most that length's error bound. Counters merge, which
+ * rolls per-document counts up into a bounded corpus-wide summary.
+ */
+public class NgramCounter {
+    public static final int MIN_N = 2;
+    public static final int MAX_N = 3;
+    private static final int TOKEN_BITS = 21; // Covers every ID of the supported encodings
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long BIGRAM_MASK = (1L << 2 * TOKEN_BITS) - 1;
+    private static final long TRIGRAM_MASK = (1L << 3 * TOKEN_BITS) - 1;
+    
+    private final int capacity;
+    private final LongLongHashMap[] counts = new LongLongHashMap[MAX_N - MIN_N + 1];
+    private final long[] totals = new long[MAX_N - MIN_N + 1];
+    private final long[] errorBounds = new long[MAX_N - MIN_N + 1];
+    
+    public record Entry(int n, long key, long count, long maxCount) {
+        public int[] tokens() {
+            return unpack(key, n);
+        }
+    }
+    
+    /**
+     * An exact counter.
+     */
+    public NgramCounter() {
+        this(Integer.MAX_VALUE);
+    }
+    
+    public NgramCounter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongLongHashMap();
+        }
+    }
+    
+    /**
+     * Counts every bigram and trigram of one document's token stream.
+     */
+    public synchronized void count(IntArrayList tokens) {
+        LongLongHashMap bigrams = counts[0];
+        LongLongHashMap trigrams = counts[1];
+        long reduceAbove = 2L * capacity; // Reducing only once the table doubles keeps it amortized O(1)
+        long window = 0;
+        int run = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            int token = tokens.get(i);
+            if ((token & ~TOKEN_MASK) != 0) {
+                run = 0; // Does not fit a key, so no n-gram spans it
+                continue;
+            }
+            window = (window << TOKEN_BITS | token) & TRIGRAM_MASK;
+            run = Math.min(run + 1, MAX_N);
+            if (run >= 2) {
+                bigrams.addTo(window & BIGRAM_MASK, 1);
+                totals[0]++;
+                if (bigrams.size() > reduceAbove) {
+                    reduce(0);
+                }
+            }
+            if (run >= 3) {
+                trigrams.addTo(window, 1);
+                totals[1]++;
+                if (trigrams.size() > reduceAbove) {
+                    reduce(1);
+                }
+            }
+        }
+    }
+    
+    public void merge(NgramCounter other) {
+        LongLongHashMap[] otherCounts = new LongLongHashMap[counts.length];
+        long[] otherTotals;
+        long[] otherErrors;
+        synchronized (other) {
+            for (int i = 0; i < counts.length; i++) {
+                otherCounts[i] = new LongLongHashMap(other.counts[i].size());
+                otherCounts[i].addAll(other.counts[i]);
+            }
+            otherTotals = other.totals.clone();
+            otherErrors = other.errorBounds.clone();
+        }
+        
+        synchronized (this) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i].addAll(otherCounts[i]);
+                totals[i] += otherTotals[i];
+                errorBounds[i] += otherErrors[i];
+                if (counts[i].size() > 2L * capacity) {
+                    reduce(i);
+                }
+            }
+        }
+    }
+    
+    /**
+     * The {@code k} most frequent tracked n-grams of length {@code n}, most frequent first.
+     */
+    public synchronized List<Entry> top(int n, int k) {
+        int i = indexFor(n);
+        long errorBound = errorBounds[i];
+        return counts[i].top(k).stream()
+            .map(entry -> new Entry(n, entry.key(), entry.value(), entry.value() + errorBound))
+            .toList();
+    }
+    
+    /**
+     * Number of n-grams of length {@code n} counted, including repeats.
+     */
+    public synchronized long getTotal(int n) {
+        return totals[indexFor(n)];
+    }
+    
+    /**
+     * Distinct n-grams of length {@code n}; exact only while {@link #isExact(int)}.
+     */
+    public synchronized int getTracked(int n) {
+        return counts[indexFor(n)].size();
+    }
+    
+    public synchronized long getErrorBound(int n) {
+        return errorBounds[indexFor(n)];
+    }
+    
+    public synchronized boolean isExact(int n) {
+        return errorBounds[indexFor(n)] == 0;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public synchronized void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongLongHashMap();
+            totals[i] = 0;
+            errorBounds[i] = 0;
+        }
+    }
+    
+    /**
+     * Peak heap use of counting with {@code capacity}: a table reduced past 2 × capacity
+     * n-grams spans up to 8 × capacity slots of 16 bytes and is copied while reduced,
+     * beside the other length's table.
+     */
+    public static long peakBytes(int capacity) {
+        return 3L * 8 * capacity * 2 * Long.BYTES;
+    }
+    
+    public static int[] unpack(long key, int n) {
+        int[] tokens = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            tokens[i] = (int) (key & TOKEN_MASK);
+            key >>>= TOKEN_BITS;
+        }
+        return tokens;
+    }
+    
+    private void reduce(int i) {
+        // Subtract the (capacity + 1)-th largest count from everything, which leaves at most capacity counters
+        long cut = counts[i].kthLargestValue(capacity + 1);
+        errorBounds[i] += cut;
+        counts[i].subtractAll(cut);
+    }
+    
+    private static int indexFor(int n) {
+        if (n < MIN_N || n > MAX_N) {
+            throw new IllegalArgumentException("N-gram length must be between " + MIN_N + " and " + MAX_N + ": " + n);
+        }
+        return n - MIN_N;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.tokenanalyzer.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Allocation-free version of the simplified syllable rule: lowercase, drop everything
+ * outside a-z, count vowel groups, discount a trailing silent 'e', and never return
+ * less than one. Words of up to 12 letters are packed into a long, which serves as an
+ * exact key for a precomputed table of common English words and a bounded cache.
+ */
+public final class SyllableCounter {
+    private static final int MAX_PACKED_LETTERS = 12;
+    private static final int LETTER_BITS = 5;
+    private static final long KEY_MASK = (1L << (MAX_PACKED_LETTERS * LETTER_BITS)) - 1;
+    private static final int COUNT_SHIFT = MAX_PACKED_LETTERS * LETTER_BITS;
+    private static final int CACHE_SLOTS = 1 << 14;
+    
+    private static final String[] COMMON_WORDS = {
+        "the", "be", "to", "of", "and", "a", "in", "that", "have", "i", "it", "for", "not", "on",
+        "with", "he", "as", "you", "do", "at", "this", "but", "his", "by", "from", "they", "we",
+        "say", "her", "she", "or", "an", "will", "my", "one", "all", "would", "there", "their",
+        "what", "so", "up", "out", "if", "about", "who", "get", "which", "go", "me", "when",
+        "make", "can", "like", "time", "no", "just", "him", "know", "take", "people", "into",
+        "year", "your", "good", "some", "could", "them", "see", "other", "than", "then", "now",
+        "look", "only", "come", "its", "over", "think", "also", "back", "after", "use", "two",
+        "how", "our", "work", "first", "well", "way", "even", "new", "want", "because", "any",
+        "these", "give", "day", "most", "us", "is", "are", "was", "were", "been", "has", "had",
+        "did", "said", "more", "may", "should", "such", "each", "many", "those", "where",
+        "between", "under", "while", "through", "before", "very", "here", "must", "same",
+        "being", "both", "own", "data", "number", "system", "used", "using", "however"
+    };
+    private static final long[] COMMON = new long[512];
+    // Direct-mapped; a slot holds the packed word in its low 60 bits and the count above them
+    private static final AtomicLongArray CACHE = new AtomicLongArray(CACHE_SLOTS);
+    
+    static {
+        for (String word : COMMON_WORDS) {
+            long key = pack(word, 0, word.length());
+            int slot = (int) HyperLogLog.mix(key) & (COMMON.length - 1);
+            while (COMMON[slot] != 0) {
+                slot = (slot + 1) & (COMMON.length - 1);
+            }
+            COMMON[slot] = (long) countDirect(word, 0, word.length()) << COUNT_SHIFT | key;
+        }
+    }
+    
+    private SyllableCounter() {
+    }
+    
+    public static int count(CharSequence text) {
+        return count(text, 0, text.length());
+    }
+    
+    public static int count(CharSequence text, int start, int end) {
+        long key = pack(text, start, end);
+        if (key == 0) {
+            return 1; // No letters at all
+        }
+        if (key < 0) {
+            return countDirect(text, start, end); // Too long to pack
+        }
+        
+        int slot = (int) HyperLogLog.mix(key) & (COMMON.length - 1);
+        while (COMMON[slot] != 0) {
+            if ((COMMON[slot] & KEY_MASK) == key) {
+                return (int) (COMMON[slot] >>> COUNT_SHIFT);
+            }
+            slot = (slot + 1) & (COMMON.length - 1);
+        }
+        
+        slot = (int) HyperLogLog.mix(key) & (CACHE_SLOTS - 1);
+        long entry = CACHE.get(slot);
+        if ((entry & KEY_MASK) == key) {
+            return (int) (entry >>> COUNT_SHIFT);
+        }
+        int count = countDirect(text, start, end);
+        CACHE.set(slot, (long) count << COUNT_SHIFT | key);
+        return count;
+    }
+    
+    /**
+     * The retained letters as 5-bit codes (a = 1), 0 if there are none, or -1 if more than 12.
+     */
+    private static long pack(CharSequence text, int start, int end) {
+        long key = 0;
+        int letters = 0;
+        for (int i = start; i < end; i++) {
+            char c = fold(text.charAt(i));
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            if (++letters > MAX_PACKED_LETTERS) {
+                return -1;
+            }
+            key = key << LETTER_BITS | (c - 'a' + 1);
+        }
+        return key;
+    }
+    
+    private static int countDirect(CharSequence text, int start, int end) {
+        int count = 0;
+        boolean previousWasVowel = false;
+        char last = 0;
+        for (int i = start; i < end; i++) {
+            char c = fold(text.charAt(i));
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            boolean isVowel = c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+            if (isVowel && !previousWasVowel) {
+                count++;
+            }
+            previousWasVowel = isVowel;
+            last = c;
+        }
+        
+        // Adjust for silent 'e'
+        if (last == 'e' && count > 1) {
+            count--;
+        }
+        return Math.max(1, count);
+    }
+    
+    private static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        // The only non-ASCII characters that String.toLowerCase maps into a-z
+        if (c == '\u212A') {
+            return 'k';
+        }
+        return c == '\u0130' ? 'i' : c;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.tokenanalyzer.utils;
+
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * Finds character offsets where the BPE pre-tokenizer always starts a new chunk,
+ * so the token count of a text is the sum of the counts on either side. A single
+ * space between two non-whitespace characters is safe for every encoding; for
+ * cl100k and o200k a line start followed by a letter or digit is safe as well.
+ */
+public final class TokenBoundaries {
+    
+    private TokenBoundaries() {
+    }
+    
+    public static boolean isSafe(CharSequence text, int index, EncodingType encodingType) {
+        if (index <= 0 || index >= text.length()) {
+            return true;
+        }
+        
+        char current = text.charAt(index);
+        char previous = text.charAt(index - 1);
+        if (current == ' ') {
+            return index + 1 < text.length()
+                && !Character.isWhitespace(previous)
+                && !Character.isWhitespace(text.charAt(index + 1));
+        }
+        return previous == '\n' && splitsLines(encodingType) && Character.isLetterOrDigit(current);
+    }
+    
+    /**
+     * Largest safe offset that is {@code <= index}, or 0 when there is none.
+     */
+    public static int atOrBefore(CharSequence text, int index, EncodingType encodingType) {
+        return atOrBefore(text, index, 0, encodingType);
+    }
+    
+    /**
+     * Largest safe offset in {@code (floor, index]}, or {@code floor} when there is none.
+     */
+    public static int atOrBefore(CharSequence text, int index, int floor, EncodingType encodingType) {
+        for (int i = Math.min(index, text.length()); i > floor; i--) {
+            if (isSafe(text, i, encodingType)) {
+                return i;
+            }
+        }
+        return Math.max(floor, 0);
+    }
+    
+    /**
+     * Smallest safe offset that is {@code >= index}, or the text length when there is none.
+     */
+    public static int atOrAfter(CharSequence text, int index, EncodingType encodingType) {
+        return atOrAfter(text, index, text.length(), encodingType);
+    }
+    
+    /**
+     * Smallest safe offset in {@code [index, limit)}, or {@code limit} when there is none.
+     */
+    public static int atOrAfter(CharSequence text, int index, int limit, EncodingType encodingType) {
+        int end = Math.min(limit, text.length());
+        for (int i = Math.max(index, 0); i < end; i++) {
+            if (isSafe(text, i, encodingType)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+    
+    private static boolean splitsLines(EncodingType encodingType) {
+        // r50k/p50k only keep a newline run whole when nothing follows it
+        return encodingType == EncodingType.CL100K_BASE || encodingType == EncodingType.O200K_BASE;
+    }
+}
\ No newline at end of file
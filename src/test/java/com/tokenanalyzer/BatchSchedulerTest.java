@@ -0,0 +1,164 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.tokenanalyzer.exceptions.AnalysisTimeoutException;
+
+class BatchSchedulerTest {
+    private static final Duration EXTRACTION_LIMIT = Duration.ofMillis(200);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void waitingForACpuThreadDoesNotCountAsExtraction() throws Exception {
+        List<File> files = write(3);
+        Map<String, Object> outcomes = runOnOneCpuThread(files, (file, deadline) -> Files.readString(file.toPath()),
+            (file, content, deadline) -> {
+                deadline.enterStage(AnalysisDeadline.STAGE_ENCODING);
+                Thread.sleep(EXTRACTION_LIMIT.toMillis() * 2);
+                return content;
+            });
+        
+        for (File file : files) {
+            assertEquals(file.getName(), outcomes.get(file.getName()));
+        }
+    }
+    
+    @Test
+    void slowExtractionStillTimesOut() throws Exception {
+        List<File> files = write(1);
+        Map<String, Object> outcomes = runOnOneCpuThread(files, (file, deadline) -> {
+            try {
+                Thread.sleep(EXTRACTION_LIMIT.toMillis() * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return file.getName();
+        }, (file, content, deadline) -> content);
+        
+        AnalysisTimeoutException timeout = assertInstanceOf(AnalysisTimeoutException.class,
+            outcomes.get(files.get(0).getName()));
+        assertEquals(AnalysisDeadline.STAGE_EXTRACTION, timeout.getStage());
+    }
+    
+    @Test
+    void memoryIsHeldUntilATimedOutExtractorReturns() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1L << 30);
+        long[] availableOnReturn = new long[1];
+        CountDownLatch returned = new CountDownLatch(1);
+        Map<String, Object> outcomes = runOnOneCpuThread(write(1), budget, (file, deadline) -> {
+            // Ignores the interrupt, like a parser stuck in native code
+            long end = System.nanoTime() + EXTRACTION_LIMIT.toNanos() * 4;
+            while (System.nanoTime() < end) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    // Timed out, but still holding the document
+                }
+            }
+            availableOnReturn[0] = budget.getAvailableBytes();
+            returned.countDown();
+            return file.getName();
+        }, (file, content, deadline) -> content);
+        
+        assertInstanceOf(AnalysisTimeoutException.class, outcomes.values().iterator().next());
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        assertTrue(availableOnReturn[0] < budget.getBudgetBytes(), "Released while the extractor was running");
+        assertAllReleased(budget);
+    }
+    
+    private Map<String, Object> runOnOneCpuThread(List<File> files, BatchScheduler.Extractor<String> extractor,
+                                                  BatchScheduler.Analyzer<String, String> analyzer) throws Exception {
+        MemoryBudget budget = new MemoryBudget(1L << 30);
+        Map<String, Object> outcomes = runOnOneCpuThread(files, budget, extractor, analyzer);
+        assertAllReleased(budget);
+        return outcomes;
+    }
+    
+    /** A timed-out extractor may still be returning, and releases its memory when it does. */
+    private static void assertAllReleased(MemoryBudget budget) throws InterruptedException {
+        long waitUntil = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (budget.getAvailableBytes() < budget.getBudgetBytes() && System.nanoTime() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertEquals(budget.getBudgetBytes(), budget.getAvailableBytes());
+    }
+    
+    private Map<String, Object> runOnOneCpuThread(List<File> files, MemoryBudget budget,
+                                                  BatchScheduler.Extractor<String> extractor,
+                                                  BatchScheduler.Analyzer<String, String> analyzer) throws Exception {
+        Map<String, Object> outcomes = new ConcurrentHashMap<>();
+        try (BatchScheduler scheduler = new BatchScheduler(new FileProcessor(), 3, 1, budget)) {
+            scheduler.run(files, name -> new AnalysisDeadline(name, Duration.ZERO, EXTRACTION_LIMIT, Duration.ZERO),
+                extractor, analyzer, new BatchScheduler.Listener<>() {
+                    @Override
+                    public void onResult(File file, String result) {
+                        outcomes.put(file.getName(), result);
+                    }
+                    
+                    @Override
+                    public void onFailure(File file, Exception error) {
+                        outcomes.put(file.getName(), error);
+                    }
+                });
+        }
+        assertTrue(outcomes.keySet().containsAll(files.stream().map(File::getName).toList()));
+        return outcomes;
+    }
+    
+    @Test
+    void pdfsAreCostedByTheirProbedPageCount() throws Exception {
+        File brief = writePdf("brief.pdf", 2);
+        File thick = writePdf("thick.pdf", 40);
+        assertEquals(2, FileProcessor.probePdfPageCount(brief));
+        assertEquals(40, FileProcessor.probePdfPageCount(thick));
+        assertEquals(0, FileProcessor.probePdfPageCount(write(1).get(0)));
+        
+        try (BatchScheduler scheduler = new BatchScheduler(new FileProcessor(), 1, 1, new MemoryBudget(1L << 30))) {
+            List<BatchScheduler.ScheduledFile> plan = scheduler.plan(List.of(brief, thick));
+            assertEquals(thick, plan.get(0).file());
+            assertEquals(40, plan.get(0).metadata().pageCount());
+        }
+    }
+    
+    private File writePdf(String name, int pages) throws Exception {
+        File file = directory.resolve(name).toFile();
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(file, CompressParameters.NO_COMPRESSION);
+        }
+        return file;
+    }
+    
+    private List<File> write(int count) throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = directory.resolve("file" + i + ".txt");
+            Files.writeString(file, "file" + i + ".txt");
+            files.add(file.toFile());
+        }
+        return files;
+    }
+}
\ No newline at end of file
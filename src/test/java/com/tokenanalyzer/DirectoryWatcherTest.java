@@ -0,0 +1,45 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.knuddels.jtokkit.api.EncodingType;
+
+class DirectoryWatcherTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void initialScanIsAnalyzedWithoutFurtherEvents() throws Exception {
+        Files.writeString(directory.resolve("a.txt"), "The first file.");
+        Files.writeString(directory.resolve("b.md"), "The second file, a little longer.");
+        CountDownLatch analyzed = new CountDownLatch(2);
+        MemoryBudget budget = MemoryBudget.shared();
+        AtomicLong heldOnUpdate = new AtomicLong();
+        
+        TokenEngine engine = TokenEngine.shared();
+        try (DirectoryWatcher watcher = new DirectoryWatcher(engine.getFileProcessor(), engine,
+                EncodingType.CL100K_BASE, directory.toFile(), false, 200, update -> {
+                    if (update.type() == DirectoryWatcher.UpdateType.ANALYZED) {
+                        // Each file releases its memory before its update, so at most the other one holds any
+                        heldOnUpdate.accumulateAndGet(budget.getBudgetBytes() - budget.getAvailableBytes(), Math::max);
+                        analyzed.countDown();
+                    }
+                })) {
+            watcher.start();
+            assertTrue(analyzed.await(30, TimeUnit.SECONDS), "Initial scan was never flushed");
+            assertEquals(2, watcher.getSummary().fileCount());
+            assertTrue(watcher.getSummary().totalTokens() > 0);
+            assertTrue(heldOnUpdate.get() <= MemoryBudget.estimate(directory.resolve("b.md").toFile()));
+        }
+    }
+}
\ No newline at end of file
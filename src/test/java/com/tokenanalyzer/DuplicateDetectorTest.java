@@ -0,0 +1,95 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.knuddels.jtokkit.api.IntArrayList;
+import com.tokenanalyzer.models.DuplicateCluster;
+import com.tokenanalyzer.utils.MinHash;
+
+class DuplicateDetectorTest {
+    private static final double THRESHOLD = 0.8;
+    
+    @Test
+    void bandedClustersMatchExhaustiveComparison() {
+        Random random = new Random(5);
+        List<IntArrayList> originals = new ArrayList<>();
+        List<int[]> signatures = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            IntArrayList tokens;
+            if (originals.isEmpty() || random.nextInt(3) > 0) {
+                tokens = randomTokens(random, 500 + random.nextInt(1_500));
+                originals.add(tokens);
+            } else {
+                tokens = nearCopy(originals.get(random.nextInt(originals.size())), random);
+            }
+            signatures.add(i % 97 == 0 ? null : MinHash.signature(tokens));
+        }
+        
+        DuplicateDetector detector = new DuplicateDetector(THRESHOLD, true);
+        List<Integer> representatives = new ArrayList<>();
+        int duplicates = 0;
+        for (int i = 0; i < signatures.size(); i++) {
+            DuplicateCluster expected = exhaustive("doc" + i, i, signatures, representatives);
+            assertEquals(expected, detector.assign("doc" + i, signatures.get(i)));
+            duplicates += expected.duplicate() ? 1 : 0;
+        }
+        assertTrue(duplicates > 500, "Only " + duplicates + " duplicates");
+    }
+    
+    @Test
+    void emptyDocumentsAreNeverDuplicates() {
+        DuplicateDetector detector = new DuplicateDetector(THRESHOLD, false);
+        assertFalse(detector.assign("a", null).duplicate());
+        DuplicateCluster second = detector.assign("b", null);
+        assertFalse(second.duplicate());
+        assertEquals(1, second.clusterId());
+    }
+    
+    /** The clustering rule applied by scanning every representative. */
+    private static DuplicateCluster exhaustive(String name, int id, List<int[]> signatures,
+                                               List<Integer> representatives) {
+        int[] signature = signatures.get(id);
+        if (signature == null) {
+            return new DuplicateCluster(id, name, 1.0, false, false);
+        }
+        int best = -1;
+        double bestSimilarity = 0;
+        for (int representative : representatives) {
+            double similarity = MinHash.similarity(signature, signatures.get(representative));
+            if (similarity >= THRESHOLD && similarity > bestSimilarity) {
+                best = representative;
+                bestSimilarity = similarity;
+            }
+        }
+        if (best >= 0) {
+            return new DuplicateCluster(best, "doc" + best, bestSimilarity, true, true);
+        }
+        representatives.add(id);
+        return new DuplicateCluster(id, name, 1.0, false, false);
+    }
+    
+    private static IntArrayList randomTokens(Random random, int size) {
+        IntArrayList tokens = new IntArrayList(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(random.nextInt(50_000));
+        }
+        return tokens;
+    }
+    
+    /** A copy with about one token in 300 replaced, well above the threshold. */
+    private static IntArrayList nearCopy(IntArrayList original, Random random) {
+        IntArrayList tokens = new IntArrayList(original.size());
+        for (int i = 0; i < original.size(); i++) {
+            tokens.add(random.nextInt(300) == 0 ? random.nextInt(50_000) : original.get(i));
+        }
+        return tokens;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.tokenanalyzer.metrics.PerformanceMetrics;
+import com.tokenanalyzer.models.DensityMetrics;
+import com.tokenanalyzer.models.ReadabilityMetrics;
+import com.tokenanalyzer.utils.HeavyHitters;
+import com.tokenanalyzer.utils.HyperLogLog;
+
+class TextAnalyzerTest {
+    private static final Pattern WORD = Pattern.compile("\\w+");
+    
+    private final TokenEngine.TextAnalyzer analyzer = new TokenEngine.TextAnalyzer(PerformanceMetrics.getInstance());
+    
+    @Test
+    void frequentWordsStayWithinTheSketchErrorBound() {
+        String text = zipfText(200_000, 20_000, 7);
+        Map<String, Long> exact = exactCounts(text);
+        
+        HyperLogLog distinct = new HyperLogLog();
+        HeavyHitters<String> frequent = new HeavyHitters<>(256);
+        analyzer.sketchWords(text, distinct, frequent);
+        
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, frequent.getTotalWeight());
+        assertTrue(frequent.getErrorBound() <= total / 257, "Error bound " + frequent.getErrorBound());
+        
+        List<HeavyHitters.Entry<String>> top = frequent.top(10);
+        assertEquals(10, top.size());
+        for (HeavyHitters.Entry<String> entry : top) {
+            long count = exact.get(entry.key());
+            assertTrue(entry.count() <= count && count <= entry.maxCount(), entry + " vs " + count);
+        }
+        assertEquals(exact.size(), distinct.estimate(), exact.size() * 0.05);
+    }
+    
+    @Test
+    void smallDocumentsAreCountedExactly() {
+        HeavyHitters<String> frequent = new HeavyHitters<>(256);
+        analyzer.sketchWords("The cat and THE dog, the_end; naïve", new HyperLogLog(), frequent);
+        
+        Map<String, Long> counts = new HashMap<>();
+        frequent.top(256).forEach(entry -> counts.put(entry.key(), entry.count()));
+        assertEquals(exactCounts("The cat and THE dog, the_end; naïve"), counts);
+        assertEquals(0, frequent.getErrorBound());
+    }
+    
+    @Test
+    void offeredItemsAreReducedInBatches() {
+        HeavyHitters<Integer> frequent = new HeavyHitters<>(16);
+        Random random = new Random(3);
+        Map<Integer, Long> exact = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int item = (int) (-Math.log(1 - random.nextDouble()) * 200);
+            frequent.offer(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+        
+        assertTrue(frequent.getErrorBound() <= 100_000 / 17);
+        for (HeavyHitters.Entry<Integer> entry : frequent.top(5)) {
+            long count = exact.get(entry.key());
+            assertTrue(entry.count() <= count && count <= entry.maxCount(), entry + " vs " + count);
+        }
+        assertTrue(frequent.top(100).size() <= 32);
+    }
+    
+    @Test
+    void hashedDistinctWordsMatchStringSets() {
+        for (String text : List.of(randomWords(300_000, 11), zipfText(100_000, 50_000, 12), "")) {
+            Set<String> folded = new HashSet<>();
+            Set<String> exact = new HashSet<>();
+            long wordChars = 0;
+            Matcher matcher = WORD.matcher(text);
+            while (matcher.find()) {
+                folded.add(matcher.group().toLowerCase(Locale.ROOT));
+                exact.add(matcher.group());
+                wordChars += matcher.group().length();
+            }
+            long words = matcher.reset().results().count();
+            
+            double lexicalDiversity = words == 0 ? 0 : (double) folded.size() / words;
+            assertEquals(lexicalDiversity, analyzer.calculateDensity(text).lexicalDiversity());
+            
+            // Vocabulary richness only surfaces through the complexity score
+            ReadabilityMetrics readability = analyzer.calculateReadability(text);
+            double complexity = words == 0 ? 0 : Math.min(1.0, (double) wordChars / words / 10.0 * 0.3
+                + readability.avgSentenceLength() / 30.0 * 0.4
+                + (1 - (double) exact.size() / words) * 0.3);
+            assertEquals(complexity, readability.complexityScore(), 1e-12);
+        }
+    }
+    
+    @Test
+    void sampledDensityCountsTheSameWhitespace() {
+        // Ideographic, en and file separator spaces are whitespace to Java but not to \s
+        String text = zipfText(50_000, 5_000, 13).replace("e ", "e\u3000").replace("a ", "a\u2002")
+            .replace("o ", "o\u001C");
+        DensityMetrics full = analyzer.calculateDensity(text);
+        DensityMetrics sampled = analyzer.calculateDensity(text, analyzer.sampleReadability(text));
+        
+        assertEquals(full.contentDensity(), sampled.contentDensity());
+        assertEquals(full.whitespaceRatio(), sampled.whitespaceRatio());
+    }
+    
+    /** Counts the same {@code \w+} words lexical diversity uses, case-folded. */
+    private static Map<String, Long> exactCounts(String text) {
+        Map<String, Long> counts = new HashMap<>();
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            counts.merge(matcher.group().toLowerCase(Locale.ROOT), 1L, Long::sum);
+        }
+        return counts;
+    }
+    
+    /** Mixed-case words over the whole {@code \w} alphabet, with non-ASCII letters as separators. */
+    private static String randomWords(int words, long seed) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+        String[] separators = { " ", " ", " ", ", ", "-", "é", "\n", ". " };
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            int length = 1 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                text.append(alphabet.charAt(random.nextInt(random.nextInt(8) == 0 ? alphabet.length() : 8)));
+            }
+            text.append(separators[random.nextInt(separators.length)]);
+        }
+        return text.toString();
+    }
+    
+    static String zipfText(int words, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            // Rank ~ 1 / u gives a Zipf-like word distribution
+            int rank = (int) Math.min(vocabulary - 1, 1 / (random.nextDouble() + 1e-6));
+            String word = "w" + Integer.toString(rank, 36);
+            text.append(random.nextInt(4) == 0 ? word.toUpperCase(Locale.ROOT) : word);
+            text.append(i % 12 == 11 ? ". " : " ");
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.DocumentAnalysis;
+
+/**
+ * Runs the shared engine and its shared file processor over a fixed corpus of text,
+ * code, HTML, Word and PDF files on more and more threads, and checks every
+ * extraction and analysis against a single-threaded baseline, logging throughput per
+ * thread count. At least four threads run even on smaller machines, so the
+ * per-thread scratch state is always contended.
+ */
+class TokenEngineConcurrencyTest {
+    private static final Logger logger = LoggerFactory.getLogger(TokenEngineConcurrencyTest.class);
+    private static final EncodingType ENCODING_TYPE = EncodingType.CL100K_BASE;
+    private static final int DOCUMENTS = 24;
+    private static final int PDF_LINE_CHARS = 90;
+    private static final int PDF_PAGE_LINES = 50;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void sharedEngineMatchesSingleThreadedBaseline() throws Exception {
+        List<File> corpus = corpus();
+        TokenEngine engine = TokenEngine.shared();
+        analyzeShuffled(engine, corpus, -1); // Warm-up, so the first thread count is not timed cold
+        List<Snapshot> baseline = new ArrayList<>();
+        for (File file : corpus) {
+            Snapshot snapshot = analyze(engine, file);
+            assertTrue(snapshot.result().totalTokens() > 500, "Too little text extracted from " + file.getName());
+            baseline.add(snapshot);
+        }
+        long bytes = corpus.stream().mapToLong(File::length).sum();
+        
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        
+        for (int threads : threadCounts) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Callable<List<Snapshot>>> passes = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long seed = t;
+                    passes.add(() -> analyzeShuffled(engine, corpus, seed));
+                }
+                
+                long start = System.nanoTime();
+                List<Future<List<Snapshot>>> results = pool.invokeAll(passes);
+                List<List<Snapshot>> snapshots = new ArrayList<>();
+                for (Future<List<Snapshot>> result : results) {
+                    snapshots.add(result.get());
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                
+                for (List<Snapshot> pass : snapshots) {
+                    assertEquals(baseline, pass, threads + " threads");
+                }
+                logger.info("{} threads: {} documents/s, {} MB/s of files", threads,
+                    String.format("%.1f", threads * corpus.size() / seconds),
+                    String.format("%.2f", threads * bytes / seconds / 1e6));
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+    
+    /** Extracts and analyzes every file in a per-thread random order, returned in corpus order. */
+    private static List<Snapshot> analyzeShuffled(TokenEngine engine, List<File> corpus, long seed) throws IOException {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < corpus.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(seed));
+        
+        Snapshot[] snapshots = new Snapshot[corpus.size()];
+        for (int i : order) {
+            snapshots[i] = analyze(engine, corpus.get(i));
+        }
+        return List.of(snapshots);
+    }
+    
+    private static Snapshot analyze(TokenEngine engine, File file) throws IOException {
+        String text = engine.getFileProcessor().extractText(file);
+        return Snapshot.of(text, engine.analyzeDocument(file.getName(), text, ENCODING_TYPE));
+    }
+    
+    private List<File> corpus() throws IOException {
+        Random random = new Random(50);
+        List<File> corpus = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            Path file = switch (i % 4) {
+                case 0 -> Files.writeString(directory.resolve("doc" + i + ".txt"),
+                    TextAnalyzerTest.zipfText(1_000 + random.nextInt(20_000), 5_000, i));
+                case 1 -> Files.writeString(directory.resolve("doc" + i + ".java"), code(200 + random.nextInt(1_500), random));
+                case 2 -> Files.writeString(directory.resolve("doc" + i + ".html"), "<html><head><title>Doc " + i
+                    + "</title></head><body><p>" + unicodeText(i, random) + "</p></body></html>");
+                default -> i % 8 == 3
+                    ? writeDocx(directory.resolve("doc" + i + ".docx"), unicodeText(i, random))
+                    : writePdf(directory.resolve("doc" + i + ".pdf"),
+                        TextAnalyzerTest.zipfText(1_000 + random.nextInt(4_000), 2_000, i));
+            };
+            corpus.add(file.toFile());
+        }
+        return corpus;
+    }
+    
+    private static String unicodeText(int seed, Random random) {
+        return "Ünïcödé tëxt — ” 東京 “ " + TextAnalyzerTest.zipfText(2_000 + random.nextInt(5_000), 500, seed);
+    }
+    
+    private static Path writeDocx(Path file, String text) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(); OutputStream output = Files.newOutputStream(file)) {
+            for (String sentence : text.split("\\. ")) {
+                document.createParagraph().createRun().setText(sentence + ".");
+            }
+            document.write(output);
+        }
+        return file;
+    }
+    
+    private static Path writePdf(Path file, String text) throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        for (String word : text.split(" ")) {
+            if (line.length() + word.length() > PDF_LINE_CHARS) {
+                lines.add(line.toString().trim());
+                line.setLength(0);
+            }
+            line.append(word).append(' ');
+        }
+        lines.add(line.toString().trim());
+        
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int first = 0; first < lines.size(); first += PDF_PAGE_LINES) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 9);
+                    content.setLeading(12);
+                    content.newLineAtOffset(40, 740);
+                    for (String pageLine : lines.subList(first, Math.min(lines.size(), first + PDF_PAGE_LINES))) {
+                        content.showText(pageLine);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+    
+    private static String code(int lines, Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("    int value").append(random.nextInt(50)).append(" = compute(")
+                .append(random.nextInt(1_000)).append(", \"").append(Integer.toString(random.nextInt(), 36))
+                .append("\");\n");
+        }
+        return text.toString();
+    }
+    
+    /**
+     * The extracted text and the deterministic parts of its analysis: everything except
+     * its processing time, plus the document's sketches.
+     */
+    private record Snapshot(String text, AnalysisResult result, Object tokenMetrics, List<?> frequentWords,
+                            List<?> bigrams, List<?> trigrams, long distinctTokens, long distinctWords) {
+        static Snapshot of(String text, DocumentAnalysis analysis) {
+            AnalysisResult r = analysis.result();
+            AnalysisResult untimed = new AnalysisResult(r.fileName(), r.fileSize(), r.model(), r.totalTokens(),
+                r.uniqueTokens(), r.tokenWordRatio(), r.avgTokenLength(), r.contentDensity(), r.lexicalDiversity(),
+                r.whitespaceRatio(), r.fleschScore(), r.complexityScore(), r.avgSentenceLength(), 0);
+            var sketches = analysis.sketches();
+            return new Snapshot(text, untimed, analysis.tokenMetrics(), sketches.frequentWords().top(20),
+                sketches.ngrams().top(2, 20), sketches.ngrams().top(3, 20),
+                sketches.estimateDistinctTokens(), sketches.estimateDistinctWords());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.models.TruncationResult;
+import com.tokenanalyzer.utils.TokenBoundaries;
+
+class TokenEngineTruncationTest {
+    private static final EncodingType ENCODING_TYPE = EncodingType.CL100K_BASE;
+    private static final Encoding ENCODING = Encodings.newDefaultEncodingRegistry().getEncoding(ENCODING_TYPE);
+    
+    @Test
+    void prefixIsTheLongestThatFits() {
+        TokenEngine engine = TokenEngine.shared();
+        String text = corpus();
+        for (int budget : new int[] { 0, 1, 7, 50, 333, 1000 }) {
+            TruncationResult truncated = engine.truncateToBudget(text, ENCODING_TYPE, budget);
+            String prefix = truncated.text();
+            assertTrue(truncated.truncated());
+            assertEquals(ENCODING.countTokens(prefix), truncated.tokenCount());
+            assertTrue(truncated.tokenCount() <= budget);
+            
+            int next = TokenBoundaries.atOrAfter(text, prefix.length() + 1, ENCODING_TYPE);
+            assertTrue(ENCODING.countTokens(text.substring(0, next)) > budget, "Prefix could be longer for " + budget);
+        }
+    }
+    
+    @Test
+    void suffixIsTheLongestThatFits() {
+        TokenEngine engine = TokenEngine.shared();
+        String text = corpus();
+        for (int budget : new int[] { 1, 7, 50, 333, 1000 }) {
+            TruncationResult truncated = engine.truncateSuffixToBudget(text, ENCODING_TYPE, budget);
+            assertEquals(ENCODING.countTokens(truncated.text()), truncated.tokenCount());
+            assertTrue(truncated.tokenCount() <= budget);
+            
+            int previous = TokenBoundaries.atOrBefore(text, truncated.startOffset() - 1, ENCODING_TYPE);
+            assertTrue(ENCODING.countTokens(text.substring(previous)) > budget, "Suffix could be longer for " + budget);
+        }
+    }
+    
+    @Test
+    void textWithinBudgetIsKept() {
+        TruncationResult truncated = TokenEngine.shared().truncateToBudget("A short sentence.", ENCODING_TYPE, 100);
+        assertFalse(truncated.truncated());
+        assertEquals("A short sentence.", truncated.text());
+    }
+    
+    private static String corpus() {
+        Random random = new Random(7);
+        String[] words = { "the", "token", "budget", "naïve", "façade", "x=1;", "don't", "über", "42", "日本語", "\n\n" };
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 4000; i++) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(9) == 0 ? ". " : " ");
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.models.EstimateValidation;
+import com.tokenanalyzer.models.TokenCalibration;
+import com.tokenanalyzer.models.TokenEstimate;
+
+class TokenEstimatorTest {
+    private static final EncodingType ENCODING_TYPE = EncodingType.CL100K_BASE;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void validationReportsExactCountsAndSampledError() throws Exception {
+        File large = write("large.txt", prose(120_000, 1));
+        File small = write("small.md", prose(200, 2));
+        
+        EstimateValidation validation = new TokenEngine().validateEstimates(List.of(large, small), ENCODING_TYPE);
+        assertEquals(2, validation.entries().size());
+        
+        for (EstimateValidation.Entry entry : validation.entries()) {
+            String text = new FileProcessor().extractText(directory.resolve(entry.fileName()).toFile());
+            assertEquals(Encodings.newDefaultEncodingRegistry().getEncoding(ENCODING_TYPE).countTokens(text),
+                entry.exactTokens());
+        }
+        EstimateValidation.Entry sampled = validation.entries().get(0);
+        assertEquals(TokenEstimate.Method.SAMPLED, sampled.estimate().method());
+        assertTrue(Math.abs(sampled.getErrorPercent()) < 5, "Sampled error " + sampled.getErrorPercent() + "%");
+        assertEquals(TokenEstimate.Method.EXACT, validation.entries().get(1).estimate().method());
+        assertTrue(validation.toReport().contains("large.txt"));
+    }
+    
+    @Test
+    void validationCalibratesFormatsThatNeedExtraction() throws Exception {
+        List<File> pages = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            pages.add(write("page" + i + ".html", "<html><body><p>" + prose(3_000, 10 + i) + "</p></body></html>"));
+        }
+        TokenEngine engine = new TokenEngine();
+        engine.validateEstimates(pages.subList(0, 3), ENCODING_TYPE);
+        
+        TokenCalibration calibration = engine.getEstimator().getCalibration("html", ENCODING_TYPE).orElseThrow();
+        assertEquals(3, calibration.documents());
+        assertTrue(calibration.tokensPerByte() > 0);
+        
+        EstimateValidation held = engine.validateEstimates(pages.subList(3, 4), ENCODING_TYPE);
+        EstimateValidation.Entry entry = held.entries().get(0);
+        assertEquals(TokenEstimate.Method.CALIBRATED, entry.estimate().method());
+        assertTrue(Math.abs(entry.getErrorPercent()) < 10, "Calibrated error " + entry.getErrorPercent() + "%");
+    }
+    
+    @Test
+    void textWithoutSafeBoundariesIsCountedExactly() {
+        String text = "0123456789abcdef".repeat(20_000);
+        TokenEstimate estimate = new TokenEngine().getEstimator().estimate(text, ENCODING_TYPE);
+        
+        assertEquals(TokenEstimate.Method.EXACT, estimate.method());
+        assertEquals(Encodings.newDefaultEncodingRegistry().getEncoding(ENCODING_TYPE).countTokens(text), estimate.tokens());
+    }
+    
+    private File write(String name, String content) throws Exception {
+        return Files.writeString(directory.resolve(name), content).toFile();
+    }
+    
+    private static String prose(int words, long seed) {
+        String[] vocabulary = { "the", "estimate", "token", "window", "budget", "corpus", "calibrated", "sampling",
+            "interval", "of", "and", "a", "measurement", "retrieval", "document" };
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(vocabulary[random.nextInt(vocabulary.length)]).append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
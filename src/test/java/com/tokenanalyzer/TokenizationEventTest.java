@@ -0,0 +1,89 @@
+package com.tokenanalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import com.tokenanalyzer.metrics.LatencyHistogram;
+import com.tokenanalyzer.metrics.PerformanceMetrics;
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.SectionedText;
+import com.tokenanalyzer.models.TextSection;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class TokenizationEventTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void eventCoversEncodingOfAnalyzedFiles() throws Exception {
+        File file = directory.resolve("large.txt").toFile();
+        Files.writeString(file.toPath(), TextAnalyzerTest.zipfText(400_000, 30_000, 9));
+        TokenEngine engine = new TokenEngine();
+        PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+        List<LatencyHistogram> stages = List.of(
+            metrics.getStage(PerformanceMetrics.STAGE_ENCODE),
+            metrics.getStage(PerformanceMetrics.STAGE_HISTOGRAM),
+            metrics.getStage(PerformanceMetrics.STAGE_AVG_TOKEN_LENGTH));
+        
+        AnalysisResult result;
+        long stageNanos;
+        Path dump = directory.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.tokenanalyzer.Tokenization").withThreshold(Duration.ZERO);
+            recording.start();
+            long before = totalNanos(stages);
+            result = engine.analyze(file);
+            stageNanos = totalNanos(stages) - before;
+            recording.stop();
+            recording.dump(dump);
+        }
+        
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+            .filter(event -> event.getEventType().getName().equals("com.tokenanalyzer.Tokenization"))
+            .toList();
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(result.totalTokens(), event.getLong("tokens"));
+        // Encoding plus the metrics calculated from its tokens
+        assertTrue(event.getDuration().toNanos() >= stageNanos,
+            "Event " + event.getDuration() + " shorter than its stages " + Duration.ofNanos(stageNanos));
+    }
+    
+    @Test
+    void sectionedDocumentIsOneEncodeSample() {
+        String text = TextAnalyzerTest.zipfText(20_000, 5_000, 10);
+        List<TextSection> pages = new ArrayList<>();
+        int pageChars = text.length() / 20;
+        for (int start = 0; start < text.length(); start += pageChars) {
+            pages.add(new TextSection(TextSection.PAGE, "Page " + (pages.size() + 1), start,
+                Math.min(text.length(), start + pageChars)));
+        }
+        LatencyHistogram encode = PerformanceMetrics.getInstance().getStage(PerformanceMetrics.STAGE_ENCODE);
+        
+        long before = encode.getCount();
+        DocumentAnalysis analysis = new TokenEngine().analyzeDocument("paged.pdf", text.length(),
+            new SectionedText(text, pages), EncodingType.CL100K_BASE, null, AnalysisDeadline.unlimited("paged.pdf"));
+        
+        assertEquals(1, encode.getCount() - before);
+        assertEquals(pages.size(), analysis.sections().size());
+    }
+    
+    private static long totalNanos(List<LatencyHistogram> stages) {
+        return stages.stream().mapToLong(LatencyHistogram::getTotalNanos).sum();
+    }
+}
\ No newline at end of file
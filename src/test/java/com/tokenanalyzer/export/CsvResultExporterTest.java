@@ -0,0 +1,114 @@
+package com.tokenanalyzer.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.BatchSummary;
+import com.tokenanalyzer.models.DocumentAnalysis;
+import com.tokenanalyzer.models.FrequentItem;
+import com.tokenanalyzer.models.TokenInfo;
+import com.tokenanalyzer.models.TokenMetrics;
+
+class CsvResultExporterTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void topTokensSurviveSeparatorsInTokenText() throws Exception {
+        List<TokenInfo> tokens = List.of(
+            new TokenInfo("|", 1, 9),
+            new TokenInfo("||", 2, 8),
+            new TokenInfo(" a:b", 3, 7),
+            new TokenInfo("\",\n", 4, 6));
+        AnalysisResult result = new AnalysisResult("a,b.md", 10, "gpt-4", 30, 4, 1, 1, 1, 1, 0, 50, 0.5, 10, 1);
+        DocumentAnalysis analysis = new DocumentAnalysis(result,
+            new TokenMetrics(30, 4, 1, 1, Map.of(), tokens));
+        
+        Path target = directory.resolve("results.csv");
+        try (ResultExporter exporter = ResultExporter.open(target)) {
+            exporter.write(analysis);
+        }
+        
+        List<List<String>> rows = parseCsv(Files.readString(target));
+        assertEquals(2, rows.size());
+        List<String> header = rows.get(0);
+        List<String> row = rows.get(1);
+        assertEquals("a,b.md", row.get(header.indexOf("file_name")));
+        
+        JsonNode topTokens = new ObjectMapper().readTree(row.get(header.indexOf("top_tokens")));
+        assertEquals(tokens.size(), topTokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.get(i).text(), topTokens.get(i).get("text").asText());
+            assertEquals(tokens.get(i).frequency(), topTokens.get(i).get("count").asLong());
+        }
+    }
+    
+    @Test
+    void summaryRowCarriesFailuresAndPercentiles() throws Exception {
+        BatchSummary summary = new BatchSummary(3, 2, 1, 0, 600, 200, 100, 300, 200, 290, 299, 50, 40, 60, 5,
+            400, 300, List.of(new FrequentItem("the", 9, 9)), List.of(), List.of(), List.of());
+        
+        Path target = directory.resolve("results.csv");
+        try (ResultExporter exporter = ResultExporter.open(target)) {
+            exporter.writeSummary(summary);
+        }
+        
+        List<List<String>> rows = parseCsv(Files.readString(target));
+        List<String> header = rows.get(0);
+        List<String> row = rows.get(1);
+        assertEquals("summary", row.get(header.indexOf("status")));
+        assertEquals("600", row.get(header.indexOf("total_tokens")));
+        
+        JsonNode corpus = new ObjectMapper().readTree(row.get(header.indexOf("top_tokens")));
+        assertEquals(3, corpus.get("files").asInt());
+        assertEquals(2, corpus.get("failedFiles").asInt());
+        assertEquals(200, corpus.get("p50Tokens").asLong());
+        assertEquals(290, corpus.get("p90Tokens").asLong());
+        assertEquals(299, corpus.get("p99Tokens").asLong());
+        assertEquals("the", corpus.get("tokens").get(0).get("text").asText());
+    }
+    
+    private static List<List<String>> parseCsv(String csv) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        return rows;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.tokenanalyzer.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.tokenanalyzer.models.AnalysisResult;
+import com.tokenanalyzer.models.StoredResult;
+import com.tokenanalyzer.models.StoredRun;
+
+class ResultStoreTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void secondOpenOfTheSameDirectoryIsRefused() throws Exception {
+        try (ResultStore store = ResultStore.open(directory)) {
+            long runId = store.beginRun();
+            store.append(runId, "/docs/a.txt", 1, result("a.txt", 10));
+            
+            assertThrows(IOException.class, () -> ResultStore.open(directory));
+        }
+        
+        // Closing releases the lock and finishes the open run
+        try (ResultStore store = ResultStore.open(directory)) {
+            assertEquals(1, store.getRecordCount());
+            assertEquals(1, store.getRun(0).orElseThrow().recordCount());
+        }
+    }
+    
+    @Test
+    void recoveryDropsTornRecordsAndFinishesInterruptedRuns() throws Exception {
+        try (ResultStore store = ResultStore.open(directory)) {
+            long runId = store.beginRun();
+            store.append(runId, "/docs/a.txt", 1, result("a.txt", 10));
+            store.append(runId, "/docs/b.txt", 2, result("b.txt", 20));
+        }
+        
+        // A crash mid-append leaves part of a record, and the run without a finish time
+        try (FileChannel records = FileChannel.open(directory.resolve("results.dat"), StandardOpenOption.WRITE)) {
+            records.write(ByteBuffer.allocate(ResultView.RECORD_BYTES / 2), records.size());
+        }
+        try (FileChannel runs = FileChannel.open(directory.resolve("runs.dat"), StandardOpenOption.WRITE)) {
+            runs.write(ByteBuffer.allocate(Long.BYTES), 8);
+        }
+        
+        try (ResultStore store = ResultStore.open(directory)) {
+            assertEquals(2, store.getRecordCount());
+            StoredRun run = store.getRun(0).orElseThrow();
+            assertTrue(run.isFinished());
+            assertEquals(2, run.recordCount());
+            assertEquals("b.txt", store.findLatest("/docs/b.txt").orElseThrow().result().fileName());
+            
+            long next = store.beginRun();
+            assertEquals(2, store.append(next, "/docs/c.txt", 3, result("c.txt", 30)));
+        }
+    }
+    
+    @Test
+    void missingIndexesAreRebuiltFromTheRecords() throws Exception {
+        try (ResultStore store = ResultStore.open(directory)) {
+            for (int run = 0; run < 2; run++) {
+                long runId = store.beginRun();
+                for (int i = 0; i < 50; i++) {
+                    store.append(runId, "/docs/" + i + ".txt", 1000L * (run + 1) + i, result(i + ".txt", run * 1000 + i));
+                }
+                store.endRun(runId);
+            }
+        }
+        try (DirectoryStream<Path> indexes = Files.newDirectoryStream(directory, "*.idx")) {
+            for (Path index : indexes) {
+                Files.delete(index);
+            }
+        }
+        
+        try (ResultStore store = ResultStore.open(directory)) {
+            for (int i = 0; i < 50; i++) {
+                StoredResult latest = store.findLatest("/docs/" + i + ".txt").orElseThrow();
+                assertEquals(1, latest.runId());
+                assertEquals(1000 + i, latest.result().totalTokens());
+                assertEquals(i, store.findByContentHash(1000 + i).orElseThrow().recordNumber());
+            }
+            assertFalse(store.findLatest("/docs/missing.txt").isPresent());
+        }
+    }
+    
+    @Test
+    void runsAreComparedOnlyWithRunsOverTheSamePaths() throws Exception {
+        try (ResultStore store = ResultStore.open(directory)) {
+            long first = storeRun(store, "/docs/a.txt", "/docs/b.txt");
+            storeRun(store, "/docs/c.txt");
+            storeRun(store, "/docs/a.txt", "/docs/c.txt");
+            long current = storeRun(store, "/docs/b.txt", "/docs/a.txt");
+            
+            assertEquals(Optional.of(first), store.findComparableRun(current));
+            assertEquals(Optional.empty(), store.findComparableRun(first));
+        }
+    }
+    
+    private static long storeRun(ResultStore store, String... paths) throws IOException {
+        long runId = store.beginRun();
+        for (String path : paths) {
+            store.append(runId, path, path.hashCode(), result(path, 10));
+        }
+        store.endRun(runId);
+        return runId;
+    }
+    
+    private static AnalysisResult result(String name, int tokens) {
+        return new AnalysisResult(name, tokens * 4L, "cl100k_base", tokens, tokens / 2, 1.3, 4, 0.8, 0.5, 0.2, 60, 0.4,
+            12, 5);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.tokenanalyzer.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import com.tokenanalyzer.models.PhraseUsage;
+
+class TokenArchiveTest {
+    private static final Encoding ENCODING = Encodings.newDefaultEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void scanDecodesEveryDocumentInOrder() throws Exception {
+        // One, two and three byte varints, and an empty document
+        int[][] streams = { { 0, 127, 128, 16_383, 16_384, 100_255 }, {}, { 42, 42, 7 } };
+        try (TokenArchive archive = TokenArchive.open(directory, ENCODING)) {
+            for (int i = 0; i < streams.length; i++) {
+                assertEquals(i, archive.append("doc" + i, i, tokens(streams[i])));
+            }
+            assertEquals(9, archive.getTotalTokens());
+            
+            List<List<Integer>> scanned = new ArrayList<>();
+            archive.scan(new TokenArchive.TokenVisitor() {
+                @Override
+                public void beginDocument(int document, int tokenCount) {
+                    assertEquals(scanned.size(), document);
+                    assertEquals(streams[document].length, tokenCount);
+                    scanned.add(new ArrayList<>());
+                }
+                
+                @Override
+                public void token(int tokenId) {
+                    scanned.get(scanned.size() - 1).add(tokenId);
+                }
+            });
+            for (int i = 0; i < streams.length; i++) {
+                assertArrayEquals(streams[i], scanned.get(i).stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+    }
+    
+    @Test
+    void unchangedDocumentsAreArchivedOnce() throws Exception {
+        IntArrayList tokens = ENCODING.encode("The same report, analyzed again.");
+        try (TokenArchive archive = TokenArchive.open(directory, ENCODING)) {
+            assertEquals(0, archive.append("report.txt", 11, tokens));
+            assertEquals(0, archive.append("report.txt", 11, tokens));
+            assertEquals(1, archive.append("report.txt", 12, tokens));
+            assertEquals(2, archive.append("copy.txt", 11, tokens));
+            assertEquals(3, archive.getDocumentCount());
+        }
+        
+        // The index is rebuilt from the entries when its files are gone
+        try (DirectoryStream<Path> indexes = Files.newDirectoryStream(archiveDirectory(), "*.idx")) {
+            for (Path index : indexes) {
+                Files.delete(index);
+            }
+        }
+        try (TokenArchive archive = TokenArchive.open(directory, ENCODING)) {
+            assertEquals(1, archive.append("report.txt", 12, tokens));
+            assertEquals(3, archive.getDocumentCount());
+        }
+    }
+    
+    @Test
+    void recoveryDropsPartlyWrittenDocuments() throws Exception {
+        IntArrayList first = ENCODING.encode("First document.");
+        IntArrayList second = ENCODING.encode("Second document, a little longer.");
+        try (TokenArchive archive = TokenArchive.open(directory, ENCODING)) {
+            archive.append("first.txt", 1, first);
+            archive.append("second.txt", 2, second);
+        }
+        
+        // A crash mid-append leaves tokens without an entry, and part of an entry
+        Path tokens = archiveDirectory().resolve("tokens.dat");
+        Files.write(tokens, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+        Path documents = archiveDirectory().resolve("documents.dat");
+        Files.write(documents, new byte[12], StandardOpenOption.APPEND);
+        long dataBytes = Files.size(tokens) - 3;
+        
+        try (TokenArchive archive = TokenArchive.open(directory, ENCODING)) {
+            assertEquals(2, archive.getDocumentCount());
+            assertEquals(first.size() + second.size(), archive.getTotalTokens());
+            assertEquals(dataBytes, archive.getDataBytes());
+            assertEquals("second.txt", archive.getDocument(1).name());
+            assertArrayEquals(second.toArray(), archive.readTokens(1));
+            
+            IntArrayList third = ENCODING.encode("Third.");
+            assertEquals(2, archive.append("third.txt", 3, third));
+            assertArrayEquals(third.toArray(), archive.readTokens(2));
+        }
+    }
+    
+    @Test
+    void phraseAfterASpaceTokenIsCountedOnce() throws Exception {
+        // cl100k splits digits from a preceding space, so " 2024 report" ends with all of "2024 report"
+        int spaced = ENCODING.encode(" 2024 report").size();
+        int bare = ENCODING.encode("2024 report").size();
+        assertEquals(spaced, bare + 1);
+        
+        try (TokenArchive archive = TokenArchive.open(directory, ENCODING)) {
+            archive.append("spaced.txt", 1, ENCODING.encode("The 2024 report and the 2024 report."));
+            archive.append("bare.txt", 2, ENCODING.encode("2024 report is out"));
+            archive.append("none.txt", 3, ENCODING.encode("The 2023 report"));
+            
+            PhraseUsage usage = archive.countPhrase("2024 report");
+            assertEquals(3, usage.occurrences());
+            assertEquals(2L * spaced + bare, usage.tokens());
+            assertEquals(2, usage.documents());
+        }
+    }
+    
+    private static IntArrayList tokens(int... ids) {
+        IntArrayList tokens = new IntArrayList(ids.length);
+        for (int id : ids) {
+            tokens.add(id);
+        }
+        return tokens;
+    }
+    
+    private Path archiveDirectory() {
+        return directory.resolve(ENCODING.getName());
+    }
+}
\ No newline at end of file
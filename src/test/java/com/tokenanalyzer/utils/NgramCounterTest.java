@@ -0,0 +1,80 @@
+package com.tokenanalyzer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.knuddels.jtokkit.api.IntArrayList;
+
+class NgramCounterTest {
+    private static final int CAPACITY = 4096;
+    
+    @Test
+    void cappedCountsStayWithinTheirErrorBounds() {
+        IntArrayList tokens = skewedTokens(1_000_000, 11);
+        Map<Long, Long> exact = new HashMap<>();
+        for (int i = 2; i < tokens.size(); i++) {
+            exact.merge(pack(tokens.get(i - 2), tokens.get(i - 1), tokens.get(i)), 1L, Long::sum);
+        }
+        
+        NgramCounter counter = new NgramCounter(CAPACITY);
+        counter.count(tokens);
+        
+        assertEquals(tokens.size() - 2, counter.getTotal(3));
+        assertTrue(counter.getTracked(3) <= 2 * CAPACITY, "Tracked " + counter.getTracked(3));
+        assertTrue(counter.getErrorBound(3) <= counter.getTotal(3) / (CAPACITY + 1));
+        List<NgramCounter.Entry> top = counter.top(3, 20);
+        assertEquals(20, top.size());
+        for (NgramCounter.Entry entry : top) {
+            long count = exact.get(entry.key());
+            assertTrue(entry.count() <= count && count <= entry.maxCount(), entry + " vs " + count);
+        }
+    }
+    
+    @Test
+    void smallDocumentsAreExactAndMergeIntoTheCorpus() {
+        IntArrayList tokens = new IntArrayList();
+        for (int token : new int[] { 1, 2, 3, 1, 2, 3, 1, 2 }) {
+            tokens.add(token);
+        }
+        NgramCounter document = new NgramCounter(CAPACITY);
+        document.count(tokens);
+        assertTrue(document.isExact(2));
+        assertArrayEquals(new int[] { 1, 2 }, document.top(2, 1).get(0).tokens());
+        assertEquals(3, document.top(2, 1).get(0).count());
+        
+        NgramCounter corpus = new NgramCounter(CAPACITY);
+        corpus.merge(document);
+        corpus.merge(document);
+        assertEquals(14, corpus.getTotal(2));
+        assertEquals(6, corpus.top(2, 1).get(0).count());
+    }
+    
+    private static long pack(int a, int b, int c) {
+        return ((long) a << 42) | ((long) b << 21) | c;
+    }
+    
+    /** A few repeated phrases within a stream of mostly distinct token triples. */
+    private static IntArrayList skewedTokens(int size, long seed) {
+        Random random = new Random(seed);
+        IntArrayList tokens = new IntArrayList(size);
+        while (tokens.size() < size) {
+            if (random.nextInt(4) == 0) {
+                int phrase = random.nextInt(10) * 3;
+                tokens.add(phrase + 1);
+                tokens.add(phrase + 2);
+                tokens.add(phrase + 3);
+            } else {
+                tokens.add(1_000 + random.nextInt(100_000));
+            }
+        }
+        return tokens;
+    }
+}
\ No newline at end of file